@@ -10,6 +10,7 @@ val mainClass = "com.ronreynolds.games.Main"
 // library versions
 val assertJVersion      = "3.24.2"
 val jUnitJupiterVersion	= "5.10.2"  // from build/generated/api/build.gradle
+val jmhVersion          = "1.37"
 val lombokVersion       = "1.18.32"
 val picoCliVersion 		= "4.7.6"
 val slf4jVersion        = "1.7.25"
@@ -24,6 +25,19 @@ repositories {
 	mavenCentral()
 }
 
+// JMH benchmarks live in src/jmh/java and see the main classes (but aren't part of the jar or the tests)
+sourceSets {
+	create("jmh") {
+		compileClasspath += sourceSets.main.get().output
+		runtimeClasspath += sourceSets.main.get().output
+	}
+}
+
+configurations {
+	named("jmhImplementation") { extendsFrom(configurations.implementation.get()) }
+	named("jmhRuntimeOnly") { extendsFrom(configurations.runtimeOnly.get()) }
+}
+
 dependencies {
 	implementation  ("info.picocli:picocli:$picoCliVersion")
 	implementation	("org.slf4j:slf4j-api:$slf4jVersion")
@@ -39,6 +53,11 @@ dependencies {
 	testImplementation	("org.assertj:assertj-core:$assertJVersion")
 	testImplementation	("org.junit.jupiter:junit-jupiter:$jUnitJupiterVersion")
 	testRuntimeOnly		("org.junit.platform:junit-platform-launcher:1.11.4")	// 2025-02-21
+
+	// benchmark dependencies
+	"jmhImplementation"			("org.openjdk.jmh:jmh-core:$jmhVersion")
+	"jmhAnnotationProcessor"	("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+	"jmhCompileOnly"			("org.projectlombok:lombok:$lombokVersion")
 }
 
 tasks.compileJava {
@@ -64,4 +83,17 @@ tasks.compileTestJava {
 
 tasks.withType<Test> {
 	useJUnitPlatform()
+}
+
+tasks.named<JavaCompile>("compileJmhJava") {
+	options.encoding = "UTF-8"
+}
+
+// e.g., gradle jmh -PjmhArgs="SolveBenchmark -p puzzleSet=hard -rf json -rff build/jmh.json"
+tasks.register<JavaExec>("jmh") {
+	group = "benchmark"
+	description = "Runs the JMH benchmarks (all of them unless jmhArgs says otherwise)"
+	classpath = sourceSets["jmh"].runtimeClasspath
+	this.mainClass.set("org.openjdk.jmh.Main")
+	args((findProperty("jmhArgs") as String? ?: "").split(" ").filter { it.isNotBlank() })
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.ronreynolds.games.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * creating boards from each input format, setting a value (and propagating it to the peers), and validating
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    private String compactGrid;
+    private char[][] charGrid;
+    private int[][] intGrid;
+    private SudokuPuzzle puzzle;
+    private FlatSudokuBoard flatBoard;
+    private SudokuPuzzle solvedPuzzle;
+    private CellCoordinates emptyCell;
+    private int emptyCellValue;
+
+    @Setup
+    public void setup() {
+        compactGrid = Puzzles.MEDIUM[0];
+        charGrid = new char[9][9];
+        intGrid = new int[9][9];
+        for (int row = 0; row < 9; ++row) {
+            for (int col = 0; col < 9; ++col) {
+                char c = compactGrid.charAt(row * 9 + col);
+                charGrid[row][col] = c == ' ' ? '.' : c;
+                intGrid[row][col] = c == ' ' ? 0 : c - '0';
+            }
+        }
+        puzzle = SudokuPuzzle.create(compactGrid);
+        flatBoard = FlatSudokuBoard.create(compactGrid);
+        solvedPuzzle = SudokuPuzzle.create(compactGrid);
+        Sudoku.solve(solvedPuzzle, SolveOptions.builder().quiet(true).build());
+
+        // the cell at (0,0) is empty in the medium puzzle; set it to its value in the solution
+        emptyCell = CellCoordinates.of(0, 0);
+        emptyCellValue = solvedPuzzle.getValue(0);
+    }
+
+    @Benchmark
+    public SudokuPuzzle createFromString() {
+        return SudokuPuzzle.create(compactGrid);
+    }
+
+    @Benchmark
+    public SudokuPuzzle createFromChars() {
+        return SudokuPuzzle.create(charGrid);
+    }
+
+    @Benchmark
+    public SudokuPuzzle createFromInts() {
+        return SudokuPuzzle.create(intGrid);
+    }
+
+    @Benchmark
+    public FlatSudokuBoard createFlatFromString() {
+        return FlatSudokuBoard.create(compactGrid);
+    }
+
+    // the undo (so every invocation starts from the same board) is part of what's measured
+    @Benchmark
+    public int setCellValue() {
+        int mark = puzzle.mark();
+        puzzle.setCellValue(emptyCell, emptyCellValue);
+        puzzle.undoTo(mark);
+        return mark;
+    }
+
+    @Benchmark
+    public int setValueFlat() {
+        int mark = flatBoard.mark();
+        flatBoard.setValue(0, emptyCellValue);
+        flatBoard.undoTo(mark);
+        return mark;
+    }
+
+    @Benchmark
+    public boolean isValidUnsolved() {
+        return puzzle.isValid();
+    }
+
+    @Benchmark
+    public boolean isValidSolved() {
+        return solvedPuzzle.isValid();
+    }
+}
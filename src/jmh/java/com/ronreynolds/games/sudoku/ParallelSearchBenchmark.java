@@ -0,0 +1,76 @@
+package com.ronreynolds.games.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * how ParallelSearch scales with the size of its pool on the puzzles the solvers can't finish; the time reported is per
+ * puzzle
+ * <p>
+ * proving a solution is unique (counting to 2) has to search the whole tree so it shows how well the tree is spread
+ * over the workers; finding the first solution depends on how soon some worker happens upon it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelSearchBenchmark {
+    private static final int PUZZLES_PER_INVOCATION = 4;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private FlatSudokuBoard[] boards;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        String[] set = Puzzles.get("unsolvableByLogic");
+        boards = new FlatSudokuBoard[PUZZLES_PER_INVOCATION];
+        for (int x = 0; x < boards.length; ++x) {
+            boards[x] = FlatSudokuBoard.create(set[x % set.length]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int findSolution() {
+        int solved = 0;
+        for (FlatSudokuBoard board : boards) {
+            solved += new ParallelSearch(board, pool).count(1);
+        }
+        return solved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int proveUnique() {
+        int solutions = 0;
+        for (FlatSudokuBoard board : boards) {
+            solutions += new ParallelSearch(board, pool).count(2);
+        }
+        return solutions;
+    }
+}
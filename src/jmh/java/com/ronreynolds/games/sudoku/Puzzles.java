@@ -0,0 +1,135 @@
+package com.ronreynolds.games.sudoku;
+
+import java.util.SplittableRandom;
+
+/**
+ * the puzzles used by the benchmarks (mostly the ones from SudokuTest and src/main/resources/sudokus) grouped by how
+ * much work they take
+ */
+final class Puzzles {
+    static final String[] EASY = {"" +
+            "9 73    6" +
+            "  3  8 1 " +
+            "85  2 4  " +
+            " 2      5" +
+            "  4   2  " +
+            "6      8 " +
+            "  2 7  43" +
+            " 1 5  7  " +
+            "3    29 8", "" +
+            "4   58 17" +
+            "1 76    3" +
+            "     39  " +
+            "  49   7 " +
+            " 8  6  5 " +
+            " 2   43  " +
+            "  15     " +
+            "5    71 2" +
+            "37 48   9",
+    };
+
+    static final String[] MEDIUM = {"" +
+            "  345    " +
+            " 2   6  3" +
+            "  1   7 2" +
+            "      8 1" +
+            " 8  2  9 " +
+            "9 7      " +
+            "1 6   9  " +
+            "2  5   1 " +
+            "    432  ", "" +
+            ".......2." +
+            "...1..5.." +
+            "..7.98..." +
+            "62..59..." +
+            "84.....32" +
+            "...34..58" +
+            "...26.3.." +
+            "..9..5..." +
+            ".8.......",
+    };
+
+    static final String[] HARD = {"" +
+            "1  5   8 " +
+            "7    62  " +
+            " 9  7   1" +
+            "     2 3 " +
+            "  1 3 5  " +
+            " 6 4     " +
+            "9   4  7 " +
+            "  67    9" +
+            " 4   3  2", "" +
+            "    32   " +
+            "         " +
+            "  76  914" +
+            " 96   8  " +
+            "  5  8   " +
+            " 3  4   5" +
+            " 5 2     " +
+            "7     56 " +
+            "9 4 1    ", "" +
+            "         " +
+            "    4273 " +
+            "  67   4 " +
+            " 94      " +
+            "    96   " +
+            "  7    23" +
+            "1      85" +
+            " 6  8 27 " +
+            "  5 1    ", "" +
+            " 1 8  5  " +
+            "5   3  2 " +
+            "  9   1 6" +
+            "8    5   " +
+            " 3  7  9 " +
+            "   6    4" +
+            "3 8   2  " +
+            " 5  1   3" +
+            "  2  4 6 ",
+    };
+
+    // the solvers stall on all of these so solving them takes search (or Dancing Links)
+    static final String[] UNSOLVABLE_BY_LOGIC = {
+            "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",  // Arto Inkala, 2012
+            "1.......2.9.4...5...6...7...5.9.3.......7.......85..4.7.....6...3...9.8...2.....1",  // "Easter Monster"
+            "1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..",  // "AI Escargot"
+    };
+
+    /**
+     * puzzles of any size: a random full grid with a fraction of its cells blanked (so they're solvable but, unlike the
+     * sets above, not always uniquely); the same seed always gives the same puzzles
+     */
+    static String[] random(BoardLayout layout, long seed, int count, double blankFraction) {
+        SplittableRandom random = new SplittableRandom(seed);
+        SolutionCounter counter = new SolutionCounter(layout);
+        counter.setRandom(random);
+        String[] puzzles = new String[count];
+        for (int x = 0; x < count; ++x) {
+            counter.count(new int[layout.cellCount], 1);
+            StringBuilder buf = new StringBuilder(layout.cellCount);
+            for (int value : counter.getSolution()) {
+                buf.append(random.nextDouble() < blankFraction ? '.' : BoardLayout.symbolOf(value));
+            }
+            puzzles[x] = buf.toString();
+        }
+        return puzzles;
+    }
+
+    static String[] get(String puzzleSet) {
+        switch (puzzleSet) {
+            case "easy":
+                return EASY;
+            case "medium":
+                return MEDIUM;
+            case "hard":
+                return HARD;
+            case "unsolvableByLogic":
+                return UNSOLVABLE_BY_LOGIC;
+            default:
+                throw new IllegalArgumentException("unknown puzzle set " + puzzleSet);
+        }
+    }
+
+    private Puzzles() {
+    }
+}
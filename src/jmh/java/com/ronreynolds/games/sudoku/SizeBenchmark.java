@@ -0,0 +1,85 @@
+package com.ronreynolds.games.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * how creating and solving boards scales with their size: 6x6 (2x3 blocks) up to 25x25; the puzzles are random full
+ * grids with 60% of the cells blanked (see Puzzles.random) and the time reported is per puzzle
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SizeBenchmark {
+    private static final int PUZZLES_PER_INVOCATION = 4;
+
+    @Param({"2x3", "3x3", "3x4", "4x4", "5x5"})
+    public String blocks;
+
+    private BoardLayout layout;
+    private String[] grids;
+    private SolveOptions options;
+
+    @Setup
+    public void setup() {
+        layout = BoardLayout.parse(blocks);
+        grids = Puzzles.random(layout, 42, PUZZLES_PER_INVOCATION, 0.6);
+        options = SolveOptions.builder().search(true).quiet(true).build();
+    }
+
+    // setting the givens is most of the propagation (every value removes itself from its peers)
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int createPuzzle() {
+        int sum = 0;
+        for (String grid : grids) {
+            sum += SudokuPuzzle.create(grid, layout).getCandidates(0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int createFlat() {
+        int sum = 0;
+        for (String grid : grids) {
+            sum += FlatSudokuBoard.create(grid, layout).getCandidates(0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int solvePuzzle() {
+        int solved = 0;
+        for (String grid : grids) {
+            solved += Sudoku.solve(SudokuPuzzle.create(grid, layout), options) == SolveStatus.SOLVED ? 1 : 0;
+        }
+        return solved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int solveFlat() {
+        int solved = 0;
+        for (String grid : grids) {
+            solved += Sudoku.solve(FlatSudokuBoard.create(grid, layout), options) == SolveStatus.SOLVED ? 1 : 0;
+        }
+        return solved;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ronreynolds.games.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a full Sudoku.solve (including creating the board) of every puzzle of a set; the time reported is per puzzle
+ * <p>
+ * search is on so the "unsolvableByLogic" set gets solved too (the solvers stall on those and search takes over)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SolveBenchmark {
+    // the biggest set; used to report the time per puzzle
+    private static final int PUZZLES_PER_INVOCATION = 4;
+
+    @Param({"easy", "medium", "hard", "unsolvableByLogic"})
+    public String puzzleSet;
+
+    @Param({"STRATEGIES", "DANCING_LINKS"})
+    public String engine;
+
+    private String[] grids;
+    private SolveOptions options;
+
+    @Setup
+    public void setup() {
+        // cycle through the set so every invocation solves PUZZLES_PER_INVOCATION puzzles
+        String[] set = Puzzles.get(puzzleSet);
+        grids = new String[PUZZLES_PER_INVOCATION];
+        for (int x = 0; x < grids.length; ++x) {
+            grids[x] = set[x % set.length];
+        }
+        options = SolveOptions.builder().engine(SolveEngine.valueOf(engine)).search(true).quiet(true).build();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int solvePuzzle() {
+        int solved = 0;
+        for (String grid : grids) {
+            solved += Sudoku.solve(SudokuPuzzle.create(grid), options) == SolveStatus.SOLVED ? 1 : 0;
+        }
+        return solved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES_PER_INVOCATION)
+    public int solveFlat() {
+        int solved = 0;
+        for (String grid : grids) {
+            solved += Sudoku.solve(FlatSudokuBoard.create(grid), options) == SolveStatus.SOLVED ? 1 : 0;
+        }
+        return solved;
+    }
+}
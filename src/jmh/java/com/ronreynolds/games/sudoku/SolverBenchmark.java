@@ -0,0 +1,59 @@
+package com.ronreynolds.games.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one pass of each strategy on its own (over every group it applies to) on a freshly created board; the board is
+ * rolled back with undoTo after each pass so every invocation sees the same state
+ * <p>
+ * the chain strategies remember (per thread) where they found nothing, so on a board where they find nothing every
+ * invocation after the first measures the check that skips the search, as a re-run in a solve would
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolverBenchmark {
+    @Param({"SIMPLE_SINGLES", "HIDDEN_SINGLES", "LOCKED_LINES", "LOCKED_BLOCKS", "NAKED_PAIR", "HIDDEN_PAIR", "X_WING",
+            "NAKED_TRIPLE", "HIDDEN_TRIPLE", "SWORDFISH", "NAKED_QUAD", "HIDDEN_QUAD", "JELLYFISH", "SIMPLE_COLORING",
+            "X_CHAIN", "XY_CHAIN"})
+    public String solverName;
+
+    @Param({"puzzle", "flat"})
+    public String board;
+
+    @Param({"medium", "hard"})
+    public String puzzleSet;
+
+    private SudokuSolver solver;
+    private SudokuBoard sudokuBoard;
+
+    @Setup
+    public void setup() {
+        solver = SudokuSolver.valueOf(solverName);
+        String grid = Puzzles.get(puzzleSet)[0];
+        sudokuBoard = board.equals("flat") ? FlatSudokuBoard.create(grid) : SudokuPuzzle.create(grid);
+    }
+
+    @Benchmark
+    public boolean apply() {
+        int mark = sudokuBoard.mark();
+        boolean helped = solver.apply(sudokuBoard);
+        sudokuBoard.undoTo(mark);
+        return helped;
+    }
+}
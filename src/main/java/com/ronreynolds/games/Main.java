@@ -5,6 +5,8 @@ import com.ronreynolds.games.hangman.Hangman;
 import com.ronreynolds.games.sudoku.Sudoku;
 import picocli.CommandLine;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 @CommandLine.Command(name = "games", mixinStandardHelpOptions = true, version = "1.0", description = "various games")
@@ -17,23 +19,27 @@ public class Main implements Callable<Integer> {
         Game(Class<?> handlerClass) {
             this.handlerClass = handlerClass;
         }
-        void run() throws ReflectiveOperationException {
-            // a bit brutal but so long as the game doesn't need cmd-line args this should work
-            handlerClass.getDeclaredMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        void run(String[] args) throws ReflectiveOperationException {
+            // a bit brutal but it lets each game parse its own cmd-line args
+            handlerClass.getDeclaredMethod("main", String[].class).invoke(null, (Object) args);
         }
     }
 
     @CommandLine.Parameters(index = "0", description = "name of game", defaultValue = "hangman")
     private String gameName;
 
+    // options picocli doesn't know (e.g., --batch) are passed to the game too (see main)
+    @CommandLine.Parameters(index = "1..*", description = "args passed to the game (e.g., sudoku --batch in out)")
+    private List<String> gameArgs = new ArrayList<>();
+
     public static void main(String[] args) {
-        System.exit(new CommandLine(new Main()).execute(args));
+        System.exit(new CommandLine(new Main()).setUnmatchedOptionsArePositionalParams(true).execute(args));
     }
 
     @Override
     public Integer call() throws Exception {
         Game game = Game.valueOf(gameName);
-        game.run();
+        game.run(gameArgs.toArray(new String[0]));
         return 0;
     }
 }
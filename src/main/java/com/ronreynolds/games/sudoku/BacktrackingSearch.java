@@ -0,0 +1,103 @@
+package com.ronreynolds.games.sudoku;
+
+/**
+ * depth-first search for puzzles the solvers can't finish on their own; at each node the solvers are re-run (via the
+ * PropagationScheduler, usually with SudokuSolver.getSearchSolvers) and if the board is still unsolved we branch on the
+ * cell with the fewest possible values (minimum remaining values); a failed branch is rolled back in place using the
+ * board's trail
+ */
+public class BacktrackingSearch<B extends SudokuBoard> {
+    private final B board;
+    private final PropagationScheduler<B> scheduler;
+    private final SolveBudget budget;   // null if there's no limit
+    private long nodes;     // number of boards visited (for curiosity and tuning)
+
+    public BacktrackingSearch(B board) {
+        this(board, new PropagationScheduler<>(board, SudokuSolver.getSearchSolvers()));
+    }
+
+    /**
+     * @param scheduler runs the solvers at each node; it must be for the same board
+     */
+    public BacktrackingSearch(B board, PropagationScheduler<B> scheduler) {
+        this(board, scheduler, null);
+    }
+
+    /**
+     * @param budget if not null, every node spends a step of it and the search gives up once it runs out (it should be
+     *               the scheduler's budget too)
+     */
+    public BacktrackingSearch(B board, PropagationScheduler<B> scheduler, SolveBudget budget) {
+        this.board = board;
+        this.scheduler = scheduler;
+        this.budget = budget;
+    }
+
+    /**
+     * search for a solution; on success the board is left solved, otherwise it's rolled back to how it was (also if
+     * the scheduler's budget ran out first; see SolveBudget.isExhausted to tell the difference)
+     *
+     * @return true if a solution was found
+     */
+    public boolean solve() {
+        int start = board.mark();
+        if (search()) {
+            return true;
+        }
+        board.undoTo(start);
+        return false;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    private boolean search() {
+        ++nodes;
+        if (budget != null && !budget.step()) {
+            return false;
+        }
+        scheduler.run(Sudoku.NO_LOGGING);
+        if (budget != null && budget.isExhausted() || !board.isConsistent()) {
+            return false;
+        }
+        if (board.isSolved()) {
+            return true;
+        }
+        int cell = findFewestCandidates(board);
+        for (int bits = board.getCandidates(cell); bits != 0; bits &= bits - 1) {
+            int mark = board.mark();
+            board.setValue(cell, Candidates.lowest(bits));
+            if (search()) {
+                return true;
+            }
+            board.undoTo(mark);
+            if (budget != null && budget.isExhausted()) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the unsolved cell with the fewest possible values (the first one found if there's a tie)
+     */
+    static int findFewestCandidates(SudokuBoard board) {
+        BoardLayout layout = board.getLayout();
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            if (board.getValue(cell) == 0) {
+                int count = Candidates.count(board.getCandidates(cell));
+                if (count < bestCount) {
+                    best = cell;
+                    bestCount = count;
+                    if (count <= 2) {
+                        break;  // after propagation no unsolved cell has a single possible so 2 is the best
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,256 @@
+package com.ronreynolds.games.sudoku;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * precomputed index tables describing the geometry of a board; cells are numbered 0..(dimension^2 - 1) in row-major
+ * order and groups are numbered rows first (0..dimension-1), then columns, then blocks
+ * <p>
+ * everything here is immutable and computed once per block shape so the hot paths of the solvers are simple array
+ * lookups instead of walks through CellGroup objects
+ */
+public final class BoardLayout {
+    // the 3 kinds of group every cell belongs to (also the offsets into cellGroups)
+    public static final int ROW = 0;
+    public static final int COLUMN = 1;
+    public static final int BLOCK = 2;
+
+    private static final BoardLayout STANDARD = new BoardLayout(Sudoku.blockSize, Sudoku.blockSize);
+    // the other layouts made so far (by block shape); they're immutable so each shape only needs to be built once
+    private static final ConcurrentMap<Integer, BoardLayout> layouts = new ConcurrentHashMap<>();
+
+    public final int dimension;     // number of values; also the size of every row, column, and block
+    public final int blockRows;     // number of rows in a block
+    public final int blockCols;     // number of columns in a block
+    public final int cellCount;
+    public final int groupCount;
+    public final int peerCount;     // number of OTHER cells that share at least 1 group with a cell
+
+    private final int[] groupCells;     // [group * dimension + position] -> cell
+    private final int[] cellGroups;     // [cell * 3 + kind] -> group
+    private final int[] cellPositions;  // [cell * 3 + kind] -> position of the cell within that group
+    private final int[] peers;          // [cell * peerCount + n] -> peer cell (sorted)
+
+    /**
+     * the layout of the classic 9x9 puzzle with 3x3 blocks
+     */
+    public static BoardLayout standard() {
+        return STANDARD;
+    }
+
+    /**
+     * the layout of a board with blocks of blockRows x blockCols cells (e.g., 2x3 for a 6x6 board); each shape is only
+     * built once and shared
+     */
+    public static BoardLayout of(int blockRows, int blockCols) {
+        if (blockRows == STANDARD.blockRows && blockCols == STANDARD.blockCols) {
+            return STANDARD;
+        }
+        assertValidShape(blockRows, blockCols);
+        return layouts.computeIfAbsent(blockRows * (Candidates.MAX_VALUES + 1) + blockCols,
+                shape -> new BoardLayout(blockRows, blockCols));
+    }
+
+    /**
+     * the layout with the squarest blocks for boards of dimension values, with blocks no taller than they are wide
+     * (e.g., 2x3 for 6, 3x4 for 12, 4x4 for 16)
+     *
+     * @throws IllegalArgumentException if the only shape is a single row (e.g., a prime dimension)
+     */
+    public static BoardLayout forDimension(int dimension) {
+        int blockRows = (int) Math.sqrt(dimension);
+        while (blockRows > 1 && dimension % blockRows != 0) {
+            --blockRows;
+        }
+        if (blockRows < 2) {
+            throw new IllegalArgumentException("no block shape for dimension " + dimension);
+        }
+        return of(blockRows, dimension / blockRows);
+    }
+
+    /**
+     * @return the layout (see forDimension) of a board with this many cells; null if there isn't one
+     */
+    public static BoardLayout forCellCount(int cellCount) {
+        int dimension = (int) Math.round(Math.sqrt(cellCount));
+        if (dimension * dimension != cellCount || dimension < 4 || dimension > Candidates.MAX_VALUES) {
+            return null;
+        }
+        try {
+            return forDimension(dimension);
+        } catch (IllegalArgumentException noShape) {
+            return null;
+        }
+    }
+
+    /**
+     * the layout for a block shape written as "RxC" (e.g., "2x3" for 6x6 boards, "4x4" for 16x16)
+     */
+    public static BoardLayout parse(String blockShape) {
+        int x = blockShape.indexOf('x');
+        try {
+            return of(Integer.parseInt(blockShape.substring(0, x)), Integer.parseInt(blockShape.substring(x + 1)));
+        } catch (IndexOutOfBoundsException | NumberFormatException invalid) {
+            throw new IllegalArgumentException("invalid block shape (expected RxC) - " + blockShape);
+        }
+    }
+
+    private static void assertValidShape(int blockRows, int blockCols) {
+        if (blockRows < 1 || blockCols < 1 || blockRows * blockCols > Candidates.MAX_VALUES) {
+            throw new IllegalArgumentException(
+                    String.format("unsupported block shape %dx%d", blockRows, blockCols));
+        }
+    }
+
+    private BoardLayout(int blockRows, int blockCols) {
+        assertValidShape(blockRows, blockCols);
+        this.blockRows = blockRows;
+        this.blockCols = blockCols;
+        this.dimension = blockRows * blockCols;
+        this.cellCount = dimension * dimension;
+        this.groupCount = 3 * dimension;
+
+        groupCells = new int[groupCount * dimension];
+        cellGroups = new int[cellCount * 3];
+        cellPositions = new int[cellCount * 3];
+        int[] blockFill = new int[dimension];   // next free position in each block
+        for (int row = 0; row < dimension; ++row) {
+            for (int col = 0; col < dimension; ++col) {
+                int cell = row * dimension + col;
+                int block = (row / blockRows) * blockRows + col / blockCols;
+                place(cell, ROW, row, col);
+                place(cell, COLUMN, dimension + col, row);
+                place(cell, BLOCK, 2 * dimension + block, blockFill[block]++);
+            }
+        }
+
+        // peers are the union of the 3 groups minus the cell itself
+        this.peerCount = 3 * (dimension - 1) - (blockRows - 1) - (blockCols - 1);
+        peers = new int[cellCount * peerCount];
+        boolean[] isPeer = new boolean[cellCount];
+        for (int cell = 0; cell < cellCount; ++cell) {
+            for (int kind = ROW; kind <= BLOCK; ++kind) {
+                int group = cellGroups[cell * 3 + kind];
+                for (int pos = 0; pos < dimension; ++pos) {
+                    isPeer[groupCells[group * dimension + pos]] = true;
+                }
+            }
+            isPeer[cell] = false;
+            int count = 0;
+            for (int other = 0; other < cellCount; ++other) {
+                if (isPeer[other]) {
+                    peers[cell * peerCount + count++] = other;
+                    isPeer[other] = false;
+                }
+            }
+            if (count != peerCount) {
+                throw new IllegalStateException("peer count mismatch for cell " + cell + " - " + count);
+            }
+        }
+    }
+
+    private void place(int cell, int kind, int group, int position) {
+        groupCells[group * dimension + position] = cell;
+        cellGroups[cell * 3 + kind] = group;
+        cellPositions[cell * 3 + kind] = position;
+    }
+
+    /**
+     * the character used for a value in compact grids: 1-9 then A, B, C, ... for the bigger puzzles
+     */
+    public static char symbolOf(int value) {
+        return (char) (value <= 9 ? '0' + value : 'A' + value - 10);
+    }
+
+    /**
+     * the inverse of symbolOf (lower-case letters allowed); 0 for the blanks ' ', '.', and '0'; -1 if not a symbol
+     */
+    public static int valueOf(char symbol) {
+        if (symbol == ' ' || symbol == '.' || symbol == '0') {
+            return 0;
+        }
+        if (symbol >= '1' && symbol <= '9') {
+            return symbol - '0';
+        }
+        if (symbol >= 'A' && symbol <= 'Z') {
+            return symbol - 'A' + 10;
+        }
+        if (symbol >= 'a' && symbol <= 'z') {
+            return symbol - 'a' + 10;
+        }
+        return -1;
+    }
+
+    public boolean isStandard() {
+        return this == STANDARD;
+    }
+
+    public int cellIndex(int row, int col) {
+        return row * dimension + col;
+    }
+
+    public int cellIndex(CellCoordinates coordinates) {
+        // coordinates are only checked against the largest board so make sure they're inside this one
+        CellCoordinates.assertValidCoordinate(coordinates.row, "row", dimension);
+        CellCoordinates.assertValidCoordinate(coordinates.col, "column", dimension);
+        return coordinates.row * dimension + coordinates.col;
+    }
+
+    public int rowOf(int cell) {
+        return cell / dimension;
+    }
+
+    public int columnOf(int cell) {
+        return cell % dimension;
+    }
+
+    /**
+     * @return the row, column, or block group (depending on kind) that contains the cell
+     */
+    public int groupOf(int cell, int kind) {
+        return cellGroups[cell * 3 + kind];
+    }
+
+    /**
+     * @return the position of the cell within its row, column, or block group (depending on kind)
+     */
+    public int positionOf(int cell, int kind) {
+        return cellPositions[cell * 3 + kind];
+    }
+
+    /**
+     * @return the cell at this position of the group
+     */
+    public int groupCell(int group, int position) {
+        return groupCells[group * dimension + position];
+    }
+
+    public int peer(int cell, int n) {
+        return peers[cell * peerCount + n];
+    }
+
+    public int rowGroup(int row) {
+        return row;
+    }
+
+    public int columnGroup(int col) {
+        return dimension + col;
+    }
+
+    public int blockGroup(int block) {
+        return 2 * dimension + block;
+    }
+
+    /**
+     * @return ROW, COLUMN, or BLOCK depending on what kind of group this is
+     */
+    public int kindOf(int group) {
+        return group / dimension;
+    }
+
+    @Override
+    public String toString() {
+        return dimension + "x" + dimension + " (blocks " + blockRows + "x" + blockCols + ")";
+    }
+}
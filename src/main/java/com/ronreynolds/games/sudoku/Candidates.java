@@ -0,0 +1,174 @@
+package com.ronreynolds.games.sudoku;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * static helpers for the bitmask form of a set of possible values; value v is stored in bit (v - 1) so an int can
+ * hold the possible values of any puzzle up to 32x32
+ * <p>
+ * to iterate the values of a mask without allocating anything:
+ * <pre>
+ *     for (int bits = mask; bits != 0; bits &amp;= bits - 1) {
+ *         int value = Candidates.lowest(bits);
+ *         ...
+ *     }
+ * </pre>
+ */
+public final class Candidates {
+    public static final int MAX_VALUES = Integer.SIZE;
+    public static final int NONE = 0;
+
+    private Candidates() {
+    }
+
+    /**
+     * @return a mask with every value from 1 to dimension set
+     */
+    public static int all(int dimension) {
+        if (dimension < 1 || dimension > MAX_VALUES) {
+            throw new IllegalArgumentException(
+                    String.format("dimension %d is outside the allowed range (1,%d)", dimension, MAX_VALUES));
+        }
+        return dimension == MAX_VALUES ? -1 : (1 << dimension) - 1;
+    }
+
+    /**
+     * @return the mask containing only this value
+     */
+    public static int bit(int value) {
+        return 1 << (value - 1);
+    }
+
+    public static boolean contains(int mask, int value) {
+        return (mask & bit(value)) != 0;
+    }
+
+    public static int count(int mask) {
+        return Integer.bitCount(mask);
+    }
+
+    public static boolean isSingle(int mask) {
+        return mask != 0 && (mask & (mask - 1)) == 0;
+    }
+
+    /**
+     * @return the smallest value in the mask or 0 if the mask is empty
+     */
+    public static int lowest(int mask) {
+        return mask == 0 ? 0 : Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * @return the next value larger than 'value' in the mask or 0 if there isn't one
+     */
+    public static int next(int mask, int value) {
+        return lowest(value >= MAX_VALUES ? 0 : mask & (-1 << value));
+    }
+
+    public static int of(int... values) {
+        int mask = NONE;
+        for (int value : values) {
+            mask |= bit(value);
+        }
+        return mask;
+    }
+
+    public static int of(Iterable<Integer> values) {
+        int mask = NONE;
+        for (int value : values) {
+            mask |= bit(value);
+        }
+        return mask;
+    }
+
+    /**
+     * a read-only Set view of a mask; the supplier is re-read on every call so the view follows the source of the mask
+     */
+    public static Set<Integer> asSet(IntSupplier mask) {
+        return new MaskSet(mask);
+    }
+
+    /**
+     * a read-only Set containing the values of this mask (as of now)
+     */
+    public static Set<Integer> asSet(int mask) {
+        return new MaskSet(() -> mask);
+    }
+
+    /**
+     * the values in the mask without separators (e.g., 0b100101 -> "136"); handy for compact display; values past 9
+     * are letters (see BoardLayout.symbolOf)
+     */
+    public static String toDigits(int mask) {
+        StringBuilder buf = new StringBuilder(count(mask));
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            buf.append(BoardLayout.symbolOf(lowest(bits)));
+        }
+        return buf.toString();
+    }
+
+    public static String toString(int mask) {
+        StringBuilder buf = new StringBuilder().append('[');
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            if (buf.length() > 1) {
+                buf.append(", ");
+            }
+            buf.append(lowest(bits));
+        }
+        return buf.append(']').toString();
+    }
+
+    // AbstractSet provides equals/hashCode/toString compatible with any other Set<Integer>
+    private static final class MaskSet extends AbstractSet<Integer> {
+        private final IntSupplier mask;
+
+        private MaskSet(IntSupplier mask) {
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Integer)) {
+                return false;
+            }
+            int value = (Integer) o;
+            return value >= 1 && value <= MAX_VALUES && Candidates.contains(mask.getAsInt(), value);
+        }
+
+        @Override
+        public int size() {
+            return count(mask.getAsInt());
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return mask.getAsInt() == 0;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<>() {
+                private int remaining = mask.getAsInt();
+
+                @Override
+                public boolean hasNext() {
+                    return remaining != 0;
+                }
+
+                @Override
+                public Integer next() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    int value = lowest(remaining);
+                    remaining &= remaining - 1;
+                    return value;
+                }
+            };
+        }
+    }
+}
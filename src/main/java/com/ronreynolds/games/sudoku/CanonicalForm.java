@@ -0,0 +1,94 @@
+package com.ronreynolds.games.sudoku;
+
+/**
+ * a puzzle's canonical key plus the transformation that maps the puzzle onto it (see PuzzleCanonicalizer); since every
+ * transformation keeps the rules intact, the solution of the canonical puzzle maps back to a solution of the original
+ */
+public final class CanonicalForm {
+    private final BoardLayout layout;
+    private final boolean transposed;
+    private final int[] cellMap;        // [canonical cell] -> original cell
+    private final int[] labels;         // [original value] -> canonical value (0 -> 0)
+    private final int[] values;         // [canonical value] -> original value (0 -> 0)
+    private final String key;
+
+    /**
+     * @param rowOrder    [canonical row] -> row (of the transposed grid if transposed)
+     * @param columnOrder [canonical column] -> column (ditto)
+     * @param labels      [value] -> canonical value
+     * @param original    the values of the original puzzle
+     */
+    CanonicalForm(BoardLayout layout, boolean transposed, int[] rowOrder, int[] columnOrder, int[] labels, int[] original) {
+        this.layout = layout;
+        this.transposed = transposed;
+        this.labels = labels;
+        this.values = new int[labels.length];
+        for (int value = 1; value < labels.length; ++value) {
+            values[labels[value]] = value;
+        }
+        this.cellMap = new int[layout.cellCount];
+        char[] grid = new char[layout.cellCount];
+        for (int row = 0; row < layout.dimension; ++row) {
+            for (int col = 0; col < layout.dimension; ++col) {
+                int cell = transposed
+                        ? layout.cellIndex(columnOrder[col], rowOrder[row])
+                        : layout.cellIndex(rowOrder[row], columnOrder[col]);
+                int canonicalCell = layout.cellIndex(row, col);
+                cellMap[canonicalCell] = cell;
+                int value = labels[original[cell]];
+                grid[canonicalCell] = value == 0 ? '.' : BoardLayout.symbolOf(value);
+            }
+        }
+        this.key = new String(grid);
+    }
+
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * the compact grid of the canonical puzzle ('.' for blank); the same for every puzzle that's equivalent to this one
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isTransposed() {
+        return transposed;
+    }
+
+    /**
+     * @return the cell of the original puzzle that the canonical cell came from
+     */
+    public int toOriginalCell(int canonicalCell) {
+        return cellMap[canonicalCell];
+    }
+
+    /**
+     * @param values [cell] -> value of a grid in the original orientation and labels (0 = blank)
+     * @return the same grid in the canonical orientation and labels
+     */
+    public int[] toCanonical(int[] values) {
+        int[] canonical = new int[cellMap.length];
+        for (int cell = 0; cell < cellMap.length; ++cell) {
+            canonical[cell] = labels[values[cellMap[cell]]];
+        }
+        return canonical;
+    }
+
+    /**
+     * the inverse of toCanonical (e.g., to map a cached solution of the canonical puzzle back onto this one)
+     */
+    public int[] toOriginal(int[] canonical) {
+        int[] original = new int[cellMap.length];
+        for (int cell = 0; cell < cellMap.length; ++cell) {
+            original[cellMap[cell]] = values[canonical[cell]];
+        }
+        return original;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
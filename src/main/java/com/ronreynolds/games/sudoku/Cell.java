@@ -2,8 +2,6 @@ package com.ronreynolds.games.sudoku;
 
 import lombok.NonNull;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -11,29 +9,60 @@ import java.util.Set;
  */
 public class Cell implements Comparable<Cell> {
     private final CellCoordinates coordinates;
-    private final Set<Integer> possibleValues = Sudoku.newAllValuesSet();
-    private Integer value;
+    private final int dimension;    // the number of values of the puzzle
+    // bitmask of the values still possible for this cell (see Candidates)
+    private int possibleValues;
+    // a live read-only view of possibleValues; created once so getPossibleValues() doesn't allocate
+    private final Set<Integer> possibleValuesView = Candidates.asSet(() -> possibleValues);
+    private int value;  // 0 means unknown
+    // the groups (row, column, block) this cell belongs to and its position in each; they index our possible values
+    private final CellGroup[] groups = new CellGroup[3];
+    private final int[] groupPositions = new int[3];
+    private int groupCount;
+    // where (if anywhere) our changes are recorded so they can be undone; see SudokuPuzzle.mark()
+    private Trail trail;
+    private int index;
 
     Cell(int row, int col) {
         this(CellCoordinates.of(row, col));
     }
 
     Cell(@NonNull CellCoordinates coordinates) {
+        this(coordinates, Sudoku.dimension);
+    }
+
+    /**
+     * @param dimension the number of values (and the size of each group) of the puzzle this cell belongs to
+     */
+    Cell(@NonNull CellCoordinates coordinates, int dimension) {
         this.coordinates = coordinates;
+        this.dimension = dimension;
+        this.possibleValues = Candidates.all(dimension);
     }
 
     public void setValue(int value) {
-        this.value = assertValidValue(value);
-        possibleValues.clear(); // once we set the value there are no more possibles
+        assertValidValue(value, dimension);
+        if (trail != null) {
+            trail.recordValue(index, this.value, value);
+        }
+        this.value = value;
+        updatePossibleValues(Candidates.NONE); // once we set the value there are no more possibles
     }
 
     public void setPossibleValues(Set<Integer> values) {
-        possibleValues.clear();
-        possibleValues.addAll(values);
+        setPossibleValuesMask(Candidates.of(values));
     }
 
-    public boolean hasPossibleValue(Integer possibleValue) {
-        return possibleValues.contains(possibleValue);
+    /**
+     * replace the possible values of this cell with those in the mask
+     * @return if the possible values changed
+     */
+    public boolean setPossibleValuesMask(int mask) {
+        return updatePossibleValues(mask);
+    }
+
+    public boolean hasPossibleValue(int possibleValue) {
+        return Candidates.contains(possibleValues, possibleValue);
     }
 
     /**
@@ -41,8 +70,61 @@ public class Cell implements Comparable<Cell> {
      * @param value the value to remove from the set of possibles
      * @return if the value was removed (i.e., if it was in the set before and it's not now)
      */
-    public boolean removePossibleValue(Integer value) {
-        return possibleValues.remove(value);
+    public boolean removePossibleValue(int value) {
+        return updatePossibleValues(possibleValues & ~Candidates.bit(value));
+    }
+
+    /**
+     * called by CellGroup when this cell is placed in it so the group's value index can follow our possible values
+     */
+    void joinGroup(CellGroup group, int position) {
+        if (groupCount == groups.length) {
+            throw new IllegalStateException(coordinates + " is already in " + groupCount + " groups");
+        }
+        groups[groupCount] = group;
+        groupPositions[groupCount++] = position;
+    }
+
+    /**
+     * called by SudokuPuzzle so every change to this cell is recorded in its trail
+     */
+    void attachTrail(Trail trail, int index) {
+        this.trail = trail;
+        this.index = index;
+    }
+
+    /**
+     * undo support; puts back an earlier value (0 = unknown) without recording it
+     */
+    void restoreValue(int value) {
+        this.value = value;
+    }
+
+    /**
+     * undo support; puts back an earlier mask of possible values without recording it
+     */
+    void restorePossibleValues(int mask) {
+        notifyGroups(possibleValues, mask);
+    }
+
+    // every change to possibleValues goes through here so our groups' indexes never get out of sync
+    private boolean updatePossibleValues(int mask) {
+        int before = possibleValues;
+        if (before == mask) {
+            return false;
+        }
+        if (trail != null) {
+            trail.recordPossibles(index, before, mask);
+        }
+        notifyGroups(before, mask);
+        return true;
+    }
+
+    private void notifyGroups(int before, int mask) {
+        possibleValues = mask;
+        for (int x = 0; x < groupCount; ++x) {
+            groups[x].possibleValuesChanged(groupPositions[x], before, mask);
+        }
     }
 
     public CellCoordinates getCoordinates() {
@@ -50,25 +132,36 @@ public class Cell implements Comparable<Cell> {
     }
 
     public Set<Integer> getPossibleValues() {
-        // in general it's a bad idea to expose references to mutable internal data
-        return Collections.unmodifiableSet(possibleValues);
+        // in general it's a bad idea to expose references to mutable internal data (this view is read-only)
+        return possibleValuesView;
+    }
+
+    public int getPossibleValuesMask() {
+        return possibleValues;
     }
 
     public Integer getValue() {
+        return value == 0 ? null : value;
+    }
+
+    /**
+     * @return the value or 0 if unknown (avoids the null check and boxing of getValue())
+     */
+    int getValueOrZero() {
         return value;
     }
 
     @Override
     public String toString() {
-        return coordinates + " value:" + value + " possibles:" + possibleValues;
+        return coordinates + " value:" + getValue() + " possibles:" + Candidates.toString(possibleValues);
     }
 
     public boolean hasValue() {
-        return value != null;
+        return value != 0;
     }
 
     public int getPossibleCount() {
-        return possibleValues.size();
+        return Candidates.count(possibleValues);
     }
 
     @Override
@@ -78,9 +171,13 @@ public class Cell implements Comparable<Cell> {
     }
 
     public static int assertValidValue(int val) {
-        if (val < 1 || val > Sudoku.dimension) {
+        return assertValidValue(val, Sudoku.dimension);
+    }
+
+    public static int assertValidValue(int val, int dimension) {
+        if (val < 1 || val > dimension) {
             throw new IllegalArgumentException(
-                    String.format("value %d is outside the allowed range (1,%d)", val, Sudoku.dimension));
+                    String.format("value %d is outside the allowed range (1,%d)", val, dimension));
         }
         return val;
     }
@@ -3,13 +3,18 @@ package com.ronreynolds.games.sudoku;
 import java.util.Objects;
 
 /**
- * this class represents the coordinates of a cell in a 9x9 sudoku puzzle
+ * this class represents the coordinates of a cell in a sudoku puzzle of any size (up to Candidates.MAX_VALUES); the
+ * puzzle checks that they're inside its own grid
  */
 public class CellCoordinates implements Comparable<CellCoordinates> {
     public static int assertValidCoordinate(int value, String field) {
-        if (value < 0 || value >= Sudoku.dimension) {
+        return assertValidCoordinate(value, field, Candidates.MAX_VALUES);
+    }
+
+    public static int assertValidCoordinate(int value, String field, int dimension) {
+        if (value < 0 || value >= dimension) {
             throw new IllegalArgumentException(
-                    String.format("%d for %s must be between 0 and %d", value, field, Sudoku.dimension - 1));
+                    String.format("%d for %s must be between 0 and %d", value, field, dimension - 1));
         }
         return value;
     }
@@ -1,19 +1,33 @@
 package com.ronreynolds.games.sudoku;
 
-import lombok.extern.slf4j.Slf4j;
-
 import java.util.*;
 import java.util.function.Consumer;
 
 /**
- * a collection of 9 cells; whether they're in a row, column, or block depends on how they're referenced
+ * a collection of dimension (usually 9) cells; whether they're in a row, column, or block depends on how they're referenced
  */
-@Slf4j
 public class CellGroup implements Iterable<Cell> {
     // the cells of this group (row, column, or block)
-    private final Cell[] cells = new Cell[Sudoku.dimension];
+    private final Cell[] cells;
     // the possible values of this group (union of possible values of all group cells)
-    private final Set<Integer> possibleValues = Sudoku.newAllValuesSet();
+    private int possibleValues = Candidates.NONE;
+    // [value] -> mask of the positions (bit x = getCell(x)) of the cells for which value is possible;
+    // kept up to date by the cells themselves (see possibleValuesChanged) so reading it is O(1)
+    private final int[] positionsByValue;
+    // changes on every update of positionsByValue (see SudokuBoard.getGroupVersion)
+    private int version;
+
+    public CellGroup() {
+        this(Sudoku.dimension);
+    }
+
+    /**
+     * @param dimension the number of cells (and values) of the group
+     */
+    public CellGroup(int dimension) {
+        this.cells = new Cell[dimension];
+        this.positionsByValue = new int[dimension + 1];
+    }
 
     /**
      * adds a cell in the next unoccupied spot (useful for blocks where order doesn't matter)
@@ -26,7 +40,7 @@ public class CellGroup implements Iterable<Cell> {
         for (int x = 0; x < cells.length; ++x) {
             if (cells[x] == null) {
                 cells[x] = cell;
-                updatePossibleValues(cell);
+                join(x, cell);
                 return;
             }
         }
@@ -41,18 +55,18 @@ public class CellGroup implements Iterable<Cell> {
      * @throws IllegalStateException if this method attempts to overwrite an existing cell
      */
     public void setCell(int x, Cell cell) {
-        if (cells[CellCoordinates.assertValidCoordinate(x, "x")] != null) {
+        if (cells[CellCoordinates.assertValidCoordinate(x, "x", cells.length)] != null) {
             throw new IllegalStateException("attempt to overwrite cell at " + x);
         }
         cells[x] = cell;
-        updatePossibleValues(cell);
+        join(x, cell);
     }
 
     /**
      * return the 'x'th member of the group (what x means depends on how this group is referenced)
      */
     public Cell getCell(int x) {
-        return cells[CellCoordinates.assertValidCoordinate(x, "x")];
+        return cells[CellCoordinates.assertValidCoordinate(x, "x", cells.length)];
     }
 
     /**
@@ -60,23 +74,72 @@ public class CellGroup implements Iterable<Cell> {
      * @param value the value to remove
      * @return true if the value was removed (i.e., was in the possible set before and isn't now); false otherwise
      */
-    public boolean removePossibleValue(Integer value) {
-        boolean valueRemoved = possibleValues.remove(value);
-        for (Cell cell : cells) {
-            valueRemoved |= cell.removePossibleValue(value);
+    public boolean removePossibleValue(int value) {
+        boolean valueRemoved = false;
+        for (int bits = positionsByValue[value]; bits != 0; bits &= bits - 1) {
+            valueRemoved |= cells[Integer.numberOfTrailingZeros(bits)].removePossibleValue(value);
         }
         return valueRemoved;
     }
 
-    private void updatePossibleValues(Cell cell) {
+    /**
+     * @return the mask of positions (bit x = getCell(x)) of the cells that have this value as a possible
+     */
+    public int getPositions(int value) {
+        return positionsByValue[value];
+    }
+
+    /**
+     * @return the number of cells in this group that have this value as a possible
+     */
+    public int getPossibleCount(int value) {
+        return Integer.bitCount(positionsByValue[value]);
+    }
+
+    /**
+     * @return a counter that changes whenever the possible values of any cell in this group change
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    private void join(int x, Cell cell) {
+        cell.joinGroup(this, x);
+        possibleValuesChanged(x, Candidates.NONE, cell.getPossibleValuesMask());
         if (cell.hasValue()) {
             removePossibleValue(cell.getValue());
         }
     }
 
+    /**
+     * called by the cell at position x whenever its possible values change
+     */
+    void possibleValuesChanged(int x, int before, int after) {
+        ++version;
+        int positionBit = 1 << x;
+        for (int removed = before & ~after; removed != 0; removed &= removed - 1) {
+            int value = Candidates.lowest(removed);
+            if ((positionsByValue[value] &= ~positionBit) == 0) {
+                possibleValues &= ~Candidates.bit(value);   // no cell left for which this value is possible
+            }
+        }
+        for (int added = after & ~before; added != 0; added &= added - 1) {
+            int value = Candidates.lowest(added);
+            positionsByValue[value] |= positionBit;
+            possibleValues |= Candidates.bit(value);
+        }
+    }
+
     @Override
     public String toString() {
-        return super.toString() + "\n\tcells:" + Arrays.toString(cells) + "\n\tpossibles:" + possibleValues;
+        return super.toString() + "\n\tcells:" + Arrays.toString(cells) + "\n\tpossibles:" + Candidates.toString(possibleValues);
+    }
+
+    /**
+     * @return the union of the possible values of this group's cells as a bitmask (see Candidates)
+     */
+    public int getPossibleValuesMask() {
+        return possibleValues;
     }
 
     /**
@@ -105,29 +168,18 @@ public class CellGroup implements Iterable<Cell> {
 
     /**
      * create and return a map containing an entry for each possible value and the cells that have that possible value;
-     * if we wanted to boost performance maintaining this map as a field would be useful but a little complicated
+     * built from the position index so it's always in sync with the cells (solvers should use getPositions instead)
      */
     public Map<Integer, List<Cell>> getPossibleToCellMap() {
         Map<Integer, List<Cell>> possibleValuesMap = new HashMap<>();
-        for (Integer possibleValue : possibleValues) {
-            List<Cell> cellsWithPossibleValue = getCellsWithPossibleValue(possibleValue);
-            if (!cellsWithPossibleValue.isEmpty()) {
-                possibleValuesMap.put(possibleValue, cellsWithPossibleValue);
-            } else {
-                // FIXME - this might be happening and we just don't know it (i.e., group-level possibles might not help)
-                log.warn("possibleValues out of sync with cells - {} has no cells for which it's possible", possibleValue);
+        for (int bits = possibleValues; bits != 0; bits &= bits - 1) {
+            int possibleValue = Candidates.lowest(bits);
+            List<Cell> cellsWithPossibleValue = new ArrayList<>(getPossibleCount(possibleValue));
+            for (int positions = positionsByValue[possibleValue]; positions != 0; positions &= positions - 1) {
+                cellsWithPossibleValue.add(cells[Integer.numberOfTrailingZeros(positions)]);
             }
+            possibleValuesMap.put(possibleValue, cellsWithPossibleValue);
         }
         return possibleValuesMap;
     }
-
-    private List<Cell> getCellsWithPossibleValue(Integer possibleValue) {
-        List<Cell> cellsWithPossibleValue = new ArrayList<>();
-        for (Cell cell : cells) {
-            if (cell.hasPossibleValue(possibleValue)) {
-                cellsWithPossibleValue.add(cell);
-            }
-        }
-        return cellsWithPossibleValue;
-    }
 }
@@ -0,0 +1,404 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * the chain solvers (SIMPLE_COLORING, X_CHAIN, XY_CHAIN): each follows implications from candidate to candidate ("if
+ * this cell isn't v then that one is") breadth-first over the StrongLinkGraph and removes whatever contradicts both
+ * ends of a chain
+ * <p>
+ * a chain can cross the whole board so these look at all of it whichever group they're applied to; each thread keeps
+ * one ChainSearch (the graph of the board it last looked at plus the work arrays of the searches) and remembers the
+ * versions of the graph in which a search found nothing, so only the values (for XY_CHAIN, the board) that changed
+ * since then are searched again; chains are at most MAX_DEPTH links (XY_CHAIN: cells) long and nothing is allocated
+ * once a thread's ChainSearch exists (but for a weak reference to each new board; a thread's search doesn't keep its
+ * last board alive)
+ */
+@Slf4j
+final class ChainSearch {
+    static final int MAX_DEPTH = 8;
+    private static final int NEVER = -1;    // no real version is negative
+    private static final ThreadLocal<ChainSearch> searches = new ThreadLocal<>();
+
+    private final BoardLayout layout;
+    private final StrongLinkGraph graph;
+    private final int[] coloredAt;      // [value - 1] -> value version when coloring last found nothing
+    private final int[] xChainedAt;     // [value - 1] -> value version when X_CHAIN last found nothing
+    private int xyChainedAt = NEVER;    // graph version when XY_CHAIN last found nothing
+
+    // work arrays; a state is a cell (coloring), cell * 2 + is-the-value (X_CHAIN) or cell * dimension + value - 1
+    // (XY_CHAIN) and it's been seen in this search if its seen entry is the current stamp
+    private final int[] queue;
+    private final int[] depths;
+    private final int[] seen;
+    private final int[] colors;         // [cell] -> component * 2 + color (coloring only)
+    private final int[] removals;       // cells to remove the value from (each is marked with the stamp)
+    private final int[] marked;
+    private final int[] links;          // [linksFrom[cell]..linksTo[cell]) -> the cell's peers in the current search
+    private final int[] linksFrom;
+    private final int[] linksTo;
+    private int stamp;
+
+    private ChainSearch(BoardLayout layout) {
+        this.layout = layout;
+        this.graph = new StrongLinkGraph(layout);
+        this.coloredAt = new int[layout.dimension];
+        this.xChainedAt = new int[layout.dimension];
+        Arrays.fill(coloredAt, NEVER);
+        Arrays.fill(xChainedAt, NEVER);
+        int states = layout.cellCount * Math.max(2, layout.dimension);
+        this.queue = new int[states];
+        this.depths = new int[states];
+        this.seen = new int[states];
+        this.colors = new int[layout.cellCount];
+        this.removals = new int[layout.cellCount];
+        this.marked = new int[layout.cellCount];
+        this.links = new int[layout.cellCount * layout.peerCount];
+        this.linksFrom = new int[layout.cellCount];
+        this.linksTo = new int[layout.cellCount];
+    }
+
+    /**
+     * this thread's ChainSearch with its graph brought up to date with board
+     */
+    static ChainSearch of(SudokuBoard board) {
+        ChainSearch search = searches.get();
+        if (search == null || search.layout != board.getLayout()) {
+            search = new ChainSearch(board.getLayout());
+            searches.set(search);
+        }
+        search.graph.refresh(board);
+        return search;
+    }
+
+    /**
+     * color the cells of each chain of strong links of a value alternately; one of the colors is the value's cells, so
+     * if two cells of one color see each other that color is wrong, and a cell that sees both colors can't be the value
+     */
+    boolean simpleColoring(SudokuBoard board) {
+        for (int value = 1; value <= layout.dimension; ++value) {
+            if (coloredAt[value - 1] == graph.getValueVersion(value)) {
+                continue;
+            }
+            if (simpleColoring(board, value)) {
+                return true;
+            }
+            coloredAt[value - 1] = graph.getValueVersion(value);
+        }
+        return false;
+    }
+
+    private boolean simpleColoring(SudokuBoard board, int value) {
+        int bit = Candidates.bit(value);
+        int cellCount = layout.cellCount;
+        newStamp();
+        int component = 0;
+        for (int start = 0; start < cellCount; ++start) {
+            if (seen[start] == stamp || (board.getCandidates(start) & bit) == 0 || !graph.hasPartner(value, start)) {
+                continue;
+            }
+            // color the component breadth-first
+            int head = 0;
+            int tail = 0;
+            seen[start] = stamp;
+            colors[start] = component * 2;
+            queue[tail++] = start;
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int kind = BoardLayout.ROW; kind <= BoardLayout.BLOCK; ++kind) {
+                    int partner = graph.partner(value, cell, kind);
+                    if (partner != StrongLinkGraph.NONE && seen[partner] != stamp) {
+                        seen[partner] = stamp;
+                        colors[partner] = colors[cell] ^ 1;
+                        queue[tail++] = partner;
+                    }
+                }
+            }
+            int count = 0;
+            int wrong = findWrongColor(component, tail);
+            if (wrong >= 0) {
+                for (int x = 0; x < tail; ++x) {
+                    if (colors[queue[x]] == wrong) {
+                        removals[count++] = queue[x];
+                    }
+                }
+            } else {
+                // cells outside the component that see both of its colors (depths[cell] is component * 4 + the
+                // colors it sees if it's marked)
+                for (int x = 0; x < tail; ++x) {
+                    int color = 1 << (colors[queue[x]] & 1);
+                    for (int n = 0; n < layout.peerCount; ++n) {
+                        int peer = layout.peer(queue[x], n);
+                        if (marked[peer] != stamp || depths[peer] >> 2 != component) {
+                            marked[peer] = stamp;
+                            depths[peer] = component << 2;
+                        }
+                        int sees = depths[peer] | color;
+                        if (sees != depths[peer]) {
+                            depths[peer] = sees;
+                            if ((sees & 3) == 3 && (board.getCandidates(peer) & bit) != 0
+                                    && (seen[peer] != stamp || colors[peer] >> 1 != component)) {
+                                removals[count++] = peer;
+                            }
+                        }
+                    }
+                }
+            }
+            if (remove(board, value, count)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("coloring of {} from cell {} removed it from {} cells", value, start, count);
+                }
+                return true;
+            }
+            ++component;
+        }
+        return false;
+    }
+
+    // the color (component * 2 + 0 or 1) of the first queue[0..size) cells that has two cells seeing each other or -1
+    private int findWrongColor(int component, int size) {
+        for (int x = 0; x < size; ++x) {
+            int cell = queue[x];
+            for (int n = 0; n < layout.peerCount; ++n) {
+                int peer = layout.peer(cell, n);
+                if (seen[peer] == stamp && colors[peer] == colors[cell]) {
+                    return colors[cell];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * alternate strong and weak links of one value: if cell A isn't the value then (through the chain) cell E is, so
+     * either way any cell that sees both A and E isn't (and if the chain leads back to A being the value it is)
+     */
+    boolean xChain(SudokuBoard board) {
+        for (int value = 1; value <= layout.dimension; ++value) {
+            if (xChainedAt[value - 1] == graph.getValueVersion(value)) {
+                continue;
+            }
+            int bit = Candidates.bit(value);
+            linkStrongCells(board, value);
+            for (int start = 0; start < layout.cellCount; ++start) {
+                if ((board.getCandidates(start) & bit) != 0 && graph.hasPartner(value, start)
+                        && xChain(board, value, start)) {
+                    return true;
+                }
+            }
+            xChainedAt[value - 1] = graph.getValueVersion(value);
+        }
+        return false;
+    }
+
+    private boolean xChain(SudokuBoard board, int value, int start) {
+        int bit = Candidates.bit(value);
+        newStamp();
+        int head = 0;
+        int tail = 0;
+        int count = 0;
+        seen[start * 2] = stamp;
+        depths[start * 2] = 0;
+        queue[tail++] = start * 2;  // start isn't the value
+        while (head < tail) {
+            int state = queue[head++];
+            int cell = state >> 1;
+            int depth = depths[state];
+            if (depth == MAX_DEPTH) {
+                continue;
+            }
+            if ((state & 1) == 0) {
+                // cell isn't the value so its strong partners are
+                for (int kind = BoardLayout.ROW; kind <= BoardLayout.BLOCK; ++kind) {
+                    int partner = graph.partner(value, cell, kind);
+                    if (partner == StrongLinkGraph.NONE || seen[partner * 2 + 1] == stamp) {
+                        continue;
+                    }
+                    if (partner == start) {
+                        // start not being the value means it is; so it is
+                        board.setValue(start, value);
+                        if (log.isDebugEnabled()) {
+                            log.debug("x-chain of {} contradicts cell {} not being it", value, start);
+                        }
+                        return true;
+                    }
+                    seen[partner * 2 + 1] = stamp;
+                    depths[partner * 2 + 1] = depth + 1;
+                    queue[tail++] = partner * 2 + 1;
+                    count = collectSeenByBoth(board, bit, start, partner, count);
+                }
+            } else {
+                // cell is the value so its peers aren't
+                for (int n = linksFrom[cell]; n < linksTo[cell]; ++n) {
+                    int peer = links[n];
+                    if (seen[peer * 2] != stamp) {
+                        seen[peer * 2] = stamp;
+                        depths[peer * 2] = depth + 1;
+                        queue[tail++] = peer * 2;
+                    }
+                }
+            }
+        }
+        if (remove(board, value, count)) {
+            if (log.isDebugEnabled()) {
+                log.debug("x-chains of {} from cell {} removed it from {} cells", value, start, count);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * chains of cells with 2 possible values, each sharing a value with the next: if cell A isn't x it's its other value
+     * so the next cell isn't that one and so on; if that makes cell E x then any cell that sees both A and E isn't
+     */
+    boolean xyChain(SudokuBoard board) {
+        if (xyChainedAt == graph.getVersion()) {
+            return false;
+        }
+        linkBivalueCells(board);
+        for (int start = 0; start < layout.cellCount; ++start) {
+            int candidates = board.getCandidates(start);
+            if (Integer.bitCount(candidates) != 2) {
+                continue;
+            }
+            int low = Candidates.lowest(candidates);
+            int high = Candidates.next(candidates, low);
+            if (xyChain(board, start, low, high) || xyChain(board, start, high, low)) {
+                return true;
+            }
+        }
+        xyChainedAt = graph.getVersion();
+        return false;
+    }
+
+    // start isn't value so it's other
+    private boolean xyChain(SudokuBoard board, int start, int value, int other) {
+        int dimension = layout.dimension;
+        int bit = Candidates.bit(value);
+        newStamp();
+        int head = 0;
+        int tail = 0;
+        int count = 0;
+        int first = start * dimension + other - 1;
+        seen[first] = stamp;
+        depths[first] = 0;
+        queue[tail++] = first;
+        while (head < tail) {
+            int state = queue[head++];
+            int cell = state / dimension;
+            int is = state % dimension + 1;
+            int depth = depths[state];
+            if (depth == MAX_DEPTH) {
+                continue;
+            }
+            // cell is "is" so peers with only "is" and another value are that other value
+            int isBit = Candidates.bit(is);
+            for (int n = linksFrom[cell]; n < linksTo[cell]; ++n) {
+                int peer = links[n];
+                int candidates = board.getCandidates(peer);
+                if ((candidates & isBit) == 0) {
+                    continue;
+                }
+                int then = Candidates.lowest(candidates & ~isBit);
+                int next = peer * dimension + then - 1;
+                if (seen[next] == stamp) {
+                    continue;
+                }
+                if (then == value) {
+                    if (peer == start) {
+                        board.setValue(start, value);
+                        if (log.isDebugEnabled()) {
+                            log.debug("xy-chain contradicts cell {} not being {}", start, value);
+                        }
+                        return true;
+                    }
+                    count = collectSeenByBoth(board, bit, start, peer, count);
+                }
+                seen[next] = stamp;
+                depths[next] = depth + 1;
+                queue[tail++] = next;
+            }
+        }
+        if (remove(board, value, count)) {
+            if (log.isDebugEnabled()) {
+                log.debug("xy-chains from cell {} removed {} from {} cells", start, value, count);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // links[linksFrom[cell]..linksTo[cell]) = the peers of each cell with a strong link for value that also have one
+    // (a weak link to a cell without a strong link can't go any further)
+    private void linkStrongCells(SudokuBoard board, int value) {
+        int bit = Candidates.bit(value);
+        int count = 0;
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            linksFrom[cell] = count;
+            if ((board.getCandidates(cell) & bit) != 0 && graph.hasPartner(value, cell)) {
+                for (int n = 0; n < layout.peerCount; ++n) {
+                    int peer = layout.peer(cell, n);
+                    if ((board.getCandidates(peer) & bit) != 0 && graph.hasPartner(value, peer)) {
+                        links[count++] = peer;
+                    }
+                }
+            }
+            linksTo[cell] = count;
+        }
+    }
+
+    // links[linksFrom[cell]..linksTo[cell]) = the peers of each 2-value cell with 2 values, one of them in common
+    private void linkBivalueCells(SudokuBoard board) {
+        int count = 0;
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            linksFrom[cell] = count;
+            int candidates = board.getCandidates(cell);
+            if (Integer.bitCount(candidates) == 2) {
+                for (int n = 0; n < layout.peerCount; ++n) {
+                    int peer = layout.peer(cell, n);
+                    int others = board.getCandidates(peer);
+                    if (Integer.bitCount(others) == 2 && (others & candidates) != 0) {
+                        links[count++] = peer;
+                    }
+                }
+            }
+            linksTo[cell] = count;
+        }
+    }
+
+    // add the cells with bit that see both a and b (and aren't either) to removals[count..)
+    private int collectSeenByBoth(SudokuBoard board, int bit, int a, int b, int count) {
+        for (int n = 0; n < layout.peerCount; ++n) {
+            int cell = layout.peer(a, n);
+            if (cell != b && marked[cell] != stamp && (board.getCandidates(cell) & bit) != 0 && sees(cell, b)) {
+                marked[cell] = stamp;
+                removals[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    private boolean sees(int a, int b) {
+        return layout.rowOf(a) == layout.rowOf(b) || layout.columnOf(a) == layout.columnOf(b)
+                || layout.groupOf(a, BoardLayout.BLOCK) == layout.groupOf(b, BoardLayout.BLOCK);
+    }
+
+    private boolean remove(SudokuBoard board, int value, int count) {
+        boolean changed = false;
+        for (int x = 0; x < count; ++x) {
+            changed |= board.removeCandidate(removals[x], value);
+        }
+        return changed;
+    }
+
+    private void newStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(marked, 0);
+            stamp = 1;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.ronreynolds.games.sudoku;
+
+/**
+ * Knuth's Algorithm X with Dancing Links over the exact-cover form of a board: each (cell, value) choice is a matrix
+ * row covering 4 constraints (the cell has a value; the value is in the row, the column, and the block)
+ * <p>
+ * the matrix only contains the constraints not already satisfied by the board's values and the choices still possible
+ * for its unsolved cells; the links are parallel int arrays (node 0 is the root, 1..columnCount are the column
+ * headers) so nothing is allocated once the matrix is built; works with any BoardLayout
+ */
+public class DancingLinks {
+    private static final int ROOT = 0;
+
+    private final BoardLayout layout;
+    private final int[] givenValues;    // [cell] -> value from the board (0 = to be found)
+    private final int columnCount;
+
+    // the links; indexed by node
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;         // column header of the node
+    private final int[] choice;         // cell * dimension + (value - 1) of the node's row
+    private final int[] size;           // [column] -> number of nodes in it
+    private int nodeCount;
+
+    private final int[] partial;        // nodes chosen so far (one per depth)
+    private final int[] solution;       // [cell] -> value of the first solution found
+    private int solutionCount;
+    private int maxSolutions;
+    private SolveBudget budget;         // null if there's no limit
+
+    public DancingLinks(SudokuBoard board) {
+        this.layout = board.getLayout();
+        int dimension = layout.dimension;
+        int cellCount = layout.cellCount;
+        givenValues = new int[cellCount];
+        solution = new int[cellCount];
+
+        // constraint c of kind k (cell, row-value, column-value, block-value) -> column id (0 = already satisfied)
+        int[] columnIds = new int[4 * cellCount];
+        int rowCount = 0;
+        int columns = 0;
+        for (int cell = 0; cell < cellCount; ++cell) {
+            int value = board.getValue(cell);
+            givenValues[cell] = value;
+            if (value == 0) {
+                rowCount += Candidates.count(board.getCandidates(cell));
+            } else {
+                for (int constraint : constraintsOf(cell, value)) {
+                    columnIds[constraint] = -1;     // satisfied; no column needed
+                }
+            }
+        }
+        for (int constraint = 0; constraint < columnIds.length; ++constraint) {
+            columnIds[constraint] = columnIds[constraint] == -1 ? 0 : ++columns;
+        }
+        this.columnCount = columns;
+
+        int capacity = 1 + columnCount + 4 * rowCount;
+        left = new int[capacity];
+        right = new int[capacity];
+        up = new int[capacity];
+        down = new int[capacity];
+        column = new int[capacity];
+        choice = new int[capacity];
+        size = new int[columnCount + 1];
+        partial = new int[cellCount];
+
+        // root + column headers in a circular list
+        for (int node = 0; node <= columnCount; ++node) {
+            left[node] = node == 0 ? columnCount : node - 1;
+            right[node] = node == columnCount ? 0 : node + 1;
+            up[node] = node;
+            down[node] = node;
+            column[node] = node;
+        }
+        nodeCount = columnCount + 1;
+
+        for (int cell = 0; cell < cellCount; ++cell) {
+            if (givenValues[cell] != 0) {
+                continue;
+            }
+            for (int bits = board.getCandidates(cell); bits != 0; bits &= bits - 1) {
+                int value = Candidates.lowest(bits);
+                int first = -1;
+                for (int constraint : constraintsOf(cell, value)) {
+                    int header = columnIds[constraint];
+                    if (header == 0) {
+                        // a candidate that conflicts with a given value; the board's possibles should prevent this
+                        throw new IllegalArgumentException(
+                                String.format("value %d of cell %d conflicts with a known value", value, cell));
+                    }
+                    int node = nodeCount++;
+                    choice[node] = cell * dimension + value - 1;
+                    column[node] = header;
+                    // append to the bottom of the column
+                    up[node] = up[header];
+                    down[node] = header;
+                    down[up[header]] = node;
+                    up[header] = node;
+                    ++size[header];
+                    // append to the end of the row
+                    if (first < 0) {
+                        first = node;
+                        left[node] = node;
+                        right[node] = node;
+                    } else {
+                        left[node] = left[first];
+                        right[node] = first;
+                        right[left[first]] = node;
+                        left[first] = node;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * search for solutions, stopping as soon as maxSolutions have been found
+     *
+     * @return the number of solutions found (never more than maxSolutions)
+     */
+    public int solve(int maxSolutions) {
+        if (maxSolutions < 1) {
+            throw new IllegalArgumentException("maxSolutions must be at least 1 - " + maxSolutions);
+        }
+        this.maxSolutions = maxSolutions;
+        this.solutionCount = 0;
+        search(0);
+        return solutionCount;
+    }
+
+    /**
+     * spend a step of budget at every node of the search and give up (as if no more solutions were wanted) once it
+     * runs out; null for no limit
+     */
+    public void setBudget(SolveBudget budget) {
+        this.budget = budget;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * write the first solution found by solve into the board (which should be the one the matrix was built from)
+     *
+     * @return false if no solution was found
+     */
+    public boolean copySolutionTo(SudokuBoard board) {
+        if (solutionCount == 0) {
+            return false;
+        }
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            if (board.getValue(cell) == 0) {
+                board.setValue(cell, solution[cell]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of the cell in the first solution found (0 if no solution was found)
+     */
+    public int getSolutionValue(int cell) {
+        return solutionCount == 0 ? 0 : solution[cell];
+    }
+
+    // returns true once we have as many solutions as we wanted (so every level stops searching)
+    private boolean search(int depth) {
+        if (budget != null && !budget.step()) {
+            return true;
+        }
+        if (right[ROOT] == ROOT) {
+            if (solutionCount++ == 0) {
+                recordSolution(depth);
+            }
+            return solutionCount >= maxSolutions;
+        }
+        // choose the column with the fewest rows (Knuth's S heuristic)
+        int best = right[ROOT];
+        for (int header = right[best]; header != ROOT && size[best] > 1; header = right[header]) {
+            if (size[header] < size[best]) {
+                best = header;
+            }
+        }
+        if (size[best] == 0) {
+            return false;   // a constraint nothing can satisfy
+        }
+        cover(best);
+        boolean done = false;
+        for (int row = down[best]; row != best && !done; row = down[row]) {
+            partial[depth] = row;
+            for (int node = right[row]; node != row; node = right[node]) {
+                cover(column[node]);
+            }
+            done = search(depth + 1);
+            for (int node = left[row]; node != row; node = left[node]) {
+                uncover(column[node]);
+            }
+        }
+        uncover(best);
+        return done;
+    }
+
+    private void recordSolution(int depth) {
+        System.arraycopy(givenValues, 0, solution, 0, solution.length);
+        for (int x = 0; x < depth; ++x) {
+            int cellValue = choice[partial[x]];
+            solution[cellValue / layout.dimension] = cellValue % layout.dimension + 1;
+        }
+    }
+
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int row = down[header]; row != header; row = down[row]) {
+            for (int node = right[row]; node != row; node = right[node]) {
+                down[up[node]] = down[node];
+                up[down[node]] = up[node];
+                --size[column[node]];
+            }
+        }
+    }
+
+    private void uncover(int header) {
+        for (int row = up[header]; row != header; row = up[row]) {
+            for (int node = left[row]; node != row; node = left[node]) {
+                ++size[column[node]];
+                down[up[node]] = node;
+                up[down[node]] = node;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+
+    // the 4 constraints (as indexes into 4 blocks of cellCount) satisfied by putting value in cell
+    private int[] constraintsOf(int cell, int value) {
+        int dimension = layout.dimension;
+        int cellCount = layout.cellCount;
+        int v = value - 1;
+        return new int[]{
+                cell,
+                cellCount + layout.rowOf(cell) * dimension + v,
+                2 * cellCount + layout.columnOf(cell) * dimension + v,
+                3 * cellCount + (layout.groupOf(cell, BoardLayout.BLOCK) - layout.blockGroup(0)) * dimension + v,
+        };
+    }
+}
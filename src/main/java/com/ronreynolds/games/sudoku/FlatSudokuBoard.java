@@ -0,0 +1,269 @@
+package com.ronreynolds.games.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * a board that keeps its state in flat primitive arrays indexed by cell; setting a value is a single loop over the
+ * precomputed peer table of the BoardLayout with no object traffic
+ */
+public class FlatSudokuBoard implements SudokuBoard {
+    private final BoardLayout layout;
+    private final int[] values;         // [cell] -> value (0 = unknown)
+    private final int[] candidates;     // [cell] -> mask of possible values
+    private final int[] positions;      // [group * dimension + value - 1] -> mask of group positions where value is possible
+    private final int[] groupVersions;  // [group] -> change counter (see SudokuBoard.getGroupVersion)
+    // each cell's value is set at most once and each possible value removed at most once between undos so this
+    // capacity is never exceeded
+    private final Trail trail;
+
+    public FlatSudokuBoard() {
+        this(BoardLayout.standard());
+    }
+
+    public FlatSudokuBoard(BoardLayout layout) {
+        this.layout = layout;
+        this.values = new int[layout.cellCount];
+        this.candidates = new int[layout.cellCount];
+        this.positions = new int[layout.groupCount * layout.dimension];
+        this.groupVersions = new int[layout.groupCount];
+        this.trail = new Trail(layout.cellCount * (layout.dimension + 1));
+        Arrays.fill(candidates, Candidates.all(layout.dimension));
+        Arrays.fill(positions, Candidates.all(layout.dimension));   // every value is possible in every position
+    }
+
+    /**
+     * copy the current state (values and possible values) of any board
+     */
+    public static FlatSudokuBoard copyOf(SudokuBoard board) {
+        FlatSudokuBoard copy = new FlatSudokuBoard(board.getLayout());
+        for (int cell = 0; cell < copy.layout.cellCount; ++cell) {
+            copy.values[cell] = board.getValue(cell);
+            copy.candidates[cell] = board.getCandidates(cell);
+        }
+        for (int group = 0; group < copy.layout.groupCount; ++group) {
+            for (int value = 1; value <= copy.layout.dimension; ++value) {
+                copy.positions[group * copy.layout.dimension + value - 1] = board.getPositions(group, value);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * same format as SudokuPuzzle.create(String) but parsed straight into the arrays; the size of the board follows
+     * from the number of cells (see BoardLayout.forCellCount)
+     */
+    public static FlatSudokuBoard create(String compactGrid) {
+        int cellCount = 0;
+        for (int x = 0; x < compactGrid.length(); ++x) {
+            char c = compactGrid.charAt(x);
+            if (c != '\n' && c != '\r') {
+                ++cellCount;
+            }
+        }
+        BoardLayout layout = BoardLayout.forCellCount(cellCount);
+        return create(compactGrid, layout == null ? BoardLayout.standard() : layout);
+    }
+
+    public static FlatSudokuBoard create(String compactGrid, BoardLayout layout) {
+        FlatSudokuBoard board = new FlatSudokuBoard(layout);
+        board.load(compactGrid);
+        return board;
+    }
+
+    /**
+     * reset the board and set the values of compactGrid (same format as create) without allocating
+     */
+    public void load(CharSequence compactGrid) {
+        reset();
+        int cell = 0;
+        for (int x = 0; x < compactGrid.length(); ++x) {
+            char c = compactGrid.charAt(x);
+            if (c == '\n' || c == '\r') {
+                continue;
+            }
+            if (cell == layout.cellCount) {
+                throw new IllegalArgumentException("too many cells in compactGrid");
+            }
+            int value = BoardLayout.valueOf(c);
+            if (value < 0 || value > layout.dimension) {
+                throw new IllegalArgumentException(String.format("invalid value (%c) at cell %d", c, cell));
+            }
+            if (value != 0) {
+                setValue(cell, value);
+            }
+            ++cell;
+        }
+        if (cell != layout.cellCount) {
+            throw new IllegalArgumentException(
+                    String.format("incorrect size (%d) for compactGrid of %s puzzle", cell, layout));
+        }
+    }
+
+    /**
+     * back to a blank board (no values, everything possible) without allocating; the undo log is discarded
+     */
+    public void reset() {
+        Arrays.fill(values, 0);
+        Arrays.fill(candidates, Candidates.all(layout.dimension));
+        Arrays.fill(positions, Candidates.all(layout.dimension));
+        for (int group = 0; group < layout.groupCount; ++group) {
+            ++groupVersions[group];     // anything that cached the old state must look again
+        }
+        trail.truncate(0);
+    }
+
+    @Override
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public int getValue(int cell) {
+        return values[cell];
+    }
+
+    // the values array itself (for SudokuValidator); not to be modified
+    int[] getValues() {
+        return values;
+    }
+
+    @Override
+    public int getCandidates(int cell) {
+        return candidates[cell];
+    }
+
+    @Override
+    public void setValue(int cell, int value) {
+        int bit = Candidates.bit(Cell.assertValidValue(value, layout.dimension));
+        trail.recordValue(cell, values[cell], value);
+        values[cell] = value;
+        clearCandidates(cell, candidates[cell]);
+        int peerCount = layout.peerCount;
+        for (int n = 0; n < peerCount; ++n) {
+            int peer = layout.peer(cell, n);
+            if ((candidates[peer] & bit) != 0) {
+                clearCandidates(peer, bit);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeCandidate(int cell, int value) {
+        int bit = Candidates.bit(value);
+        if ((candidates[cell] & bit) == 0) {
+            return false;
+        }
+        clearCandidates(cell, bit);
+        return true;
+    }
+
+    @Override
+    public int getPositions(int group, int value) {
+        return positions[group * layout.dimension + value - 1];
+    }
+
+    @Override
+    public int getGroupVersion(int group) {
+        return groupVersions[group];
+    }
+
+    @Override
+    public long getPlacementCount() {
+        return trail.getPlacements();
+    }
+
+    @Override
+    public long getEliminationCount() {
+        return trail.getEliminations();
+    }
+
+    @Override
+    public SolveTrace getTrace() {
+        return trail.getTrace();
+    }
+
+    @Override
+    public void setTrace(SolveTrace trace) {
+        trail.setTrace(trace);
+    }
+
+    @Override
+    public int mark() {
+        return trail.size();
+    }
+
+    @Override
+    public void undoTo(int mark) {
+        for (int entry = trail.size() - 1; entry >= mark; --entry) {
+            int cell = trail.cell(entry);
+            if (trail.isValue(entry)) {
+                values[cell] = trail.previous(entry);
+            } else {
+                int previous = trail.previous(entry);
+                int restored = previous & ~candidates[cell];
+                candidates[cell] = previous;
+                updatePositions(cell, restored, true);
+            }
+        }
+        trail.truncate(mark);
+    }
+
+    // remove the possible values in mask from the cell and from the position index of the cell's 3 groups
+    private void clearCandidates(int cell, int mask) {
+        if ((candidates[cell] & mask) == 0) {
+            return;
+        }
+        trail.recordPossibles(cell, candidates[cell], candidates[cell] & ~mask);
+        candidates[cell] &= ~mask;
+        updatePositions(cell, mask, false);
+    }
+
+    // add (or clear) the cell's position bit for the values of mask in the index of the cell's 3 groups
+    private void updatePositions(int cell, int mask, boolean add) {
+        int dimension = layout.dimension;
+        int rowGroup = layout.groupOf(cell, BoardLayout.ROW);
+        int colGroup = layout.groupOf(cell, BoardLayout.COLUMN);
+        int blockGroup = layout.groupOf(cell, BoardLayout.BLOCK);
+        ++groupVersions[rowGroup];
+        ++groupVersions[colGroup];
+        ++groupVersions[blockGroup];
+        int rowOffset = rowGroup * dimension - 1;
+        int colOffset = colGroup * dimension - 1;
+        int blockOffset = blockGroup * dimension - 1;
+        int rowBit = 1 << layout.positionOf(cell, BoardLayout.ROW);
+        int colBit = 1 << layout.positionOf(cell, BoardLayout.COLUMN);
+        int blockBit = 1 << layout.positionOf(cell, BoardLayout.BLOCK);
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int value = Integer.numberOfTrailingZeros(bits) + 1;
+            if (add) {
+                positions[rowOffset + value] |= rowBit;
+                positions[colOffset + value] |= colBit;
+                positions[blockOffset + value] |= blockBit;
+            } else {
+                positions[rowOffset + value] &= ~rowBit;
+                positions[colOffset + value] &= ~colBit;
+                positions[blockOffset + value] &= ~blockBit;
+            }
+        }
+    }
+
+    @Override
+    public boolean isSolved() {
+        for (int value : values) {
+            if (value == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            buf.append(values[cell] == 0 ? "?" : Integer.toString(values[cell]))
+                    .append(layout.columnOf(cell) == layout.dimension - 1 ? '\n' : ' ');
+        }
+        return buf.toString();
+    }
+}
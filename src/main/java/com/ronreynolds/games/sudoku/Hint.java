@@ -0,0 +1,83 @@
+package com.ronreynolds.games.sudoku;
+
+/**
+ * a single deduction (see HintFinder): the solver that made it, the group it looked at, and what it found; either
+ * values placed or possible values eliminated (the eliminations that merely follow from a placed value aren't listed)
+ */
+public final class Hint {
+    private static final String[] KIND_NAMES = {"row", "column", "block"};   // by BoardLayout kind
+
+    private final BoardLayout layout;
+    private final SudokuSolver solver;
+    private final int group;
+    private final int[] cells;      // the cells changed, in the order they were changed
+    private final int[] changes;    // [x] -> the value placed in cells[x] if placing, else the mask of values eliminated
+    private final boolean placing;
+
+    Hint(BoardLayout layout, SudokuSolver solver, int group, int[] cells, int[] changes, boolean placing) {
+        this.layout = layout;
+        this.solver = solver;
+        this.group = group;
+        this.cells = cells;
+        this.changes = changes;
+        this.placing = placing;
+    }
+
+    public SudokuSolver getSolver() {
+        return solver;
+    }
+
+    /**
+     * the BoardLayout index of the group the solver was looking at
+     */
+    public int getGroup() {
+        return group;
+    }
+
+    /**
+     * true if the hint places values; false if it only eliminates possible values
+     */
+    public boolean isPlacing() {
+        return placing;
+    }
+
+    public int size() {
+        return cells.length;
+    }
+
+    public int getCell(int x) {
+        return cells[x];
+    }
+
+    /**
+     * the value placed in getCell(x) (0 if the hint doesn't place values)
+     */
+    public int getValue(int x) {
+        return placing ? changes[x] : 0;
+    }
+
+    /**
+     * the mask of the possible values eliminated from getCell(x) (0 if the hint places values)
+     */
+    public int getEliminated(int x) {
+        return placing ? 0 : changes[x];
+    }
+
+    /**
+     * e.g., "HIDDEN_SINGLES in row 3: (3,4) = 5" or "LOCKED_LINES in block 2: (0,6) -[2, 7] (1,6) -[2]"
+     */
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(solver.name()).append(" in ")
+                .append(KIND_NAMES[layout.kindOf(group)]).append(' ').append(group % layout.dimension).append(':');
+        for (int x = 0; x < cells.length; ++x) {
+            buf.append(" (").append(layout.rowOf(cells[x])).append(',').append(layout.columnOf(cells[x])).append(')');
+            if (placing) {
+                buf.append(" = ").append(BoardLayout.symbolOf(changes[x]));
+            } else {
+                buf.append(" -").append(Candidates.toString(changes[x]));
+            }
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * finds the next single deduction for a board without solving it: the solvers are tried cheapest first, one group at
+ * a time, and the first (solver, group) that changes anything is the hint; what it changed is read from a SolveTrace
+ * and then rolled back so the board is left as it was
+ * <p>
+ * like the PropagationScheduler, a finder remembers the version of each group when each solver last found nothing in
+ * it and skips it until the group changes, so asking for a hint after every move only looks at what the move touched
+ * (rolling back a hint changes the versions too but not the board, so what was seen before it still counts after it)
+ * <p>
+ * not thread-safe; keep one per board
+ */
+public class HintFinder {
+    private static final int NEVER = -1;
+
+    private final SudokuBoard board;
+    private final SudokuSolver[] solvers;
+    private final int[][] lastSeen;     // [solver][group] -> group version when that solver last found nothing in it
+    private final SolveTrace trace;     // what the helpful solver changed
+    private final int[] versions;       // [group] -> version at the start of next (before any solver changed it)
+    private int[] cells = new int[16];
+    private int[] changes = new int[16];
+
+    public HintFinder(@NonNull SudokuBoard board) {
+        this.board = board;
+        this.solvers = SudokuSolver.getSolvers();
+        this.lastSeen = new int[solvers.length][board.getLayout().groupCount];
+        for (int[] versions : lastSeen) {
+            Arrays.fill(versions, NEVER);
+        }
+        this.trace = new SolveTrace(board.getLayout(), 64);
+        this.versions = new int[board.getLayout().groupCount];
+    }
+
+    /**
+     * @return the next deduction (the board isn't changed) or null if the board is solved or the solvers are stuck
+     */
+    public Hint next() {
+        BoardLayout layout = board.getLayout();
+        for (int group = 0; group < versions.length; ++group) {
+            versions[group] = board.getGroupVersion(group);
+        }
+        for (int s = 0; s < solvers.length; ++s) {
+            SudokuSolver solver = solvers[s];
+            int[] seen = lastSeen[s];
+            for (int group = 0; group < layout.groupCount; ++group) {
+                int version = versions[group];
+                if (seen[group] == version || !solver.appliesTo(layout, group)) {
+                    continue;
+                }
+                Hint hint = tryApply(solver, group);
+                if (hint != null) {
+                    return hint;
+                }
+                seen[group] = version;
+                if (solver.isBoardWide()) {
+                    // it found nothing anywhere
+                    System.arraycopy(versions, 0, seen, 0, versions.length);
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+    // the changes solver makes to group (rolled back) or null if it makes none
+    private Hint tryApply(SudokuSolver solver, int group) {
+        SolveTrace previous = board.getTrace();
+        int mark = board.mark();
+        trace.clear();
+        board.setTrace(trace);
+        boolean helped = false;
+        try {
+            helped = solver.apply(board, group);
+        } finally {
+            board.setTrace(null);
+            if (board.mark() != mark) {
+                board.undoTo(mark);
+                keepSeen();
+            }
+            board.setTrace(previous);
+        }
+        return helped ? toHint(solver, group) : null;
+    }
+
+    // the board is back to what it was but the groups that were changed (and rolled back) have new versions
+    private void keepSeen() {
+        for (int[] seen : lastSeen) {
+            for (int group = 0; group < versions.length; ++group) {
+                if (seen[group] == versions[group]) {
+                    seen[group] = board.getGroupVersion(group);
+                }
+            }
+        }
+    }
+
+    // one deduction out of what the solver changed: its first placement if it made any (later ones may only follow
+    // from it) or else the eliminations of the first value it eliminated (each value's are worked out on their own)
+    private Hint toHint(SudokuSolver solver, int group) {
+        for (int event = 0; event < trace.size(); ++event) {
+            if (trace.getType(event) == SolveTrace.VALUE_SET) {
+                return new Hint(board.getLayout(), solver, group, new int[]{trace.getCell(event)},
+                        new int[]{trace.getPayload(event)}, true);
+            }
+        }
+        int count = 0;
+        int value = 0;
+        for (int event = 0; event < trace.size(); ++event) {
+            if (trace.getType(event) == SolveTrace.ELIMINATED) {
+                int eliminated = trace.getPayload(event);
+                if (value == 0) {
+                    value = Integer.lowestOneBit(eliminated);
+                }
+                if ((eliminated & value) != 0) {
+                    count = add(count, trace.getCell(event), value);
+                }
+            }
+        }
+        return new Hint(board.getLayout(), solver, group, Arrays.copyOf(cells, count), Arrays.copyOf(changes, count),
+                false);
+    }
+
+    private int add(int count, int cell, int change) {
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, 2 * count);
+            changes = Arrays.copyOf(changes, 2 * count);
+        }
+        cells[count] = cell;
+        changes[count] = change;
+        return count + 1;
+    }
+}
@@ -0,0 +1,271 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * the packed binary form of grids: a file (or any stream of records) starts with a header giving the block shape (and
+ * so the dimension) and some flags, then each grid is a fixed-size record of its cell values in row-major order, each
+ * in just enough bits for 0..dimension, packed high bits first; a 9x9 grid is 81 4-bit values in 41 bytes (vs. 82 for a
+ * line of text)
+ * <p>
+ * header (HEADER_BYTES): the 4 bytes of MAGIC, the VERSION, blockRows, blockCols, then the flags (e.g., SOLUTIONS)
+ * <p>
+ * everything works on ByteBuffers at their current position (which is moved past what's read or written) so records
+ * can be read from or written to mapped files and reused buffers without copying; nothing here allocates per grid
+ */
+public final class PackedGridCodec {
+    public static final int MAGIC = 0x53444B50;     // "SDKP"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 8;
+
+    /**
+     * header flag: every record is a complete grid (e.g., the output of a batch solve)
+     */
+    public static final int SOLUTIONS = 1;
+
+    private PackedGridCodec() {
+    }
+
+    /**
+     * the bits each cell takes (enough for 0..dimension): 4 for 9x9 boards, 5 for 16x16 and 25x25
+     */
+    public static int bitsPerCell(@NonNull BoardLayout layout) {
+        return 32 - Integer.numberOfLeadingZeros(layout.dimension);
+    }
+
+    /**
+     * the size of every record of a layout (41 bytes for 9x9 boards)
+     */
+    public static int recordBytes(@NonNull BoardLayout layout) {
+        return (layout.cellCount * bitsPerCell(layout) + 7) / 8;
+    }
+
+    public static void writeHeader(@NonNull ByteBuffer out, @NonNull BoardLayout layout, int flags) {
+        if (flags < 0 || flags > 0xFF) {
+            throw new IllegalArgumentException("invalid flags " + flags);
+        }
+        out.putInt(MAGIC).put((byte) VERSION).put((byte) layout.blockRows).put((byte) layout.blockCols).put((byte) flags);
+    }
+
+    /**
+     * true if in (from its position, which isn't moved) starts with a header; i.e., it's packed rather than text
+     */
+    public static boolean hasHeader(@NonNull ByteBuffer in) {
+        return in.remaining() >= HEADER_BYTES && in.getInt(in.position()) == MAGIC;
+    }
+
+    /**
+     * @throws IllegalArgumentException if in doesn't start with a header this version can read
+     */
+    public static Header readHeader(@NonNull ByteBuffer in) {
+        if (!hasHeader(in)) {
+            throw new IllegalArgumentException("not a packed grid header");
+        }
+        in.getInt();
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported packed grid version " + version);
+        }
+        int blockRows = in.get() & 0xFF;
+        int blockCols = in.get() & 0xFF;
+        return new Header(BoardLayout.of(blockRows, blockCols), in.get() & 0xFF);
+    }
+
+    /**
+     * append the values of board as one record
+     */
+    public static void encode(@NonNull SudokuBoard board, @NonNull ByteBuffer out) {
+        if (board instanceof FlatSudokuBoard) {
+            encode(board.getLayout(), ((FlatSudokuBoard) board).getValues(), 0, out);
+            return;
+        }
+        BoardLayout layout = board.getLayout();
+        int bits = bitsPerCell(layout);
+        int acc = 0;
+        int accBits = 0;
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            acc = (acc << bits) | board.getValue(cell);
+            accBits += bits;
+            if (accBits >= 8) {
+                accBits -= 8;
+                out.put((byte) (acc >>> accBits));
+            }
+        }
+        if (accBits > 0) {
+            out.put((byte) (acc << (8 - accBits)));
+        }
+    }
+
+    /**
+     * append values[offset .. offset + cellCount) (0 for an empty cell) as one record
+     *
+     * @throws IllegalArgumentException if a value is out of range (nothing is written)
+     */
+    public static void encode(@NonNull BoardLayout layout, @NonNull int[] values, int offset, @NonNull ByteBuffer out) {
+        int end = offset + layout.cellCount;
+        for (int x = offset; x < end; ++x) {
+            if (values[x] < 0 || values[x] > layout.dimension) {
+                throw new IllegalArgumentException(String.format("invalid value (%d) at cell %d", values[x], x - offset));
+            }
+        }
+        int bits = bitsPerCell(layout);
+        if (bits == 4) {
+            // the classic case; 2 cells per byte
+            int x = offset;
+            for (; x + 1 < end; x += 2) {
+                out.put((byte) (values[x] << 4 | values[x + 1]));
+            }
+            if (x < end) {
+                out.put((byte) (values[x] << 4));
+            }
+            return;
+        }
+        int acc = 0;
+        int accBits = 0;
+        for (int x = offset; x < end; ++x) {
+            acc = (acc << bits) | values[x];
+            accBits += bits;
+            if (accBits >= 8) {
+                accBits -= 8;
+                out.put((byte) (acc >>> accBits));
+            }
+        }
+        if (accBits > 0) {
+            out.put((byte) (acc << (8 - accBits)));
+        }
+    }
+
+    /**
+     * append every grid of grids (cellCount values each, back to back) as a record
+     */
+    public static void encodeAll(@NonNull BoardLayout layout, @NonNull int[] grids, @NonNull ByteBuffer out) {
+        if (grids.length % layout.cellCount != 0) {
+            throw new IllegalArgumentException(String.format("grids (%d values) isn't a whole number of %s grids",
+                    grids.length, layout));
+        }
+        for (int offset = 0; offset < grids.length; offset += layout.cellCount) {
+            encode(layout, grids, offset, out);
+        }
+    }
+
+    /**
+     * reset board and load the next record of in into it
+     *
+     * @throws IllegalArgumentException if the record has a value out of range for the board (in is still moved past
+     *                                  the record so the caller can carry on with the next one)
+     */
+    public static void decode(@NonNull ByteBuffer in, @NonNull FlatSudokuBoard board) {
+        BoardLayout layout = board.getLayout();
+        board.reset();
+        int bits = bitsPerCell(layout);
+        int mask = (1 << bits) - 1;
+        int start = in.position();
+        int acc = 0;
+        int accBits = 0;
+        int cell = 0;
+        while (cell < layout.cellCount) {
+            acc = (acc << 8) | (in.get() & 0xFF);
+            accBits += 8;
+            while (accBits >= bits && cell < layout.cellCount) {
+                accBits -= bits;
+                int value = (acc >>> accBits) & mask;
+                if (value > layout.dimension) {
+                    in.position(start + recordBytes(layout));
+                    throw new IllegalArgumentException(String.format("invalid value (%d) at cell %d", value, cell));
+                }
+                if (value != 0) {
+                    board.setValue(cell, value);
+                }
+                ++cell;
+            }
+        }
+    }
+
+    /**
+     * read the next record of in into values[offset .. offset + cellCount)
+     *
+     * @throws IllegalArgumentException if the record has a value out of range (in is still moved past the record)
+     */
+    public static void decode(@NonNull ByteBuffer in, @NonNull BoardLayout layout, @NonNull int[] values, int offset) {
+        int end = offset + layout.cellCount;
+        int bits = bitsPerCell(layout);
+        if (bits == 4) {
+            int x = offset;
+            for (; x + 1 < end; x += 2) {
+                int b = in.get();
+                values[x] = (b >>> 4) & 0xF;
+                values[x + 1] = b & 0xF;
+            }
+            if (x < end) {
+                values[x] = (in.get() >>> 4) & 0xF;
+            }
+        } else {
+            int mask = (1 << bits) - 1;
+            int acc = 0;
+            int accBits = 0;
+            int x = offset;
+            while (x < end) {
+                acc = (acc << 8) | (in.get() & 0xFF);
+                accBits += 8;
+                while (accBits >= bits && x < end) {
+                    accBits -= bits;
+                    values[x++] = (acc >>> accBits) & mask;
+                }
+            }
+        }
+        for (int x = offset; x < end; ++x) {
+            if (values[x] > layout.dimension) {
+                throw new IllegalArgumentException(String.format("invalid value (%d) at cell %d", values[x], x - offset));
+            }
+        }
+    }
+
+    /**
+     * read whole records from in into grids (cellCount values each, back to back) until either runs out
+     *
+     * @return the number of grids read
+     */
+    public static int decodeAll(@NonNull ByteBuffer in, @NonNull BoardLayout layout, @NonNull int[] grids) {
+        int count = Math.min(in.remaining() / recordBytes(layout), grids.length / layout.cellCount);
+        for (int x = 0; x < count; ++x) {
+            decode(in, layout, grids, x * layout.cellCount);
+        }
+        return count;
+    }
+
+    /**
+     * what a header says about the records that follow it
+     */
+    public static final class Header {
+        private final BoardLayout layout;
+        private final int flags;
+
+        Header(BoardLayout layout, int flags) {
+            this.layout = layout;
+            this.flags = flags;
+        }
+
+        public BoardLayout getLayout() {
+            return layout;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        public boolean hasFlag(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        public int getRecordBytes() {
+            return recordBytes(layout);
+        }
+
+        @Override
+        public String toString() {
+            return layout + " in " + getRecordBytes() + "-byte records" + (hasFlag(SOLUTIONS) ? " (solutions)" : "");
+        }
+    }
+}
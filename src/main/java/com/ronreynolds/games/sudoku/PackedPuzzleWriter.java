@@ -0,0 +1,195 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.LatencyHistogram;
+import lombok.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * writes a packed corpus (see PackedGridCodec): the header then one fixed-size record per grid, encoded into a reused
+ * direct buffer that's written out whenever it fills up; the result can be read back with PuzzleCorpus (so SudokuBatch
+ * takes it as input just like text)
+ * <p>
+ * pack and unpack convert text corpora to packed ones and back
+ */
+public class PackedPuzzleWriter implements Closeable, Flushable {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final BoardLayout layout;
+    private final ByteBuffer buffer;
+    private final int recordBytes;
+    private long count;
+
+    public PackedPuzzleWriter(@NonNull Path file, @NonNull BoardLayout layout, int flags) throws IOException {
+        this.layout = layout;
+        this.recordBytes = PackedGridCodec.recordBytes(layout);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, PackedGridCodec.HEADER_BYTES + recordBytes));
+        PackedGridCodec.writeHeader(buffer, layout, flags);
+        this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * usage: --pack input output [--block RxC] [--solutions] (every record is a complete grid) | --unpack input output
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        boolean pack = true;
+        BoardLayout layout = BoardLayout.standard();
+        int flags = 0;
+        for (int x = 0; x < args.length; ++x) {
+            switch (args[x]) {
+                case "--pack":
+                    break;
+                case "--unpack":
+                    pack = false;
+                    break;
+                case "--block":
+                    layout = BoardLayout.parse(args[++x]);
+                    break;
+                case "--solutions":
+                    flags |= PackedGridCodec.SOLUTIONS;
+                    break;
+                default:
+                    files.add(args[x]);
+            }
+        }
+        if (files.size() != 2) {
+            System.err.println("usage: --pack <input> <output> [--block RxC] [--solutions] | --unpack <input> <output>");
+            return;
+        }
+        Path input = Path.of(files.get(0));
+        Path output = Path.of(files.get(1));
+        long start = System.nanoTime();
+        long[] counts = pack ? pack(input, output, layout, flags) : unpack(input, output);
+        System.out.printf("%d puzzles (%d invalid) %s in %s: %d bytes -> %d bytes%n", counts[0], counts[1],
+                pack ? "packed" : "unpacked", LatencyHistogram.format(System.nanoTime() - start),
+                Files.size(input), Files.size(output));
+    }
+
+    /**
+     * convert a text corpus to a packed one; records that aren't valid puzzles are skipped
+     *
+     * @return the number of records written and the number skipped
+     */
+    public static long[] pack(@NonNull Path text, @NonNull Path packed, @NonNull BoardLayout layout, int flags)
+            throws IOException {
+        FlatSudokuBoard board = new FlatSudokuBoard(layout);
+        long invalid = 0;
+        try (PuzzleCorpus corpus = new PuzzleCorpus(text);
+             PackedPuzzleWriter writer = new PackedPuzzleWriter(packed, layout, flags)) {
+            PuzzleCorpus.Chunk chunk;
+            while ((chunk = corpus.nextChunk()) != null) {
+                while (chunk.hasNext()) {
+                    try {
+                        chunk.next(board);
+                        writer.write(board);
+                    } catch (IllegalArgumentException bad) {
+                        ++invalid;
+                    }
+                }
+            }
+            return new long[]{writer.getCount(), invalid};
+        }
+    }
+
+    /**
+     * convert a packed corpus back to text (one compact grid per line); records that aren't valid are skipped
+     *
+     * @return the number of records written and the number skipped
+     */
+    public static long[] unpack(@NonNull Path packed, @NonNull Path text) throws IOException {
+        long count = 0;
+        long invalid = 0;
+        try (PuzzleCorpus corpus = new PuzzleCorpus(packed);
+             BufferedWriter writer = Files.newBufferedWriter(text, StandardCharsets.US_ASCII)) {
+            if (corpus.getLayout() == null) {
+                throw new IOException(packed + " isn't a packed corpus");
+            }
+            FlatSudokuBoard board = new FlatSudokuBoard(corpus.getLayout());
+            StringBuilder buf = new StringBuilder(2 * board.getLayout().cellCount);
+            PuzzleCorpus.Chunk chunk;
+            while ((chunk = corpus.nextChunk()) != null) {
+                while (chunk.hasNext()) {
+                    try {
+                        chunk.next(board);
+                    } catch (IllegalArgumentException bad) {
+                        ++invalid;
+                        continue;
+                    }
+                    buf.setLength(0);
+                    writer.append(board.appendCompactGrid(buf).append('\n'));
+                    ++count;
+                }
+            }
+        }
+        return new long[]{count, invalid};
+    }
+
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * the number of records written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * append the values of board as a record
+     */
+    public void write(@NonNull SudokuBoard board) throws IOException {
+        if (board.getLayout() != layout) {
+            throw new IllegalArgumentException(String.format("a %s board can't be written to a %s corpus",
+                    board.getLayout(), layout));
+        }
+        makeRoom();
+        PackedGridCodec.encode(board, buffer);
+        ++count;
+    }
+
+    /**
+     * append values[offset .. offset + cellCount) (0 for an empty cell) as a record
+     */
+    public void write(@NonNull int[] values, int offset) throws IOException {
+        makeRoom();
+        PackedGridCodec.encode(layout, values, offset, buffer);
+        ++count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+        }
+    }
+
+    private void makeRoom() throws IOException {
+        if (buffer.remaining() < recordBytes) {
+            flush();
+        }
+    }
+}
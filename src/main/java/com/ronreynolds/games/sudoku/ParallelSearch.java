@@ -0,0 +1,211 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * the same search as BacktrackingSearch but with the branch tree split across a fork-join pool: a task that reaches a
+ * branching cell while the pool is short of work forks one subtask per possible value (each with its own copy of the
+ * board and its own scheduler) and otherwise searches depth-first in place, rolling back with the board's trail; idle
+ * workers steal the forked subtasks so the tree is spread over every core without anyone deciding up front how to cut
+ * it up
+ * <p>
+ * once a solution is found (or as many as were asked for) every task sees the shared cancelled flag at its next node
+ * and returns; the board given to the constructor is never modified (the solution is copied into it by solve)
+ * <p>
+ * nothing is logged or traced and no solver stats are kept (the copies have none)
+ */
+public class ParallelSearch {
+    // split while fewer than this many forked tasks are waiting to be stolen (the usual fork-join heuristic: enough
+    // to keep every worker busy without copying boards that nobody needs)
+    private static final int SURPLUS_TASKS = 2;
+
+    private final SudokuBoard board;
+    private final ForkJoinPool pool;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicInteger solutions = new AtomicInteger();
+    private final AtomicReference<int[]> solution = new AtomicReference<>();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder forks = new LongAdder();
+    private final SolveBudget budget;   // null if there's no limit
+    private int limit;
+
+    public ParallelSearch(@NonNull SudokuBoard board, @NonNull ForkJoinPool pool) {
+        this(board, pool, null);
+    }
+
+    /**
+     * @param budget if not null, every node (and solver application) of every task spends it and they all give up
+     *               once it runs out (an interrupt of the thread that made it, or of the one waiting in solve or
+     *               count, stops them too)
+     */
+    public ParallelSearch(@NonNull SudokuBoard board, @NonNull ForkJoinPool pool, SolveBudget budget) {
+        this.board = board;
+        this.pool = pool;
+        this.budget = budget;
+    }
+
+    /**
+     * search for a solution and copy it into the board (which is left alone if there isn't one)
+     *
+     * @return true if a solution was found
+     */
+    public boolean solve() {
+        if (count(1) == 0) {
+            return false;
+        }
+        int[] values = solution.get();
+        for (int cell = 0; cell < values.length; ++cell) {
+            if (board.getValue(cell) == 0) {
+                board.setValue(cell, values[cell]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param limit stop searching once this many solutions are found
+     * @return the number of solutions of the board, at most limit
+     */
+    public int count(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1 - " + limit);
+        }
+        this.limit = limit;
+        cancelled.set(false);
+        solutions.set(0);
+        solution.set(null);
+        Branch root = new Branch(FlatSudokuBoard.copyOf(board));
+        if (budget == null) {
+            pool.invoke(root);
+        } else {
+            await(pool.submit(root));
+        }
+        return Math.min(solutions.get(), limit);
+    }
+
+    // the tasks don't see an interrupt of the thread waiting for them (and pool.invoke would wait it out) so the
+    // waiting is done interruptibly and an interrupt cancels them and spends the budget
+    private void await(ForkJoinTask<Void> root) {
+        try {
+            root.get();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            root.quietlyJoin();     // they stop at their next node
+            Thread.currentThread().interrupt();
+            budget.check();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("search failed", e.getCause());
+        }
+    }
+
+    /**
+     * the values of the first solution found by the last solve or count (null if there was none)
+     */
+    public int[] getSolution() {
+        return solution.get();
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * how many subtasks were forked (how much the tree was split up)
+     */
+    public long getForks() {
+        return forks.sum();
+    }
+
+    private void found(SudokuBoard solved) {
+        int count = solutions.incrementAndGet();
+        if (count == 1) {
+            int[] values = new int[solved.getLayout().cellCount];
+            for (int cell = 0; cell < values.length; ++cell) {
+                values[cell] = solved.getValue(cell);
+            }
+            solution.set(values);
+        }
+        if (count >= limit) {
+            cancelled.set(true);
+        }
+    }
+
+    /**
+     * the subtree below one board (which the task owns)
+     */
+    @SuppressWarnings("serial")     // tasks are never serialized (and neither are the boards they hold)
+    private final class Branch extends RecursiveAction {
+        private final FlatSudokuBoard board;
+        private PropagationScheduler<FlatSudokuBoard> scheduler;
+
+        Branch(FlatSudokuBoard board) {
+            this.board = board;
+        }
+
+        @Override
+        protected void compute() {
+            scheduler = new PropagationScheduler<>(board, SudokuSolver.getSearchSolvers());
+            scheduler.setBudget(budget);
+            search();
+        }
+
+        private void search() {
+            if (cancelled.get()) {
+                return;
+            }
+            if (budget != null && !budget.step()) {
+                cancelled.set(true);
+                return;
+            }
+            nodes.increment();
+            scheduler.run(Sudoku.NO_LOGGING);
+            if (budget != null && budget.isExhausted()) {
+                cancelled.set(true);
+                return;
+            }
+            if (!board.isConsistent()) {
+                return;
+            }
+            if (board.isSolved()) {
+                found(board);
+                return;
+            }
+            int cell = BacktrackingSearch.findFewestCandidates(board);
+            int candidates = board.getCandidates(cell);
+            if (getSurplusQueuedTaskCount() < SURPLUS_TASKS) {
+                List<Branch> branches = new ArrayList<>(Candidates.count(candidates));
+                for (int bits = candidates; bits != 0; bits &= bits - 1) {
+                    FlatSudokuBoard copy = FlatSudokuBoard.copyOf(board);
+                    copy.setValue(cell, Candidates.lowest(bits));
+                    branches.add(new Branch(copy));
+                }
+                forks.add(branches.size());
+                invokeAll(branches);
+                return;
+            }
+            for (int bits = candidates; bits != 0 && !cancelled.get(); bits &= bits - 1) {
+                int mark = board.mark();
+                board.setValue(cell, Candidates.lowest(bits));
+                search();
+                board.undoTo(mark);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.TriConsumer;
+
+import java.util.Arrays;
+
+/**
+ * applies solvers to a board as a worklist instead of full sweeps: a (solver, group) pair is only run again when the
+ * group changed since that solver last looked at it (see SudokuBoard.getGroupVersion), and after any progress we go
+ * back to the cheapest solver so the expensive ones only run once the cheap ones have reached a fixpoint
+ */
+public class PropagationScheduler<B extends SudokuBoard> {
+    private static final int NEVER = -1;    // no real version is negative so every group starts out dirty
+
+    private final B board;
+    private final SudokuSolver[] solvers;   // in the order they should be tried (cheapest first)
+    private final int[][] lastSeen;         // [solver][group] -> group version when that solver last ran on it
+    private final int groupCount;
+    private final SolverStats stats;        // null if nobody's counting
+    private SolveBudget budget;             // null if there's no limit
+
+    public PropagationScheduler(B board) {
+        this(board, SudokuSolver.getSolvers());
+    }
+
+    public PropagationScheduler(B board, SudokuSolver[] solvers) {
+        this(board, solvers, null);
+    }
+
+    /**
+     * @param stats if not null, what each solver costs and finds is added to it
+     */
+    public PropagationScheduler(B board, SudokuSolver[] solvers, SolverStats stats) {
+        this.board = board;
+        this.solvers = solvers;
+        this.stats = stats;
+        this.groupCount = board.getLayout().groupCount;
+        this.lastSeen = new int[solvers.length][groupCount];
+        reset();
+    }
+
+    /**
+     * spend a step of budget on every (solver, group) pair run and stop once it runs out (null for no limit)
+     */
+    public void setBudget(SolveBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * forget what the solvers have seen so the next run considers every group dirty
+     */
+    public void reset() {
+        for (int[] versions : lastSeen) {
+            Arrays.fill(versions, NEVER);
+        }
+    }
+
+    /**
+     * run the solvers until the puzzle is solved, none of the queued (solver, group) pairs changes anything, or the
+     * budget runs out
+     *
+     * @param afterSolver called after each solver that had dirty groups to look at (with whether it helped)
+     * @return true if any solver changed the board
+     */
+    public boolean run(TriConsumer<SudokuSolver, Boolean, ? super B> afterSolver) {
+        BoardLayout layout = board.getLayout();
+        SolveTrace trace = board.getTrace();
+        boolean anySolverHelped = false;
+        int next = 0;
+        while (next < solvers.length && !board.isSolved()) {
+            SudokuSolver solver = solvers[next];
+            int[] seen = lastSeen[next];
+            long start = stats == null ? 0 : System.nanoTime();
+            long eliminations = board.getEliminationCount();
+            long placements = board.getPlacementCount();
+            int calls = 0;
+            boolean solverHelped = false;
+            boolean outOfBudget = false;
+            boolean boardWide = solver.isBoardWide();
+            for (int group = 0; group < groupCount; ++group) {
+                int version = board.getGroupVersion(group);
+                if (seen[group] != version && solver.appliesTo(layout, group)) {
+                    if (budget != null && !budget.step()) {
+                        outOfBudget = true;
+                        break;
+                    }
+                    // record the version BEFORE applying; if the solver changes this group it must look again
+                    seen[group] = version;
+                    if (boardWide) {
+                        // this one call looks at every other dirty group too
+                        for (int other = group + 1; other < groupCount; ++other) {
+                            seen[other] = board.getGroupVersion(other);
+                        }
+                    }
+                    if (calls++ == 0 && trace != null) {
+                        trace.solverStart(solver);
+                    }
+                    solverHelped |= solver.apply(board, group);
+                    if (boardWide) {
+                        break;
+                    }
+                }
+            }
+            if (calls > 0) {
+                if (trace != null) {
+                    trace.solverEnd(solver, calls, solverHelped);
+                }
+                if (stats != null) {
+                    stats.record(solver, calls, System.nanoTime() - start,
+                            board.getEliminationCount() - eliminations, board.getPlacementCount() - placements);
+                }
+                afterSolver.accept(solver, solverHelped, board);
+            }
+            if (outOfBudget) {
+                return anySolverHelped | solverHelped;
+            }
+            if (solverHelped) {
+                anySolverHelped = true;
+                next = 0;   // back to the cheap solvers before escalating again
+            } else {
+                ++next;
+            }
+        }
+        return anySolverHelped;
+    }
+}
@@ -0,0 +1,415 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * finds the canonical form of a puzzle: every puzzle that's the same as it up to relabeling the values, reordering the
+ * rows within a band, the bands, the columns within a stack, the stacks, and transposing (for square blocks) gets the
+ * same canonical puzzle, and the solutions of the two map onto each other (see CanonicalForm)
+ * <p>
+ * the canonical puzzle is the transformation with the smallest pattern of givens (read row by row, blanks first) and,
+ * of those, the smallest grid once the values are numbered in order of first appearance; rather than trying all the
+ * transformations (3.3 million for 9x9) the pattern is built a row at a time: every candidate (transposition, column
+ * order, rows so far) is extended by each row that may come next and only those with the smallest pattern for that
+ * row survive; a row's pattern is a single int so a candidate costs a handful of operations and only the few that
+ * survive every row are relabeled
+ * <p>
+ * layouts with more than MAX_COLUMN_ORDERS column orders (bigger than 9x9) only get relabeled, which still catches
+ * puzzles that differ only by their values
+ * <p>
+ * a very symmetric grid (e.g., empty, or with every cell given) leaves almost every candidate in the running, so once
+ * more than MAX_PARTIALS survive a row canonicalize gives up and returns null rather than spend seconds and hundreds
+ * of megabytes on it; real puzzles stay far below that (the most seen in 50,000 was about 5,000)
+ * <p>
+ * not thread-safe (the candidates are kept in buffers that are reused from one puzzle to the next); use one per thread
+ */
+public final class PuzzleCanonicalizer {
+    static final int MAX_COLUMN_ORDERS = 1296;  // 3! * 3!^3 for 9x9
+    static final int MAX_PARTIALS = 1 << 14;
+
+    private final BoardLayout layout;
+    private final int dimension;
+    private final int bandHeight;       // rows per band
+    private final boolean symmetric;    // false = only relabel
+    private final int[][] columnOrders; // [order][canonical column] -> column
+    private final int[][] grids;        // [transposed] -> values in row-major order
+    private final int[][] rowMasks;     // [transposed][row] -> mask of the columns with givens
+    // [row mask] -> the smallest pattern (bit = given, first column highest) any column order makes of it and the
+    // orders that make it; filled in as masks are seen
+    private final int[] minPatterns;
+    private final int[][] minPatternOrders;
+
+    // the candidates of the current row and the survivors for the next; see extend
+    private Partials cur;
+    private Partials next;
+    private final int[] bestGrid;
+    private final int[] labels;         // [value] -> label; [0] = the next label
+    private final int[] bestLabels;
+
+    public PuzzleCanonicalizer(@NonNull BoardLayout layout) {
+        this.layout = layout;
+        this.dimension = layout.dimension;
+        this.bandHeight = layout.blockRows;
+        List<int[]> orders = columnOrders(layout);
+        this.symmetric = orders != null;
+        this.columnOrders = symmetric ? orders.toArray(new int[0][]) : new int[][]{identity(dimension)};
+        int transpositions = layout.blockRows == layout.blockCols && symmetric ? 2 : 1;
+        this.grids = new int[transpositions][layout.cellCount];
+        this.rowMasks = new int[transpositions][dimension];
+        this.minPatterns = new int[symmetric ? 1 << dimension : 0];
+        Arrays.fill(minPatterns, -1);
+        this.minPatternOrders = new int[minPatterns.length][];
+        this.cur = new Partials(dimension, 2 * columnOrders.length);
+        this.next = new Partials(dimension, 2 * columnOrders.length);
+        this.bestGrid = new int[layout.cellCount];
+        this.labels = new int[dimension + 1];
+        this.bestLabels = new int[dimension + 1];
+    }
+
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return the canonical form of the values of the board (its possible values don't matter) or null if the board is
+     * too symmetric (more than MAX_PARTIALS candidates) to be worth it
+     */
+    public CanonicalForm canonicalize(@NonNull SudokuBoard board) {
+        if (board.getLayout() != layout) {
+            throw new IllegalArgumentException("expected a " + layout + " board, not " + board.getLayout());
+        }
+        for (int[] masks : rowMasks) {
+            Arrays.fill(masks, 0);
+        }
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            int value = board.getValue(cell);
+            int row = layout.rowOf(cell);
+            int col = layout.columnOf(cell);
+            grids[0][cell] = value;
+            if (value != 0) {
+                rowMasks[0][row] |= 1 << col;
+            }
+            if (grids.length > 1) {
+                grids[1][layout.cellIndex(col, row)] = value;
+                if (value != 0) {
+                    rowMasks[1][col] |= 1 << row;
+                }
+            }
+        }
+        cur.clear();
+        if (symmetric) {
+            if (!addBestFirstRows()) {
+                return null;
+            }
+            for (int row = 1; row < dimension; ++row) {
+                if (!extend(row)) {
+                    return null;
+                }
+            }
+        } else {
+            cur.addStart(0, 0, 0);
+            for (int row = 1; row < dimension; ++row) {
+                cur.rows[row] = row;
+            }
+        }
+        return relabelBest();
+    }
+
+    // a candidate for every (transposition, first row, column order) that makes the smallest first row pattern; false
+    // if there are more than MAX_PARTIALS of them
+    private boolean addBestFirstRows() {
+        int best = Integer.MAX_VALUE;
+        for (int[] masks : rowMasks) {
+            for (int mask : masks) {
+                best = Math.min(best, minPattern(mask));
+            }
+        }
+        for (int transposed = 0; transposed < rowMasks.length; ++transposed) {
+            for (int row = 0; row < dimension; ++row) {
+                int mask = rowMasks[transposed][row];
+                if (minPattern(mask) == best) {
+                    if (cur.size + minPatternOrders[mask].length > MAX_PARTIALS) {
+                        return false;
+                    }
+                    for (int order : minPatternOrders[mask]) {
+                        cur.addStart(transposed, order, row);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // replace the candidates with their extensions (by 1 row) that have the smallest pattern for that row; false if
+    // there are more than MAX_PARTIALS of those (a smaller pattern found later would start over so only the final
+    // count matters)
+    private boolean extend(int row) {
+        next.clear();
+        int best = Integer.MAX_VALUE;
+        boolean tooMany = false;
+        boolean newBand = row % bandHeight == 0;
+        for (int c = 0; c < cur.size; ++c) {
+            int used = cur.used[c];
+            int[] masks = rowMasks[cur.transposed[c]];
+            int[] order = columnOrders[cur.order[c]];
+            int band = newBand ? -1 : cur.rows[c * dimension + row - 1] / bandHeight;
+            for (int candidate = 0; candidate < dimension; ++candidate) {
+                if ((used & 1 << candidate) != 0
+                        || (newBand ? !isBandUnused(used, candidate / bandHeight) : candidate / bandHeight != band)) {
+                    continue;
+                }
+                int pattern = patternOf(masks[candidate], order);
+                if (pattern > best) {
+                    continue;
+                }
+                if (pattern < best) {
+                    next.clear();
+                    best = pattern;
+                    tooMany = false;
+                }
+                if (next.size == MAX_PARTIALS) {
+                    tooMany = true;
+                } else {
+                    next.addExtension(cur, c, row, candidate);
+                }
+            }
+        }
+        Partials swap = cur;
+        cur = next;
+        next = swap;
+        return !tooMany;
+    }
+
+    // the candidates left all have the same pattern; the one with the smallest relabeled grid wins
+    private CanonicalForm relabelBest() {
+        int best = -1;
+        for (int c = 0; c < cur.size; ++c) {
+            if (relabel(c, best >= 0)) {
+                best = c;
+                System.arraycopy(labels, 0, bestLabels, 0, labels.length);
+            }
+        }
+        int nextLabel = bestLabels[0];
+        for (int value = 1; value <= dimension; ++value) {
+            if (bestLabels[value] == 0) {
+                bestLabels[value] = nextLabel++;    // not in the puzzle; any order will do
+            }
+        }
+        bestLabels[0] = 0;
+        return new CanonicalForm(layout, cur.transposed[best] == 1,
+                Arrays.copyOfRange(cur.rows, best * dimension, (best + 1) * dimension),
+                columnOrders[cur.order[best]].clone(), bestLabels.clone(), grids[0]);
+    }
+
+    // true if candidate c relabeled is smaller than bestGrid (which it then replaces) or there's no bestGrid yet
+    private boolean relabel(int c, boolean haveBest) {
+        int[] grid = grids[cur.transposed[c]];
+        int[] order = columnOrders[cur.order[c]];
+        Arrays.fill(labels, 0);
+        int nextLabel = 1;
+        boolean smaller = !haveBest;
+        for (int row = 0; row < dimension; ++row) {
+            int base = cur.rows[c * dimension + row] * dimension;
+            for (int col = 0; col < dimension; ++col) {
+                int value = grid[base + order[col]];
+                int label = 0;
+                if (value != 0) {
+                    label = labels[value];
+                    if (label == 0) {
+                        label = labels[value] = nextLabel++;
+                    }
+                }
+                int cell = row * dimension + col;
+                if (!smaller) {
+                    if (label != bestGrid[cell]) {
+                        if (label > bestGrid[cell]) {
+                            return false;
+                        }
+                        smaller = true;
+                    }
+                }
+                bestGrid[cell] = label;
+            }
+        }
+        labels[0] = nextLabel;
+        return smaller;
+    }
+
+    private boolean isBandUnused(int used, int band) {
+        int bandMask = ((1 << bandHeight) - 1) << (band * bandHeight);
+        return (used & bandMask) == 0;
+    }
+
+    private int patternOf(int mask, int[] order) {
+        int pattern = 0;
+        for (int col = 0; col < dimension; ++col) {
+            pattern = pattern << 1 | (mask >>> order[col] & 1);
+        }
+        return pattern;
+    }
+
+    private int minPattern(int mask) {
+        if (minPatterns[mask] < 0) {
+            int min = Integer.MAX_VALUE;
+            int[] patterns = new int[columnOrders.length];
+            for (int order = 0; order < columnOrders.length; ++order) {
+                patterns[order] = patternOf(mask, columnOrders[order]);
+                min = Math.min(min, patterns[order]);
+            }
+            int count = 0;
+            for (int pattern : patterns) {
+                count += pattern == min ? 1 : 0;
+            }
+            int[] orders = new int[count];
+            for (int order = 0, x = 0; order < patterns.length; ++order) {
+                if (patterns[order] == min) {
+                    orders[x++] = order;
+                }
+            }
+            minPatternOrders[mask] = orders;
+            minPatterns[mask] = min;
+        }
+        return minPatterns[mask];
+    }
+
+    /**
+     * every order of the columns that keeps the stacks together: the stacks in any order, the columns of each stack in
+     * any order; null if there are more than MAX_COLUMN_ORDERS
+     */
+    private static List<int[]> columnOrders(BoardLayout layout) {
+        int stackWidth = layout.blockCols;
+        int stacks = layout.dimension / stackWidth;
+        long count = factorial(stacks);
+        for (int s = 0; s < stacks && count <= MAX_COLUMN_ORDERS; ++s) {
+            count *= factorial(stackWidth);
+        }
+        if (count > MAX_COLUMN_ORDERS) {
+            return null;
+        }
+        List<int[]> stackOrders = permutations(stacks);
+        List<int[]> columnOrders = permutations(stackWidth);
+        List<int[]> orders = new ArrayList<>();
+        int[] within = new int[stacks];     // [stack] -> index into columnOrders (an odometer)
+        for (int[] stackOrder : stackOrders) {
+            Arrays.fill(within, 0);
+            do {
+                int[] order = new int[layout.dimension];
+                for (int s = 0; s < stacks; ++s) {
+                    int[] columns = columnOrders.get(within[s]);
+                    for (int x = 0; x < stackWidth; ++x) {
+                        order[s * stackWidth + x] = stackOrder[s] * stackWidth + columns[x];
+                    }
+                }
+                orders.add(order);
+            } while (advance(within, columnOrders.size()));
+        }
+        return orders;
+    }
+
+    // capped so it can't overflow (anything past the cap is too many anyway)
+    private static long factorial(int n) {
+        long factorial = 1;
+        for (int x = 2; x <= n && factorial <= MAX_COLUMN_ORDERS; ++x) {
+            factorial *= x;
+        }
+        return factorial;
+    }
+
+    private static boolean advance(int[] odometer, int base) {
+        for (int x = odometer.length - 1; x >= 0; --x) {
+            if (++odometer[x] < base) {
+                return true;
+            }
+            odometer[x] = 0;
+        }
+        return false;
+    }
+
+    private static List<int[]> permutations(int n) {
+        List<int[]> permutations = new ArrayList<>();
+        permute(identity(n), 0, permutations);
+        return permutations;
+    }
+
+    private static void permute(int[] items, int from, List<int[]> permutations) {
+        if (from == items.length) {
+            permutations.add(items.clone());
+            return;
+        }
+        for (int x = from; x < items.length; ++x) {
+            swap(items, from, x);
+            permute(items, from + 1, permutations);
+            swap(items, from, x);
+        }
+    }
+
+    private static void swap(int[] items, int a, int b) {
+        int tmp = items[a];
+        items[a] = items[b];
+        items[b] = tmp;
+    }
+
+    private static int[] identity(int n) {
+        int[] identity = new int[n];
+        for (int x = 0; x < n; ++x) {
+            identity[x] = x;
+        }
+        return identity;
+    }
+
+    /**
+     * the partial transformations still in the running, in parallel arrays so nothing is allocated per candidate
+     */
+    private static final class Partials {
+        final int dimension;
+        int size;
+        int[] transposed;
+        int[] order;        // index into columnOrders
+        int[] used;         // mask of the rows used so far
+        int[] rows;         // [c * dimension + canonical row] -> row
+
+        Partials(int dimension, int capacity) {
+            this.dimension = dimension;
+            allocate(capacity);
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void addStart(int transposed, int order, int firstRow) {
+            int c = add();
+            this.transposed[c] = transposed;
+            this.order[c] = order;
+            used[c] = 1 << firstRow;
+            rows[c * dimension] = firstRow;
+        }
+
+        void addExtension(Partials from, int c, int canonicalRow, int row) {
+            int n = add();
+            transposed[n] = from.transposed[c];
+            order[n] = from.order[c];
+            used[n] = from.used[c] | 1 << row;
+            System.arraycopy(from.rows, c * dimension, rows, n * dimension, canonicalRow);
+            rows[n * dimension + canonicalRow] = row;
+        }
+
+        private int add() {
+            if (size == used.length) {
+                allocate(Math.min(2 * size, MAX_PARTIALS));
+            }
+            return size++;
+        }
+
+        private void allocate(int capacity) {
+            transposed = transposed == null ? new int[capacity] : Arrays.copyOf(transposed, capacity);
+            order = order == null ? new int[capacity] : Arrays.copyOf(order, capacity);
+            used = used == null ? new int[capacity] : Arrays.copyOf(used, capacity);
+            rows = rows == null ? new int[capacity * dimension] : Arrays.copyOf(rows, capacity * dimension);
+        }
+    }
+}
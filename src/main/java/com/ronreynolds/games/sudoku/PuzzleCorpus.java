@@ -0,0 +1,283 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * a memory-mapped corpus of puzzles (one compact grid per line, as written by SudokuBatch) split at line boundaries
+ * into chunks that can be decoded independently on different threads
+ * <p>
+ * records are decoded byte by byte straight from the mapped file into a reused FlatSudokuBoard so there are no Strings
+ * or arrays per puzzle; chunks are mapped one at a time (each is well under the 2GB limit of a MappedByteBuffer) so the
+ * file can be any size
+ * <p>
+ * a file that starts with a PackedGridCodec header is read as packed records instead; they're all the same size so
+ * chunks are split at record boundaries without scanning for them, and there's no text to parse
+ */
+public class PuzzleCorpus implements Closeable {
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    private static final int SCAN_BYTES = 256;      // read this much at a time when looking for the end of a line
+
+    // [byte] -> value (0 = blank, -1 = not a symbol, -2 = end of line); see BoardLayout.valueOf
+    private static final byte[] DECODE = new byte[256];
+
+    static {
+        for (int b = 0; b < DECODE.length; ++b) {
+            DECODE[b] = (byte) (b == '\n' || b == '\r' ? -2 : BoardLayout.valueOf((char) b));
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final int chunkBytes;
+    private final PackedGridCodec.Header header;    // null for text
+    private long nextChunkStart;
+    private int chunkCount;
+
+    public PuzzleCorpus(@NonNull Path file) throws IOException {
+        this(file, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param chunkBytes roughly how big each chunk should be (they're extended to the end of the line they stop in)
+     */
+    public PuzzleCorpus(@NonNull Path file, int chunkBytes) throws IOException {
+        if (chunkBytes < 1 || chunkBytes > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("invalid chunkBytes " + chunkBytes);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        ByteBuffer start = ByteBuffer.allocate(PackedGridCodec.HEADER_BYTES);
+        channel.read(start, 0);
+        start.flip();
+        if (PackedGridCodec.hasHeader(start)) {
+            try {
+                this.header = PackedGridCodec.readHeader(start);
+            } catch (IllegalArgumentException unreadable) {
+                channel.close();
+                throw new IOException("unreadable packed corpus " + file, unreadable);
+            }
+            // whole records per chunk
+            int recordBytes = header.getRecordBytes();
+            this.chunkBytes = Math.max(1, chunkBytes / recordBytes) * recordBytes;
+            this.nextChunkStart = PackedGridCodec.HEADER_BYTES;
+        } else {
+            this.header = null;
+            this.chunkBytes = chunkBytes;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * the layout of every record of a packed corpus (null for text, where it's up to the boards the records are read
+     * into)
+     */
+    public BoardLayout getLayout() {
+        return header == null ? null : header.getLayout();
+    }
+
+    /**
+     * the header of a packed corpus (null for text)
+     */
+    public PackedGridCodec.Header getHeader() {
+        return header;
+    }
+
+    /**
+     * map the next chunk of the file; not thread-safe (one thread hands out the chunks) but the chunks are independent
+     *
+     * @return null once the whole file has been handed out
+     */
+    public Chunk nextChunk() throws IOException {
+        if (nextChunkStart >= size) {
+            return null;
+        }
+        long start = nextChunkStart;
+        long end = header != null ? Math.min(size, start + chunkBytes) : endOfLine(Math.min(size, start + chunkBytes));
+        nextChunkStart = end;
+        return new Chunk(chunkCount++, start, channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), header);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // the offset just past the first '\n' at or after from (or the end of the file)
+    private long endOfLine(long from) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BYTES);
+        long position = from;
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int x = 0; x < read; ++x) {
+                if (scan.get(x) == '\n') {
+                    return position + x + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * a run of whole lines of the corpus; a chunk is used by one thread at a time
+     */
+    public static class Chunk {
+        private final int index;
+        private final long offset;      // of the chunk within the file
+        private final MappedByteBuffer buffer;
+        private final PackedGridCodec.Header header;    // null for text
+        private int recordStart = -1;   // position in buffer of the last record read (-1 = none yet)
+        private int recordEnd;
+
+        Chunk(int index, long offset, MappedByteBuffer buffer, PackedGridCodec.Header header) {
+            this.index = index;
+            this.offset = offset;
+            this.buffer = buffer;
+            this.header = header;
+        }
+
+        /**
+         * chunks are numbered in file order from 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public boolean hasNext() {
+            if (header == null) {
+                skipLineEnds();
+            }
+            return buffer.hasRemaining();
+        }
+
+        /**
+         * reset the board and load the next record into it; empty lines are skipped
+         *
+         * @return false if there are no more records in this chunk
+         * @throws IllegalArgumentException if the record isn't a valid puzzle for the board's layout (the chunk moves
+         *                                  past it either way so the caller can carry on with the next record)
+         */
+        public boolean next(FlatSudokuBoard board) {
+            if (!hasNext()) {
+                return false;
+            }
+            if (header != null) {
+                return nextPacked(board);
+            }
+            recordStart = buffer.position();
+            int limit = buffer.limit();
+            int end = recordStart;
+            while (end < limit && DECODE[buffer.get(end) & 0xFF] != -2) {
+                ++end;
+            }
+            recordEnd = end;
+            buffer.position(end);
+
+            BoardLayout layout = board.getLayout();
+            board.reset();
+            if (end - recordStart != layout.cellCount) {
+                throw new IllegalArgumentException(String.format("incorrect size (%d) for record at offset %d of %s puzzle",
+                        end - recordStart, offset + recordStart, layout));
+            }
+            for (int cell = 0; cell < layout.cellCount; ++cell) {
+                int value = DECODE[buffer.get(recordStart + cell) & 0xFF];
+                if (value < 0 || value > layout.dimension) {
+                    throw new IllegalArgumentException(String.format("invalid value (%c) at cell %d of record at offset %d",
+                            (char) (buffer.get(recordStart + cell) & 0xFF), cell, offset + recordStart));
+                }
+                if (value != 0) {
+                    board.setValue(cell, value);
+                }
+            }
+            return true;
+        }
+
+        private boolean nextPacked(FlatSudokuBoard board) {
+            recordStart = buffer.position();
+            recordEnd = Math.min(buffer.limit(), recordStart + header.getRecordBytes());
+            if (board.getLayout() != header.getLayout()) {
+                buffer.position(recordEnd);
+                throw new IllegalArgumentException(String.format("record at offset %d is a %s puzzle, not %s",
+                        offset + recordStart, header.getLayout(), board.getLayout()));
+            }
+            if (recordEnd - recordStart != header.getRecordBytes()) {
+                buffer.position(recordEnd);
+                throw new IllegalArgumentException(String.format("truncated record (%d bytes) at offset %d",
+                        recordEnd - recordStart, offset + recordStart));
+            }
+            try {
+                PackedGridCodec.decode(buffer, board);
+            } catch (IllegalArgumentException invalid) {
+                throw new IllegalArgumentException(invalid.getMessage() + " of record at offset " + (offset + recordStart));
+            }
+            return true;
+        }
+
+        /**
+         * the text of the last record read by next (for reporting bad records; this one does allocate); a packed record
+         * is written as a compact grid (with ? for values out of range)
+         */
+        public String lastRecord() {
+            if (recordStart < 0) {
+                throw new IllegalStateException("no record has been read");
+            }
+            if (header != null) {
+                return packedRecord();
+            }
+            byte[] bytes = new byte[recordEnd - recordStart];
+            for (int x = 0; x < bytes.length; ++x) {
+                bytes[x] = buffer.get(recordStart + x);
+            }
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+
+        private String packedRecord() {
+            BoardLayout layout = header.getLayout();
+            if (recordEnd - recordStart != header.getRecordBytes()) {
+                return "";
+            }
+            int[] values = new int[layout.cellCount];
+            ByteBuffer record = buffer.duplicate();
+            record.position(recordStart);
+            try {
+                PackedGridCodec.decode(record, layout, values, 0);
+            } catch (IllegalArgumentException invalid) {
+                // the values are still there; they're just out of range
+            }
+            StringBuilder buf = new StringBuilder(layout.cellCount);
+            for (int value : values) {
+                buf.append(value == 0 ? '.' : value > layout.dimension ? '?' : BoardLayout.symbolOf(value));
+            }
+            return buf.toString();
+        }
+
+        private void skipLineEnds() {
+            int position = buffer.position();
+            int limit = buffer.limit();
+            while (position < limit && DECODE[buffer.get(position) & 0xFF] == -2) {
+                ++position;
+            }
+            buffer.position(position);
+        }
+    }
+}
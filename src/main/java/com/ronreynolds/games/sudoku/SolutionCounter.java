@@ -0,0 +1,241 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * counts the solutions of a puzzle (up to a limit) with a plain bitmask backtracking search: each group keeps a mask of
+ * the values placed in it so a cell's possible values are 3 ORs away and placing or un-placing a value is 3 XORs; we
+ * always branch on the empty cell with the fewest possible values (so forced cells are filled first)
+ * <p>
+ * only the givens of the board are used (not its possible values) and the board is never modified; every count works
+ * on its own arrays so any number of threads can count at once (as long as nobody modifies the board meanwhile)
+ * <p>
+ * a counter can also be kept and reused (by one thread) to count many grids of the same layout without allocating, and
+ * given a random source to try the values of a cell in random order (which makes the first solution a random grid)
+ */
+public final class SolutionCounter {
+    private static final int DEAD_END = -2;
+
+    private final BoardLayout layout;
+    private final int[] values;     // [cell] -> value (0 = empty); the givens plus the current guesses
+    private final int[] used;       // [group] -> mask of the values placed in the group
+    private final int[] empty;      // the empty cells; [0, depth) have been given a value by the search
+    private final int[] solution;   // the first solution found
+    private SplittableRandom random;    // null = try values lowest first
+    private int excludedCell = -1;      // a cell that may not have excludedBit (see countExcluding)
+    private int excludedBit;
+    private int limit;
+    private int solutions;
+
+    SolutionCounter(BoardLayout layout) {
+        this.layout = layout;
+        this.values = new int[layout.cellCount];
+        this.used = new int[layout.groupCount];
+        this.empty = new int[layout.cellCount];
+        this.solution = new int[layout.cellCount];
+    }
+
+    /**
+     * @param limit stop counting once this many solutions are found (1 = is it solvable? 2 = is the solution unique?)
+     * @return the number of solutions of the board's values, at most limit (0 if the values break the rules)
+     */
+    public static int count(@NonNull SudokuBoard board, int limit) {
+        return new SolutionCounter(board.getLayout()).count(valuesOf(board), limit);
+    }
+
+    /**
+     * @return the solution if the board has exactly 1; null if it has none or more than 1
+     */
+    public static int[] findUniqueSolution(@NonNull SudokuBoard board) {
+        SolutionCounter counter = new SolutionCounter(board.getLayout());
+        return counter.count(valuesOf(board), 2) == 1 ? counter.solution : null;
+    }
+
+    /**
+     * the values of each cell are tried in an order picked by random (null for lowest first)
+     */
+    void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * @param givens [cell] -> value (0 = empty); not modified
+     */
+    int count(int[] givens, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1 - " + limit);
+        }
+        this.limit = limit;
+        this.solutions = 0;
+        Arrays.fill(used, 0);
+        int emptyCount = 0;
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            int value = givens[cell];
+            values[cell] = value;
+            if (value == 0) {
+                empty[emptyCount++] = cell;
+                continue;
+            }
+            int bit = Candidates.bit(value);
+            for (int kind = BoardLayout.ROW; kind <= BoardLayout.BLOCK; ++kind) {
+                int group = layout.groupOf(cell, kind);
+                if ((used[group] & bit) != 0) {
+                    return 0;   // the same value twice in a group
+                }
+                used[group] |= bit;
+            }
+        }
+        search(0, emptyCount);
+        return solutions;
+    }
+
+    /**
+     * count the solutions in which cell doesn't have value; if givens plus that value has a unique solution then
+     * givens alone have a unique solution iff this is 0 (and it's much cheaper to find than counting to 2 since the
+     * search doesn't first have to find the solution we already know)
+     */
+    int countExcluding(int[] givens, int cell, int value, int limit) {
+        excludedCell = cell;
+        excludedBit = Candidates.bit(value);
+        try {
+            return count(givens, limit);
+        } finally {
+            excludedCell = -1;
+        }
+    }
+
+    /**
+     * the first solution found by the last count (only meaningful if it returned more than 0)
+     */
+    int[] getSolution() {
+        return solution;
+    }
+
+    private static int[] valuesOf(SudokuBoard board) {
+        int[] givens = new int[board.getLayout().cellCount];
+        for (int cell = 0; cell < givens.length; ++cell) {
+            givens[cell] = board.getValue(cell);
+        }
+        return givens;
+    }
+
+    // returns true once we have as many solutions as we wanted (so every level stops searching)
+    private boolean search(int depth, int emptyCount) {
+        if (depth == emptyCount) {
+            if (solutions++ == 0) {
+                System.arraycopy(values, 0, solution, 0, values.length);
+            }
+            return solutions >= limit;
+        }
+        // the empty cell with the fewest possible values goes next
+        int all = Candidates.all(layout.dimension);
+        int best = depth;
+        int bestCandidates = 0;
+        int bestCount = Integer.MAX_VALUE;
+        for (int x = depth; x < emptyCount; ++x) {
+            int candidates = candidatesOf(empty[x], all);
+            int count = Integer.bitCount(candidates);
+            if (count < bestCount) {
+                best = x;
+                bestCandidates = candidates;
+                bestCount = count;
+                if (count <= 1) {
+                    break;  // can't do better than forced (and 0 means this branch is dead)
+                }
+            }
+        }
+        if (bestCount == 0) {
+            return false;
+        }
+        if (bestCount > 1) {
+            // no cell is forced but a value may only fit in 1 cell of a group (or nowhere, which means a dead end)
+            int hidden = findHiddenSingle(all);
+            if (hidden == DEAD_END) {
+                return false;
+            }
+            if (hidden >= 0) {
+                best = indexOfEmpty(hidden / 32, depth, emptyCount);
+                bestCandidates = 1 << (hidden % 32);
+            }
+        }
+        int cell = empty[best];
+        empty[best] = empty[depth];
+        empty[depth] = cell;
+        int row = layout.groupOf(cell, BoardLayout.ROW);
+        int col = layout.groupOf(cell, BoardLayout.COLUMN);
+        int block = layout.groupOf(cell, BoardLayout.BLOCK);
+        for (int bits = bestCandidates; bits != 0; ) {
+            int bit = random == null || (bits & bits - 1) == 0 ? bits & -bits : randomBit(bits);
+            bits &= ~bit;
+            used[row] ^= bit;
+            used[col] ^= bit;
+            used[block] ^= bit;
+            values[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+            boolean done = search(depth + 1, emptyCount);
+            used[row] ^= bit;
+            used[col] ^= bit;
+            used[block] ^= bit;
+            if (done) {
+                return true;
+            }
+        }
+        values[cell] = 0;
+        return false;
+    }
+
+    // a value that fits in only 1 empty cell of a group as (cell * 32 + value bit), -1 if there's none, or DEAD_END
+    private int findHiddenSingle(int all) {
+        for (int group = 0; group < layout.groupCount; ++group) {
+            int once = 0;   // values possible in at least 1 empty cell of the group
+            int twice = 0;  // values possible in at least 2
+            for (int pos = 0; pos < layout.dimension; ++pos) {
+                int cell = layout.groupCell(group, pos);
+                if (values[cell] == 0) {
+                    int candidates = candidatesOf(cell, all);
+                    twice |= once & candidates;
+                    once |= candidates;
+                }
+            }
+            if ((once | used[group]) != all) {
+                return DEAD_END;    // a value that hasn't been placed has nowhere to go
+            }
+            int singles = once & ~twice;
+            if (singles != 0) {
+                int bit = Integer.numberOfTrailingZeros(singles);
+                for (int pos = 0; pos < layout.dimension; ++pos) {
+                    int cell = layout.groupCell(group, pos);
+                    if (values[cell] == 0 && (candidatesOf(cell, all) & 1 << bit) != 0) {
+                        return cell * 32 + bit;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int randomBit(int bits) {
+        for (int skip = random.nextInt(Integer.bitCount(bits)); skip > 0; --skip) {
+            bits &= bits - 1;
+        }
+        return bits & -bits;
+    }
+
+    private int indexOfEmpty(int cell, int from, int to) {
+        for (int x = from; x < to; ++x) {
+            if (empty[x] == cell) {
+                return x;
+            }
+        }
+        throw new IllegalStateException("cell " + cell + " isn't empty");
+    }
+
+    private int candidatesOf(int cell, int all) {
+        int candidates = all & ~(used[layout.groupOf(cell, BoardLayout.ROW)]
+                | used[layout.groupOf(cell, BoardLayout.COLUMN)]
+                | used[layout.groupOf(cell, BoardLayout.BLOCK)]);
+        return cell == excludedCell ? candidates & ~excludedBit : candidates;
+    }
+}
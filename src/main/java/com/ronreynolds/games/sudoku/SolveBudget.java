@@ -0,0 +1,128 @@
+package com.ronreynolds.games.sudoku;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * how long one solve may run: a deadline (System.nanoTime), a number of steps, or both; a step is one solver applied
+ * to one group or one search node (of any engine), so a solve that's out of budget stops within a few microseconds
+ * <p>
+ * a budget also stops the solve if the thread that made it or the thread checking it (the one running the solve) is
+ * interrupted (the interrupt is left set), so a budget with no limits (unlimited) just makes a solve interruptible
+ * wherever it runs; once it runs out it stays out
+ * <p>
+ * a budget is for one solve (its steps are spent) but it's thread-safe so the tasks of a ParallelSearch share it
+ */
+public final class SolveBudget {
+    private static final long NONE = Long.MAX_VALUE;
+    private static final int CLOCK_STEPS = 16;  // look at the clock (and for an interrupt) only every this many steps
+
+    private final long deadline;
+    private final long maxSteps;
+    private final Thread owner;
+    private final AtomicLong steps = new AtomicLong();
+    private volatile SolveStatus outcome;       // null until the budget runs out
+
+    private SolveBudget(long deadline, long maxSteps) {
+        if (maxSteps < 0) {
+            throw new IllegalArgumentException("invalid maxSteps " + maxSteps);
+        }
+        this.deadline = deadline;
+        this.maxSteps = maxSteps;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * no limits; the solve only stops early if this thread (or the one solving) is interrupted
+     */
+    public static SolveBudget unlimited() {
+        return new SolveBudget(NONE, NONE);
+    }
+
+    /**
+     * stop once timeout has passed (from now)
+     */
+    public static SolveBudget timeout(long timeout, TimeUnit unit) {
+        return deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * stop once System.nanoTime() passes deadline
+     */
+    public static SolveBudget deadline(long deadline) {
+        return new SolveBudget(deadline, NONE);
+    }
+
+    /**
+     * stop after maxSteps steps (which, unlike a timeout, stops at the same place every time)
+     */
+    public static SolveBudget steps(long maxSteps) {
+        return new SolveBudget(NONE, maxSteps);
+    }
+
+    /**
+     * the same deadline but no more than maxSteps steps either
+     */
+    public SolveBudget withSteps(long maxSteps) {
+        return new SolveBudget(deadline, maxSteps);
+    }
+
+    /**
+     * spend a step
+     *
+     * @return false if the budget has run out (the solve should stop and return getOutcome)
+     */
+    public boolean step() {
+        if (outcome != null) {
+            return false;
+        }
+        long spent = steps.incrementAndGet();
+        if (spent > maxSteps) {
+            outcome = SolveStatus.TIMED_OUT;
+            return false;
+        }
+        if (spent % CLOCK_STEPS == 0) {
+            return check();
+        }
+        return true;
+    }
+
+    /**
+     * look at the clock and for an interrupt without spending a step (e.g., before starting)
+     *
+     * @return false if the budget has run out
+     */
+    public boolean check() {
+        if (outcome != null) {
+            return false;
+        }
+        if (owner.isInterrupted() || Thread.currentThread().isInterrupted()) {
+            outcome = SolveStatus.INTERRUPTED;
+        } else if (deadline != NONE && System.nanoTime() - deadline >= 0) {
+            outcome = SolveStatus.TIMED_OUT;
+        }
+        return outcome == null;
+    }
+
+    public boolean isExhausted() {
+        return outcome != null;
+    }
+
+    /**
+     * TIMED_OUT or INTERRUPTED once the budget has run out; null until then
+     */
+    public SolveStatus getOutcome() {
+        return outcome;
+    }
+
+    public long getSteps() {
+        return Math.min(steps.get(), maxSteps);
+    }
+
+    @Override
+    public String toString() {
+        return "SolveBudget{steps=" + getSteps() + (maxSteps == NONE ? "" : "/" + maxSteps)
+                + (deadline == NONE ? "" : ", " + TimeUnit.NANOSECONDS.toMicros(deadline - System.nanoTime()) + "us left")
+                + (outcome == null ? "" : ", " + outcome) + "}";
+    }
+}
@@ -0,0 +1,104 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.StripedLruCache;
+import lombok.NonNull;
+
+import java.util.function.Supplier;
+
+/**
+ * remembers how puzzles were solved by their canonical form (see PuzzleCanonicalizer) so a puzzle that's a relabeling,
+ * reordering, or transposition of one already solved is solved by a lookup: the canonical solution is mapped back onto
+ * the puzzle's own orientation and values
+ * <p>
+ * the cache is bounded (least recently used entries are evicted) and safe to share between threads; each thread keeps
+ * its own canonicalizer; puzzles with no solution are remembered too but STALLED isn't since it depends on the options
+ * <p>
+ * grids too symmetric to canonicalize cheaply (e.g., empty or fully given; see PuzzleCanonicalizer.MAX_PARTIALS) are
+ * just solved, not cached
+ */
+public class SolveCache {
+    private static final int STRIPES = 64;
+    private static final int[] NO_SOLUTION = new int[0];
+
+    private final StripedLruCache<String, int[]> solutions;    // [canonical key] -> canonical solution
+    private final ThreadLocal<PuzzleCanonicalizer> canonicalizers = new ThreadLocal<>();
+
+    /**
+     * @param capacity the most puzzles remembered
+     */
+    public SolveCache(int capacity) {
+        this.solutions = new StripedLruCache<>(capacity, Math.min(STRIPES, capacity));
+    }
+
+    /**
+     * @return the canonical form of the board's values (which puzzles are cached by) or null if it's too symmetric
+     */
+    public CanonicalForm canonicalize(@NonNull SudokuBoard board) {
+        PuzzleCanonicalizer canonicalizer = canonicalizers.get();
+        if (canonicalizer == null || canonicalizer.getLayout() != board.getLayout()) {
+            canonicalizer = new PuzzleCanonicalizer(board.getLayout());
+            canonicalizers.set(canonicalizer);
+        }
+        return canonicalizer.canonicalize(board);
+    }
+
+    /**
+     * solve the board from the cache if an equivalent puzzle was solved before; otherwise with solver (and remember
+     * the result)
+     */
+    <B extends SudokuBoard> SolveStatus solve(B board, Supplier<SolveStatus> solver) {
+        CanonicalForm form = canonicalize(board);
+        if (form == null) {
+            return solver.get();
+        }
+        String key = keyOf(form);
+        int[] cached = solutions.get(key);
+        if (cached == NO_SOLUTION) {
+            return SolveStatus.NO_SOLUTION;
+        }
+        if (cached != null) {
+            int[] solution = form.toOriginal(cached);
+            for (int cell = 0; cell < solution.length; ++cell) {
+                if (board.getValue(cell) == 0) {
+                    board.setValue(cell, solution[cell]);
+                }
+            }
+            return SolveStatus.SOLVED;
+        }
+        SolveStatus status = solver.get();
+        if (status == SolveStatus.SOLVED) {
+            int[] values = new int[board.getLayout().cellCount];
+            for (int cell = 0; cell < values.length; ++cell) {
+                values[cell] = board.getValue(cell);
+            }
+            solutions.put(key, form.toCanonical(values));
+        } else if (status == SolveStatus.NO_SOLUTION) {
+            solutions.put(key, NO_SOLUTION);
+        }
+        return status;
+    }
+
+    public int size() {
+        return solutions.size();
+    }
+
+    public long getHits() {
+        return solutions.getHits();
+    }
+
+    public long getMisses() {
+        return solutions.getMisses();
+    }
+
+    @Override
+    public String toString() {
+        return "solve cache: " + solutions;
+    }
+
+    // the key alone doesn't say what size the puzzle is
+    private static String keyOf(CanonicalForm form) {
+        BoardLayout layout = form.getLayout();
+        return layout.isStandard() ? form.getKey()
+                : layout.blockRows + "x" + layout.blockCols + ":" + form.getKey();
+    }
+}
@@ -0,0 +1,9 @@
+package com.ronreynolds.games.sudoku;
+
+/**
+ * the ways Sudoku.solve can go about solving a puzzle
+ */
+public enum SolveEngine {
+    STRATEGIES,     // the human-style SudokuSolvers (plus search if SolveOptions.search is set)
+    DANCING_LINKS,  // exact cover via Algorithm X (always finds a solution if there is one)
+}
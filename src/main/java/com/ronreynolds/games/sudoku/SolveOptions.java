@@ -0,0 +1,71 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * the knobs of Sudoku.solve; the defaults behave like the original solve (solvers only, no search)
+ */
+@Getter
+@Builder(toBuilder = true)
+public class SolveOptions {
+    public static final SolveOptions DEFAULT = SolveOptions.builder().build();
+
+    /**
+     * if the solvers stall, guess a value for the cell with the fewest possibles and re-apply the solvers; undoing
+     * the guess (and trying the next) if it leads to a contradiction; the chain solvers are left out since guessing is
+     * cheaper (see SudokuSolver.getSearchSolvers)
+     */
+    @Builder.Default
+    private final boolean search = false;
+
+    /**
+     * which backend does the solving
+     */
+    @Builder.Default
+    private final SolveEngine engine = SolveEngine.STRATEGIES;
+
+    /**
+     * no logging of the puzzle and no messages to stdout; for batch and server use where there are lots of puzzles
+     */
+    @Builder.Default
+    private final boolean quiet = false;
+
+    /**
+     * if not null, what each solver costs and what it finds is added to these (they can be shared across threads)
+     */
+    private final SolverStats stats;
+
+    /**
+     * order the solvers by their cost per result so far (see SolverStats.adaptiveOrder) instead of cheapest first;
+     * only has an effect if there are stats
+     */
+    @Builder.Default
+    private final boolean adaptive = false;
+
+    /**
+     * if not null, the values set, possible values eliminated, and solver passes of the solve are appended to it (for
+     * SolveTraceRenderer); it's much cheaper than logging the board after each solver
+     */
+    private final SolveTrace trace;
+
+    /**
+     * if not null, puzzles equivalent to one already solved (relabeled, reordered, or transposed) are solved from it
+     * instead of by the engine; it can be shared across threads
+     */
+    private final SolveCache cache;
+
+    /**
+     * if not null (and search is on) the search is split across this pool (see ParallelSearch) instead of running on
+     * the calling thread; worth it for very hard puzzles and big boards, not for the rest
+     */
+    private final ForkJoinPool searchPool;
+
+    /**
+     * if not null, the solve stops (TIMED_OUT or INTERRUPTED) once this runs out; it's spent by the solve so it's for
+     * one solve only (see Sudoku.solveWithin)
+     */
+    private final SolveBudget budget;
+}
@@ -0,0 +1,12 @@
+package com.ronreynolds.games.sudoku;
+
+/**
+ * how a call to Sudoku.solve ended
+ */
+public enum SolveStatus {
+    SOLVED,         // every cell has a value
+    STALLED,        // the solvers ran out of ideas (and search was not enabled)
+    NO_SOLUTION,    // search tried every possibility; the puzzle can't be solved
+    TIMED_OUT,      // the SolveBudget ran out first; the board has whatever was found before then
+    INTERRUPTED,    // the solving thread was interrupted (see SolveBudget); the board is as for TIMED_OUT
+}
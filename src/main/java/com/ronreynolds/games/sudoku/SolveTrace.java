@@ -0,0 +1,178 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * a compact binary record of what happened during a solve: each event is a single long appended to a reusable
+ * buffer so recording costs a couple of shifts and a store (no Strings, no boxing); SolveTraceRenderer turns a trace
+ * into text after the fact
+ * <p>
+ * boards record VALUE_SET and ELIMINATED (via their trail) and UNDONE events; the PropagationScheduler records
+ * SOLVER_START and SOLVER_END around every solver pass; see SolveOptions.trace
+ * <p>
+ * event layout (bits): type [60-63], cell (or group count) [40-55], flag [32-39], payload [0-31] where the payload
+ * is the value, the mask of eliminated values, the solver ordinal, or the number of changes undone
+ * <p>
+ * ordinals change when solvers are added so the binary form (see write) has the names of the solvers in its header
+ * and a trace that was read names its solvers the way the build that wrote it did (see getSolverName)
+ */
+public class SolveTrace {
+    public static final int VALUE_SET = 1;      // cell, value
+    public static final int ELIMINATED = 2;     // cell, mask of the possible values removed
+    public static final int SOLVER_START = 3;   // solver ordinal
+    public static final int SOLVER_END = 4;     // solver ordinal, groups it looked at, flag = helped
+    public static final int UNDONE = 5;         // number of changes rolled back (e.g., a failed guess)
+
+    private static final int MAGIC = 0x53545232;        // "STR2"
+    private static final int UNNAMED_MAGIC = 0x53545243;    // "STRC": the first format, without the solver names
+
+    private final BoardLayout layout;
+    private final String[] solverNames;     // [ordinal] -> name; null for the names of this build
+    private long[] events;
+    private int size;
+
+    public SolveTrace(@NonNull BoardLayout layout) {
+        this(layout, 1024);
+    }
+
+    public SolveTrace(@NonNull BoardLayout layout, int capacity) {
+        this(layout, capacity, null);
+    }
+
+    private SolveTrace(BoardLayout layout, int capacity, String[] solverNames) {
+        this.layout = layout;
+        this.events = new long[Math.max(capacity, 16)];
+        this.solverNames = solverNames;
+    }
+
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * forget all events (but keep the buffer) so the trace can be reused for the next solve
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    void valueSet(int cell, int value) {
+        append(encode(VALUE_SET, cell, 0, value));
+    }
+
+    void eliminated(int cell, int mask) {
+        append(encode(ELIMINATED, cell, 0, mask));
+    }
+
+    void solverStart(SudokuSolver solver) {
+        append(encode(SOLVER_START, 0, 0, solver.ordinal()));
+    }
+
+    void solverEnd(SudokuSolver solver, int groups, boolean helped) {
+        append(encode(SOLVER_END, Math.min(groups, 0xFFFF), helped ? 1 : 0, solver.ordinal()));
+    }
+
+    void undone(int changes) {
+        append(encode(UNDONE, 0, 0, changes));
+    }
+
+    public int getType(int event) {
+        return (int) (events[event] >>> 60);
+    }
+
+    /**
+     * the cell of a VALUE_SET or ELIMINATED event; the number of groups of a SOLVER_END event
+     */
+    public int getCell(int event) {
+        return (int) (events[event] >>> 40) & 0xFFFF;
+    }
+
+    public boolean getFlag(int event) {
+        return ((events[event] >>> 32) & 0xFF) != 0;
+    }
+
+    /**
+     * the value, mask of values, solver ordinal, or number of changes (depending on the type of the event)
+     */
+    public int getPayload(int event) {
+        return (int) events[event];
+    }
+
+    /**
+     * the name of the solver of a SOLVER_START or SOLVER_END event (its payload) as it was when the trace was recorded
+     */
+    public String getSolverName(int ordinal) {
+        if (solverNames == null) {
+            return SudokuSolver.getSolvers()[ordinal].name();
+        }
+        return ordinal < solverNames.length ? solverNames[ordinal] : "solver " + ordinal;
+    }
+
+    /**
+     * write the layout, the solver names, and the events; the counterpart of read
+     */
+    public void write(@NonNull OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(layout.blockRows);
+        data.writeByte(layout.blockCols);
+        int solvers = solverNames == null ? SudokuSolver.getSolvers().length : solverNames.length;
+        data.writeShort(solvers);
+        for (int ordinal = 0; ordinal < solvers; ++ordinal) {
+            data.writeUTF(getSolverName(ordinal));
+        }
+        data.writeInt(size);
+        for (int x = 0; x < size; ++x) {
+            data.writeLong(events[x]);
+        }
+        data.flush();
+    }
+
+    public static SolveTrace read(@NonNull InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int magic = data.readInt();
+        if (magic == UNNAMED_MAGIC) {
+            // its solver ordinals are from some older build and may not mean the same solvers now
+            throw new IOException("a solve trace without solver names (written by an older version)");
+        }
+        if (magic != MAGIC) {
+            throw new IOException("not a solve trace");
+        }
+        BoardLayout layout = BoardLayout.of(data.readUnsignedByte(), data.readUnsignedByte());
+        String[] solverNames = new String[data.readUnsignedShort()];
+        for (int ordinal = 0; ordinal < solverNames.length; ++ordinal) {
+            solverNames[ordinal] = data.readUTF();
+        }
+        int size = data.readInt();
+        if (size < 0) {
+            throw new IOException("invalid event count " + size);
+        }
+        SolveTrace trace = new SolveTrace(layout, size, solverNames);
+        for (int x = 0; x < size; ++x) {
+            trace.append(data.readLong());
+        }
+        return trace;
+    }
+
+    private static long encode(int type, int cell, int flag, int payload) {
+        return (long) type << 60 | (long) cell << 40 | (long) flag << 32 | (payload & 0xFFFFFFFFL);
+    }
+
+    private void append(long event) {
+        if (size == events.length) {
+            events = Arrays.copyOf(events, 2 * events.length);
+        }
+        events[size++] = event;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * turns a SolveTrace into text, one line per event, e.g.
+ * <pre>
+ * HIDDEN_SINGLES
+ *   (0,1) = 5
+ *   (0,3) -[2, 7]
+ * HIDDEN_SINGLES looked at 27 groups and helped
+ * </pre>
+ * events outside of a solver pass are givens, search guesses, or undos of failed guesses
+ * <p>
+ * usage: SolveTraceRenderer trace-file... (as written by SolveTrace.write; solvers are named as they were in the build
+ * that wrote it)
+ */
+public class SolveTraceRenderer {
+    public static void main(String[] args) {
+        for (String file : args) {
+            try (InputStream in = Files.newInputStream(Path.of(file))) {
+                render(SolveTrace.read(in), System.out);
+            } catch (IOException | RuntimeException fail) {
+                System.err.println("failed to render " + file + " - " + fail);
+            }
+        }
+    }
+
+    public static String render(@NonNull SolveTrace trace) {
+        StringBuilder buf = new StringBuilder(32 * trace.size());
+        render(trace, buf);
+        return buf.toString();
+    }
+
+    public static void render(@NonNull SolveTrace trace, @NonNull Appendable out) {
+        BoardLayout layout = trace.getLayout();
+        String indent = "";
+        try {
+            for (int event = 0; event < trace.size(); ++event) {
+                int payload = trace.getPayload(event);
+                switch (trace.getType(event)) {
+                    case SolveTrace.VALUE_SET:
+                        out.append(indent).append(cellName(layout, trace.getCell(event))).append(" = ")
+                                .append(BoardLayout.symbolOf(payload)).append('\n');
+                        break;
+                    case SolveTrace.ELIMINATED:
+                        out.append(indent).append(cellName(layout, trace.getCell(event))).append(" -")
+                                .append(Candidates.toString(payload)).append('\n');
+                        break;
+                    case SolveTrace.SOLVER_START:
+                        out.append(trace.getSolverName(payload)).append('\n');
+                        indent = "  ";
+                        break;
+                    case SolveTrace.SOLVER_END:
+                        out.append(trace.getSolverName(payload)).append(" looked at ")
+                                .append(String.valueOf(trace.getCell(event)))
+                                .append(" groups and ").append(trace.getFlag(event) ? "helped" : "didn't help").append('\n');
+                        indent = "";
+                        break;
+                    case SolveTrace.UNDONE:
+                        out.append(indent).append("undid ").append(String.valueOf(payload)).append(" changes\n");
+                        break;
+                    default:
+                        out.append(indent).append("unknown event ").append(String.valueOf(trace.getType(event))).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String cellName(BoardLayout layout, int cell) {
+        return "(" + layout.rowOf(cell) + "," + layout.columnOf(cell) + ")";
+    }
+}
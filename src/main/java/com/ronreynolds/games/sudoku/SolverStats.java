@@ -0,0 +1,128 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.LatencyHistogram;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * what each solver costs and what it finds: how many groups it was applied to, the time spent, and the possible values
+ * eliminated and values placed as a result; thread-safe so one instance can collect the stats of a whole batch
+ * <p>
+ * the stats also drive the adaptive solver order (see SolveOptions.adaptive): solvers are sorted by time spent per
+ * result so cheap productive solvers run first and solvers that rarely find anything are deferred to the end
+ */
+public class SolverStats {
+    // a solver needs this many groups of history before its (lack of) results are trusted to reorder it
+    static final int MIN_CALLS = 100;
+
+    private static final int CALLS = 0;
+    private static final int NANOS = 1;
+    private static final int ELIMINATIONS = 2;
+    private static final int PLACEMENTS = 3;
+    private static final int FIELDS = 4;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SudokuSolver.values().length * FIELDS);
+
+    /**
+     * @param calls        the number of groups the solver was applied to
+     * @param nanos        the time it took
+     * @param eliminations possible values removed from cells by the solver
+     * @param placements   values set by the solver
+     */
+    public void record(@NonNull SudokuSolver solver, long calls, long nanos, long eliminations, long placements) {
+        int base = solver.ordinal() * FIELDS;
+        counts.addAndGet(base + CALLS, calls);
+        counts.addAndGet(base + NANOS, nanos);
+        counts.addAndGet(base + ELIMINATIONS, eliminations);
+        counts.addAndGet(base + PLACEMENTS, placements);
+    }
+
+    /**
+     * add everything recorded by the other stats to these
+     */
+    public void add(@NonNull SolverStats other) {
+        for (int x = 0; x < counts.length(); ++x) {
+            counts.addAndGet(x, other.counts.get(x));
+        }
+    }
+
+    public long getCalls(SudokuSolver solver) {
+        return get(solver, CALLS);
+    }
+
+    public long getNanos(SudokuSolver solver) {
+        return get(solver, NANOS);
+    }
+
+    public long getEliminations(SudokuSolver solver) {
+        return get(solver, ELIMINATIONS);
+    }
+
+    public long getPlacements(SudokuSolver solver) {
+        return get(solver, PLACEMENTS);
+    }
+
+    /**
+     * @return time spent per value eliminated or placed; the time spent if the solver never found anything
+     */
+    public double getCostPerResult(SudokuSolver solver) {
+        long results = getEliminations(solver) + getPlacements(solver);
+        return (double) getNanos(solver) / Math.max(results, 1);
+    }
+
+    /**
+     * the solvers sorted by cost per result (cheapest first) with the ones that never found anything last; solvers
+     * with less than MIN_CALLS of history go first (in the order given) so they get a chance to prove themselves
+     */
+    public SudokuSolver[] adaptiveOrder(@NonNull SudokuSolver[] solvers) {
+        // the keys are read once up front: other threads may be recording while we sort and a comparator whose answers
+        // change in the middle of a sort doesn't give a sorted order (or may make the sort throw)
+        double[] keys = new double[SudokuSolver.getSolvers().length];
+        for (SudokuSolver solver : solvers) {
+            keys[solver.ordinal()] = sortKey(solver);
+        }
+        SudokuSolver[] ordered = solvers.clone();
+        Arrays.sort(ordered, Comparator.comparingDouble(solver -> keys[solver.ordinal()]));
+        return ordered;
+    }
+
+    // the sort is stable so solvers with the same key keep the order they were given in
+    private double sortKey(SudokuSolver solver) {
+        if (getCalls(solver) < MIN_CALLS) {
+            return -1;
+        }
+        if (getEliminations(solver) + getPlacements(solver) == 0) {
+            return Double.MAX_VALUE;    // never found anything; deferred to last
+        }
+        return getCostPerResult(solver);
+    }
+
+    /**
+     * a table of the stats of every solver that was used (in declaration order)
+     */
+    public String report() {
+        StringBuilder buf = new StringBuilder(String.format("%-16s %12s %12s %14s %12s %14s%n",
+                "solver", "groups", "time", "eliminations", "placements", "ns/result"));
+        for (SudokuSolver solver : SudokuSolver.values()) {
+            if (getCalls(solver) == 0) {
+                continue;
+            }
+            buf.append(String.format("%-16s %12d %12s %14d %12d %14.1f%n", solver, getCalls(solver),
+                    LatencyHistogram.format(getNanos(solver)), getEliminations(solver),
+                    getPlacements(solver), getCostPerResult(solver)));
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+
+    private long get(SudokuSolver solver, int field) {
+        return counts.get(solver.ordinal() * FIELDS + field);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ronreynolds.games.sudoku;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * the strong links of every value of a board: two cells are strongly linked for a value when they're the only cells of
+ * some group where it's still possible (so if one of them isn't that value the other one is); a cell has at most one
+ * partner per kind of group
+ * <p>
+ * the links are made from the positions index (see SudokuBoard.getPositions) and kept up to date incrementally: refresh
+ * only reads the groups whose version changed since it last looked and only touches the links of values whose
+ * positions changed in them; each value also has a version that changes whenever the cells where it's possible change
+ * so a chain search can tell if anything it depends on changed since it last ran (see ChainSearch)
+ * <p>
+ * the board is only held weakly: graphs live as long as their thread (see ChainSearch) and mustn't keep the last board
+ * each one looked at alive
+ * <p>
+ * not thread-safe
+ */
+final class StrongLinkGraph {
+    static final int NONE = -1;
+    private static final int NEVER = -1;    // no real group version is negative
+
+    final BoardLayout layout;
+    private final int[] partners;       // [((value - 1) * cellCount + cell) * 3 + kind] -> linked cell (or NONE)
+    private final int[] positions;      // [group * dimension + value - 1] -> the positions the links were made from
+    private final int[] groupVersions;  // [group] -> the group's version when its positions were read
+    private final int[] valueVersions;  // [value - 1] -> changes whenever the cells where value is possible change
+    private int version;                // changes whenever any value's version does
+    private WeakReference<SudokuBoard> board = new WeakReference<>(null);   // the board the links were made from
+
+    StrongLinkGraph(BoardLayout layout) {
+        this.layout = layout;
+        this.partners = new int[layout.dimension * layout.cellCount * 3];
+        this.positions = new int[layout.groupCount * layout.dimension];
+        this.groupVersions = new int[layout.groupCount];
+        this.valueVersions = new int[layout.dimension];
+        Arrays.fill(partners, NONE);
+        Arrays.fill(groupVersions, NEVER);
+    }
+
+    /**
+     * bring the links up to date with the board (which must have this graph's layout); a different board than last
+     * time has all its groups read but the links (and versions) only change where its possible values differ
+     */
+    void refresh(SudokuBoard board) {
+        if (board != this.board.get()) {
+            this.board = new WeakReference<>(board);
+            Arrays.fill(groupVersions, NEVER);
+        }
+        int dimension = layout.dimension;
+        for (int group = 0; group < layout.groupCount; ++group) {
+            int groupVersion = board.getGroupVersion(group);
+            if (groupVersion == groupVersions[group]) {
+                continue;
+            }
+            groupVersions[group] = groupVersion;
+            int kind = layout.kindOf(group);
+            for (int value = 1; value <= dimension; ++value) {
+                int now = board.getPositions(group, value);
+                int was = positions[group * dimension + value - 1];
+                if (now == was) {
+                    continue;
+                }
+                positions[group * dimension + value - 1] = now;
+                if (Integer.bitCount(was) == 2) {
+                    link(value, group, kind, was, false);
+                }
+                if (Integer.bitCount(now) == 2) {
+                    link(value, group, kind, now, true);
+                }
+                ++valueVersions[value - 1];
+                ++version;
+            }
+        }
+    }
+
+    private void link(int value, int group, int kind, int pair, boolean linked) {
+        int first = layout.groupCell(group, Integer.numberOfTrailingZeros(pair));
+        int second = layout.groupCell(group, 31 - Integer.numberOfLeadingZeros(pair));
+        int base = (value - 1) * layout.cellCount;
+        partners[(base + first) * 3 + kind] = linked ? second : NONE;
+        partners[(base + second) * 3 + kind] = linked ? first : NONE;
+    }
+
+    /**
+     * @return the other cell of the group of that kind (BoardLayout.ROW, COLUMN, or BLOCK) that's the only other place
+     * for value, or NONE if there isn't exactly one
+     */
+    int partner(int value, int cell, int kind) {
+        return partners[((value - 1) * layout.cellCount + cell) * 3 + kind];
+    }
+
+    boolean hasPartner(int value, int cell) {
+        int at = ((value - 1) * layout.cellCount + cell) * 3;
+        return partners[at] != NONE || partners[at + 1] != NONE || partners[at + 2] != NONE;
+    }
+
+    /**
+     * a counter that changes whenever the cells where value is possible change
+     */
+    int getValueVersion(int value) {
+        return valueVersions[value - 1];
+    }
+
+    /**
+     * a counter that changes whenever any possible value of any cell changes
+     */
+    int getVersion() {
+        return version;
+    }
+}
@@ -5,15 +5,34 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.Set;
 
 @Slf4j
 public class Sudoku {
-    public static final int dimension = 9;  // kept as constant in case we someday want to do 16x16 Sudoku. :)
+    // the size of the classic puzzle; other sizes (16x16, 6x6 with 2x3 blocks, ...) are per board (see BoardLayout)
+    public static final int dimension = 9;
     public static final int blockSize = (int) Math.sqrt(dimension);
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            SudokuBatch.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--generate")) {
+            SudokuGenerator.main(args);
+            return;
+        }
+        if (args.length > 0 && (args[0].equals("--pack") || args[0].equals("--unpack"))) {
+            PackedPuzzleWriter.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            SudokuServer.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--load")) {
+            SudokuLoadClient.main(args);
+            return;
+        }
         for (String file : args) {
             try {
                 String compactGrid = Files.readString(Path.of(file));
@@ -31,6 +50,35 @@ public class Sudoku {
         return sudokuPuzzle.isValid();
     }
 
+    /**
+     * count the solutions of the puzzle but stop once there are limit of them; safe to call from any number of threads
+     *
+     * @param limit 1 to check if the puzzle can be solved, 2 to check if its solution is unique, ...
+     * @return the number of solutions (never more than limit); 0 if the puzzle breaks the rules
+     */
+    public static int countSolutions(char[][] puzzle, int limit) {
+        return countSolutions(SudokuPuzzle.create(puzzle), limit);
+    }
+
+    public static int countSolutions(SudokuBoard puzzle, int limit) {
+        return SolutionCounter.count(puzzle, limit);
+    }
+
+    /**
+     * a proper puzzle has exactly 1 solution
+     */
+    public static boolean hasUniqueSolution(SudokuBoard puzzle) {
+        return SolutionCounter.count(puzzle, 2) == 1;
+    }
+
+    /**
+     * the next single deduction the solvers can make (the puzzle isn't changed) or null if they can't make any; to ask
+     * again after every move keep a HintFinder for the puzzle instead (it skips what hasn't changed)
+     */
+    public static Hint nextHint(SudokuBoard puzzle) {
+        return new HintFinder(puzzle).next();
+    }
+
     public static boolean solve(char[][] puzzle) {
         SudokuPuzzle sudokuPuzzle = SudokuPuzzle.create(puzzle);
         if (!sudokuPuzzle.isValid()) {
@@ -41,47 +89,153 @@ public class Sudoku {
         return sudokuPuzzle.isSolved();
     }
 
+    // for when nobody's watching
+    static final TriConsumer<SudokuSolver, Boolean, SudokuBoard> NO_LOGGING = (solver, helped, puzzle) -> {
+    };
+
     // no pauses between solvers
-    private static final TriConsumer<SudokuSolver, Boolean, SudokuPuzzle> LOG_RESULT = (solver, helped, puzzle) -> {
+    private static final TriConsumer<SudokuSolver, Boolean, SudokuBoard> LOG_RESULT = (solver, helped, puzzle) -> {
         if (helped) {
-            log.info("{} helped; puzzle:\n{}", solver, puzzle);
+            // rendering the board is expensive; use a SolveTrace to see every change
+            log.info("{} helped", solver);
+            log.debug("puzzle:\n{}", puzzle);
         } else {
             log.info("{} didn't help", solver);
         }
     };
 
-    public static void solve(SudokuPuzzle sudokuPuzzle) {
+    public static void solve(SudokuBoard sudokuPuzzle) {
         solve(sudokuPuzzle, LOG_RESULT);
     }
 
-    public static void solve(SudokuPuzzle sudokuPuzzle, TriConsumer<SudokuSolver, Boolean, SudokuPuzzle> afterSolver) {
-        log.info("starting solve of puzzle:\n{}", sudokuPuzzle);
+    /**
+     * apply the solvers to any board implementation (SudokuPuzzle, FlatSudokuBoard, ...) until it's solved or none of
+     * them help; afterSolver is called after every solver is applied
+     */
+    public static <B extends SudokuBoard> void solve(B sudokuPuzzle, TriConsumer<SudokuSolver, Boolean, ? super B> afterSolver) {
+        solve(sudokuPuzzle, SolveOptions.DEFAULT, afterSolver);
+    }
 
-        while (!sudokuPuzzle.isSolved()) {
-            boolean anySolverHelped = false;
-            // apply all solvers to the puzzle
-            for (SudokuSolver solver : SudokuSolver.getSolvers()) {
-                boolean solverHelped = solver.apply(sudokuPuzzle);
-                afterSolver.accept(solver, solverHelped, sudokuPuzzle);
-                anySolverHelped |= solverHelped;
-                if (sudokuPuzzle.isSolved()) {
-                    break;  // once we've solved it no point applying any more solvers
-                }
-            }
-            // we ran all the solvers and none of them helped :(
-            if (!anySolverHelped) {
-                System.out.println("The given Sudoku puzzle is unsolvable (by this app)");
-                break;
+    public static SolveStatus solve(SudokuBoard sudokuPuzzle, SolveOptions options) {
+        return solve(sudokuPuzzle, options, LOG_RESULT);
+    }
+
+    /**
+     * same as solve(board, options) but give up once budget runs out (or this thread is interrupted); the board keeps
+     * whatever was found by then and the status says how it ended (TIMED_OUT or INTERRUPTED if it was cut short)
+     */
+    public static SolveStatus solveWithin(SudokuBoard sudokuPuzzle, SolveOptions options, SolveBudget budget) {
+        return solve(sudokuPuzzle, options.toBuilder().budget(budget).build());
+    }
+
+    /**
+     * same as solve(board, afterSolver) but if the options enable search and the solvers stall we fall back to a
+     * backtracking search (which re-applies the solvers after every guess)
+     */
+    public static <B extends SudokuBoard> SolveStatus solve(B sudokuPuzzle, SolveOptions options,
+                                                            TriConsumer<SudokuSolver, Boolean, ? super B> afterSolver) {
+        boolean quiet = options.isQuiet();
+        if (!quiet) {
+            log.info("starting solve of puzzle:\n{}", sudokuPuzzle);
+        }
+        SolveStatus status = solveQuietly(sudokuPuzzle, options, quiet ? NO_LOGGING : afterSolver);
+        if (!quiet) {
+            switch (status) {
+                case STALLED:
+                    // we ran all the solvers and none of them helped :(
+                    System.out.println("The given Sudoku puzzle is unsolvable (by this app)");
+                    break;
+                case NO_SOLUTION:
+                    System.out.println("The given Sudoku puzzle has no solution");
+                    break;
+                case TIMED_OUT:
+                case INTERRUPTED:
+                    System.out.println("The given Sudoku puzzle wasn't solved in time (" + status + ")");
+                    break;
+                default:
+                    break;
             }
         }
+        return status;
+    }
+
+    private static <B extends SudokuBoard> SolveStatus solveQuietly(B sudokuPuzzle, SolveOptions options,
+                                                                    TriConsumer<SudokuSolver, Boolean, ? super B> afterSolver) {
+        if (options.getTrace() == null) {
+            return solveCached(sudokuPuzzle, options, afterSolver);
+        }
+        SolveTrace previous = sudokuPuzzle.getTrace();
+        sudokuPuzzle.setTrace(options.getTrace());
+        try {
+            return solveCached(sudokuPuzzle, options, afterSolver);
+        } finally {
+            sudokuPuzzle.setTrace(previous);
+        }
+    }
+
+    private static <B extends SudokuBoard> SolveStatus solveCached(B sudokuPuzzle, SolveOptions options,
+                                                                   TriConsumer<SudokuSolver, Boolean, ? super B> afterSolver) {
+        SolveCache cache = options.getCache();
+        if (cache == null) {
+            return runEngine(sudokuPuzzle, options, afterSolver);
+        }
+        return cache.solve(sudokuPuzzle, () -> runEngine(sudokuPuzzle, options, afterSolver));
+    }
+
+    private static <B extends SudokuBoard> SolveStatus runEngine(B sudokuPuzzle, SolveOptions options,
+                                                                 TriConsumer<SudokuSolver, Boolean, ? super B> afterSolver) {
+        SolveBudget budget = options.getBudget();
+        if (budget != null && !budget.check()) {
+            return budget.getOutcome();
+        }
+        if (options.getEngine() == SolveEngine.DANCING_LINKS) {
+            return solveExactCover(sudokuPuzzle, budget);
+        }
+        SolverStats stats = options.getStats();
+        // a search is cheaper than the board-wide solvers (the chains) so a solve that can search leaves them out (its
+        // search reuses this scheduler and re-runs the solvers at every node)
+        SudokuSolver[] solvers = options.isSearch() ? SudokuSolver.getSearchSolvers() : SudokuSolver.getSolvers();
+        if (options.isAdaptive() && stats != null) {
+            solvers = stats.adaptiveOrder(solvers);
+        }
+        // only (solver, group) pairs whose group changed since that solver last saw it are run
+        PropagationScheduler<B> scheduler = new PropagationScheduler<>(sudokuPuzzle, solvers, stats);
+        scheduler.setBudget(budget);
+        scheduler.run(afterSolver);
+        if (sudokuPuzzle.isSolved()) {
+            return SolveStatus.SOLVED;
+        }
+        if (budget != null && budget.isExhausted()) {
+            return budget.getOutcome();
+        }
+        if (options.isSearch() && options.getSearchPool() != null) {
+            ParallelSearch search = new ParallelSearch(sudokuPuzzle, options.getSearchPool(), budget);
+            boolean solved = search.solve();
+            log.debug("parallel search {} after {} nodes ({} forks)", solved ? "succeeded" : "failed",
+                    search.getNodes(), search.getForks());
+            return solved ? SolveStatus.SOLVED : unlessOutOfBudget(budget, SolveStatus.NO_SOLUTION);
+        }
+        if (options.isSearch()) {
+            BacktrackingSearch<B> search = new BacktrackingSearch<>(sudokuPuzzle, scheduler, budget);
+            boolean solved = search.solve();
+            log.debug("search {} after {} nodes", solved ? "succeeded" : "failed", search.getNodes());
+            return solved ? SolveStatus.SOLVED : unlessOutOfBudget(budget, SolveStatus.NO_SOLUTION);
+        }
+        return SolveStatus.STALLED;
     }
 
-    // return a set of all possible values in a puzzle of the Sudoku.dimension size
-    public static Set<Integer> newAllValuesSet() {
-        Set<Integer> values = new HashSet<>();
-        for (int val = 1; val <= Sudoku.dimension; ++val) {
-            values.add(val);
+    private static SolveStatus solveExactCover(SudokuBoard sudokuPuzzle, SolveBudget budget) {
+        DancingLinks dancingLinks = new DancingLinks(sudokuPuzzle);
+        dancingLinks.setBudget(budget);
+        if (dancingLinks.solve(1) == 0) {
+            return unlessOutOfBudget(budget, SolveStatus.NO_SOLUTION);
         }
-        return values;
+        dancingLinks.copySolutionTo(sudokuPuzzle);
+        return SolveStatus.SOLVED;
+    }
+
+    // a search that gave up because it ran out of budget didn't prove anything
+    private static SolveStatus unlessOutOfBudget(SolveBudget budget, SolveStatus status) {
+        return budget != null && budget.isExhausted() ? budget.getOutcome() : status;
     }
 }
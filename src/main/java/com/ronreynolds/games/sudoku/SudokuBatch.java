@@ -0,0 +1,242 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.LatencyHistogram;
+import lombok.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * solves a corpus of puzzles (one compact grid per line, or packed; see PackedGridCodec) on a pool of worker threads and writes one line per puzzle to
+ * the output in input order: the solved grid, or the partial grid followed by the SolveStatus if it wasn't solved
+ * <p>
+ * the input is memory-mapped and split at line boundaries (see PuzzleCorpus) into chunks that are decoded and solved by
+ * the workers so they aren't fighting over a queue per puzzle; only a bounded number of chunks are ever in flight (so
+ * memory doesn't grow with the size of the corpus) and no per-puzzle logging is done
+ * <p>
+ * every solution is checked (see SudokuValidator) before it's written; one that breaks a rule is written as the grid
+ * followed by WRONG and the conflict
+ */
+public class SudokuBatch {
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
+
+    private final int threads;
+    private final int chunkBytes;
+    private final SolveOptions options;
+    // each worker reuses one board for all of its puzzles
+    private final ThreadLocal<FlatSudokuBoard> boards;
+    private final ThreadLocal<SudokuValidator> validators;
+    // and keeps its own solver stats (so workers don't contend on them and adaptive workers learn from their own)
+    private final List<SolverStats> workerStats = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<SolveOptions> workerOptions = ThreadLocal.withInitial(this::newWorkerOptions);
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();     // lines that weren't even valid puzzles
+    private final AtomicLong wrong = new AtomicLong();      // solutions that broke a rule
+
+    /**
+     * @param chunkBytes how much of the (memory-mapped) input each worker takes at a time; see PuzzleCorpus
+     */
+    public SudokuBatch(int threads, int chunkBytes, @NonNull SolveOptions options) {
+        this(threads, chunkBytes, options, BoardLayout.standard());
+    }
+
+    /**
+     * @param layout the size and block shape of every puzzle of the input
+     */
+    public SudokuBatch(int threads, int chunkBytes, @NonNull SolveOptions options, @NonNull BoardLayout layout) {
+        if (threads < 1 || chunkBytes < 1) {
+            throw new IllegalArgumentException(String.format("invalid threads (%d) or chunkBytes (%d)", threads, chunkBytes));
+        }
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+        this.options = options.toBuilder().quiet(true).build();
+        this.boards = ThreadLocal.withInitial(() -> new FlatSudokuBoard(layout));
+        this.validators = ThreadLocal.withInitial(() -> new SudokuValidator(layout));
+    }
+
+    /**
+     * usage: --batch input output [--threads N] [--chunk BYTES] [--engine STRATEGIES|DANCING_LINKS] [--adaptive]
+     * [--block RxC] (e.g., 4x4 for 16x16 puzzles) [--cache N] (remember the solutions of N puzzles; see SolveCache)
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkBytes = PuzzleCorpus.DEFAULT_CHUNK_BYTES;
+        SolveOptions.SolveOptionsBuilder options = SolveOptions.DEFAULT.toBuilder().search(true);
+        BoardLayout layout = null;
+        SolveCache cache = null;
+        for (int x = 0; x < args.length; ++x) {
+            switch (args[x]) {
+                case "--batch":
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++x]);
+                    break;
+                case "--chunk":
+                    chunkBytes = Integer.parseInt(args[++x]);
+                    break;
+                case "--engine":
+                    options.engine(SolveEngine.valueOf(args[++x].toUpperCase()));
+                    break;
+                case "--adaptive":
+                    options.adaptive(true);
+                    break;
+                case "--block":
+                    layout = BoardLayout.parse(args[++x]);
+                    break;
+                case "--cache":
+                    cache = new SolveCache(Integer.parseInt(args[++x]));
+                    options.cache(cache);
+                    break;
+                default:
+                    files.add(args[x]);
+            }
+        }
+        if (files.size() != 2) {
+            System.err.println("usage: --batch <input> <output> [--threads N] [--chunk BYTES]"
+                    + " [--engine STRATEGIES|DANCING_LINKS] [--adaptive] [--block RxC] [--cache N]");
+            return;
+        }
+        if (layout == null) {
+            // a packed input says what it holds; text is 9x9 unless told otherwise
+            try (PuzzleCorpus corpus = new PuzzleCorpus(Path.of(files.get(0)))) {
+                layout = corpus.getLayout() != null ? corpus.getLayout() : BoardLayout.standard();
+            }
+        }
+        SudokuBatch batch = new SudokuBatch(threads, chunkBytes, options.build(), layout);
+        System.out.println(batch.run(Path.of(files.get(0)), Path.of(files.get(1))));
+        System.out.print(batch.getSolverStats().report());
+        if (cache != null) {
+            System.out.println(cache);
+        }
+    }
+
+    /**
+     * solve every puzzle in input and write the results to output
+     *
+     * @return a summary of throughput and per-puzzle latency
+     */
+    public String run(@NonNull Path input, @NonNull Path output) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (PuzzleCorpus corpus = new PuzzleCorpus(input, chunkBytes);
+             BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+            ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+            int maxInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+            PuzzleCorpus.Chunk chunk;
+            while ((chunk = corpus.nextChunk()) != null) {
+                PuzzleCorpus.Chunk lines = chunk;
+                inFlight.add(workers.submit(() -> solveChunk(lines)));
+                // oldest first so the output stays in input order
+                while (inFlight.size() >= maxInFlight) {
+                    writer.write(await(inFlight.remove()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writer.write(await(inFlight.remove()));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        long count = latency.getCount();
+        return String.format("%d puzzles (%d solved, %d invalid%s) in %s using %d threads: %.0f puzzles/s; latency %s",
+                count, solved.get(), failed.get(), wrong.get() == 0 ? "" : ", " + wrong.get() + " wrong",
+                LatencyHistogram.format(elapsed), threads,
+                count * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(elapsed, 1), latency.summary());
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getSolvedCount() {
+        return solved.get();
+    }
+
+    /**
+     * how many solutions failed validation (which would be a bug in a solver)
+     */
+    public long getWrongCount() {
+        return wrong.get();
+    }
+
+    /**
+     * what each solver cost and found over all of the puzzles solved so far (by all of the workers)
+     */
+    public SolverStats getSolverStats() {
+        SolverStats total = new SolverStats();
+        for (SolverStats stats : workerStats) {
+            total.add(stats);
+        }
+        return total;
+    }
+
+    private SolveOptions newWorkerOptions() {
+        SolverStats stats = new SolverStats();
+        workerStats.add(stats);
+        return options.toBuilder().stats(stats).build();
+    }
+
+    // one string for the whole chunk so the writer thread does one write per chunk
+    private String solveChunk(PuzzleCorpus.Chunk chunk) {
+        FlatSudokuBoard board = boards.get();
+        SudokuValidator validator = validators.get();
+        SolveOptions options = workerOptions.get();
+        StringBuilder buf = new StringBuilder(chunkBytes + chunkBytes / 8);
+        while (chunk.hasNext()) {
+            long start = System.nanoTime();
+            try {
+                chunk.next(board);
+                SolveStatus status = Sudoku.solve(board, options);
+                board.appendCompactGrid(buf);
+                if (status == SolveStatus.SOLVED) {
+                    if (validator.firstConflict(board, true) < 0) {
+                        solved.incrementAndGet();
+                    } else {
+                        wrong.incrementAndGet();
+                        buf.append(" WRONG ").append(validator.check(board, true));
+                    }
+                } else {
+                    buf.append(' ').append(status);
+                }
+            } catch (IllegalArgumentException invalid) {
+                failed.incrementAndGet();
+                buf.append(chunk.lastRecord()).append(" INVALID");
+            }
+            buf.append('\n');
+            latency.record(System.nanoTime() - start);
+        }
+        return buf.toString();
+    }
+
+    private static String await(Future<String> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for solutions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("failed to solve chunk", e.getCause());
+        }
+    }
+}
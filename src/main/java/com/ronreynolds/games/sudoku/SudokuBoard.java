@@ -0,0 +1,168 @@
+package com.ronreynolds.games.sudoku;
+
+/**
+ * the operations the solvers need from a board; cells and groups are addressed by the indexes of the board's
+ * BoardLayout and possible values are bitmasks (see Candidates)
+ * <p>
+ * SudokuPuzzle implements this on top of its Cell/CellGroup object graph; FlatSudokuBoard implements it with flat
+ * primitive arrays
+ */
+public interface SudokuBoard {
+    BoardLayout getLayout();
+
+    default int getDimension() {
+        return getLayout().dimension;
+    }
+
+    /**
+     * @return the value of the cell or 0 if it's not yet known
+     */
+    int getValue(int cell);
+
+    /**
+     * @return the mask of values still possible for the cell (empty once the cell has a value)
+     */
+    int getCandidates(int cell);
+
+    /**
+     * set the value of the cell and remove that value from the possible values of all of the cell's peers
+     */
+    void setValue(int cell, int value);
+
+    /**
+     * @return true if the value was possible for the cell before this call (i.e., something changed)
+     */
+    boolean removeCandidate(int cell, int value);
+
+    /**
+     * remove all possible values of the cell that are NOT in the mask
+     *
+     * @return true if anything was removed
+     */
+    default boolean retainCandidates(int cell, int mask) {
+        boolean changed = false;
+        for (int bits = getCandidates(cell) & ~mask; bits != 0; bits &= bits - 1) {
+            changed |= removeCandidate(cell, Candidates.lowest(bits));
+        }
+        return changed;
+    }
+
+    /**
+     * @return the mask of positions within the group (bit n = position n) of the cells for which value is possible
+     */
+    int getPositions(int group, int value);
+
+    /**
+     * a counter that changes every time a possible value of any cell in the group changes; comparing it with an
+     * earlier reading tells if anything in the group changed since then (see PropagationScheduler)
+     */
+    int getGroupVersion(int group);
+
+    /**
+     * the number of values set on this board so far; a running total of work done (for SolverStats) so it's NOT
+     * rolled back by undoTo
+     */
+    long getPlacementCount();
+
+    /**
+     * the number of possible values removed from cells so far (including those of a cell when its value is set); like
+     * getPlacementCount it's NOT rolled back by undoTo
+     */
+    long getEliminationCount();
+
+    /**
+     * @return the trace that changes to the board are recorded in (null if they aren't)
+     */
+    SolveTrace getTrace();
+
+    /**
+     * record every value set, possible value removed, and undo in the trace (null to stop recording)
+     */
+    void setTrace(SolveTrace trace);
+
+    /**
+     * every change to the board is recorded in an undo log (trail); this returns the current position in it
+     *
+     * @return a marker to pass to undoTo to get back to the board's current state
+     */
+    int mark();
+
+    /**
+     * roll back (in place) every value set and possible value removed since mark() returned this marker
+     */
+    void undoTo(int mark);
+
+    default boolean hasValue(int cell) {
+        return getValue(cell) != 0;
+    }
+
+    /**
+     * return true only if all cells have values; false otherwise
+     */
+    default boolean isSolved() {
+        for (int cell = 0; cell < getLayout().cellCount; ++cell) {
+            if (getValue(cell) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * return false if the board has obviously gone wrong: a cell with no value and no possible values, a value with no
+     * cell left in a group that doesn't already have it, or the same value twice in a group
+     */
+    default boolean isConsistent() {
+        BoardLayout layout = getLayout();
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            if (getValue(cell) == 0 && getCandidates(cell) == Candidates.NONE) {
+                return false;
+            }
+        }
+        int allValues = Candidates.all(layout.dimension);
+        for (int group = 0; group < layout.groupCount; ++group) {
+            int covered = 0;    // values placed in or still possible for this group
+            for (int pos = 0; pos < layout.dimension; ++pos) {
+                int value = getValue(layout.groupCell(group, pos));
+                if (value != 0) {
+                    int bit = Candidates.bit(value);
+                    if ((covered & bit) != 0) {
+                        return false;
+                    }
+                    covered |= bit;
+                }
+            }
+            for (int value = 1; value <= layout.dimension; ++value) {
+                if (getPositions(group, value) != 0) {
+                    covered |= Candidates.bit(value);
+                }
+            }
+            if (covered != allValues) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the board in the one-line format read by SudokuPuzzle.create(String) with '.' for unknown cells
+     */
+    default String toCompactGrid() {
+        return appendCompactGrid(new StringBuilder(getLayout().cellCount)).toString();
+    }
+
+    default StringBuilder appendCompactGrid(StringBuilder buf) {
+        for (int cell = 0; cell < getLayout().cellCount; ++cell) {
+            int value = getValue(cell);
+            buf.append(value == 0 ? '.' : BoardLayout.symbolOf(value));
+        }
+        return buf;
+    }
+
+    /**
+     * return true if all cells contain valid values (i.e., no value violates a SudokuRule)
+     */
+    default boolean isValid() {
+        return SudokuValidator.isValid(this);
+    }
+}
@@ -0,0 +1,274 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.TriConsumer;
+import lombok.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * makes new puzzles: fill a blank grid with random values (a SolutionCounter that tries values in random order), then
+ * remove the givens one at a time (in random order) putting back any whose removal makes the solution ambiguous, and
+ * grade the result by the hardest solver needed to solve it (SEARCH if the solvers alone can't)
+ * <p>
+ * puzzles are made in chunks on a pool of worker threads; every chunk gets its own SplittableRandom split off the root
+ * in chunk order (and chunks are written in that order) so the output for a seed is the same no matter how many
+ * threads there are; each worker reuses its own board, counter and scheduler so nothing is allocated per puzzle
+ * except the output line
+ * <p>
+ * each output line is the compact grid ('.' for blank) followed by the grade, e.g. "4.....8.5.3.......... HIDDEN_PAIR"
+ */
+public class SudokuGenerator {
+    public static final String SEARCH = "SEARCH";   // the grade of puzzles the solvers can't finish without guessing
+    private static final int PUZZLES_PER_CHUNK = 64;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
+
+    private final int threads;
+    private final int minGrade;
+    private final ThreadLocal<Worker> workers;
+    // [grade] -> puzzles made; the last one is SEARCH
+    private final AtomicLongArray grades = new AtomicLongArray(SudokuSolver.values().length + 1);
+
+    /**
+     * @param minGrade only keep puzzles with at least this grade (0 = keep everything; see gradeOf)
+     */
+    public SudokuGenerator(int threads, int minGrade) {
+        this(threads, minGrade, BoardLayout.standard());
+    }
+
+    /**
+     * @param layout the size and block shape of the puzzles
+     */
+    public SudokuGenerator(int threads, int minGrade, @NonNull BoardLayout layout) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("invalid threads - " + threads);
+        }
+        this.threads = threads;
+        this.minGrade = minGrade;
+        this.workers = ThreadLocal.withInitial(() -> new Worker(layout));
+    }
+
+    /**
+     * usage: --generate count output [--threads N] [--seed S] [--min-grade SOLVER|SEARCH] [--block RxC]
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        int minGrade = 0;
+        BoardLayout layout = BoardLayout.standard();
+        for (int x = 0; x < args.length; ++x) {
+            switch (args[x]) {
+                case "--generate":
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++x]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++x]);
+                    break;
+                case "--min-grade":
+                    String grade = args[++x].toUpperCase();
+                    minGrade = grade.equals(SEARCH) ? SudokuSolver.values().length : SudokuSolver.valueOf(grade).ordinal();
+                    break;
+                case "--block":
+                    layout = BoardLayout.parse(args[++x]);
+                    break;
+                default:
+                    positional.add(args[x]);
+            }
+        }
+        if (positional.size() != 2) {
+            System.err.println("usage: --generate <count> <output> [--threads N] [--seed S] [--min-grade SOLVER|SEARCH] [--block RxC]");
+            return;
+        }
+        SudokuGenerator generator = new SudokuGenerator(threads, minGrade, layout);
+        System.out.println(generator.run(Long.parseLong(positional.get(0)), Path.of(positional.get(1)), seed));
+    }
+
+    /**
+     * @return the index of the hardest solver used to solve the givens or SudokuSolver.values().length if the solvers
+     * can't solve them without guessing
+     */
+    public static int gradeOf(@NonNull String compactGrid) {
+        FlatSudokuBoard board = FlatSudokuBoard.create(compactGrid);
+        return new Grader().grade(board, new PropagationScheduler<>(board));
+    }
+
+    public static String gradeName(int grade) {
+        SudokuSolver[] solvers = SudokuSolver.getSolvers();
+        return grade < solvers.length ? solvers[grade].name() : SEARCH;
+    }
+
+    /**
+     * make count puzzles and write them to output
+     *
+     * @return a summary of throughput and how many puzzles got each grade
+     */
+    public String run(long count, @NonNull Path output, long seed) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+            SplittableRandom root = new SplittableRandom(seed);
+            ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+            int maxInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+            for (long remaining = count; remaining > 0; remaining -= PUZZLES_PER_CHUNK) {
+                int puzzles = (int) Math.min(remaining, PUZZLES_PER_CHUNK);
+                SplittableRandom random = root.split();
+                inFlight.add(pool.submit(() -> generateChunk(puzzles, random)));
+                while (inFlight.size() >= maxInFlight) {
+                    writer.write(await(inFlight.remove()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writer.write(await(inFlight.remove()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        StringBuilder buf = new StringBuilder(String.format("%d puzzles in %.1fs using %d threads: %.0f puzzles/s;",
+                count, elapsed / (double) TimeUnit.SECONDS.toNanos(1), threads,
+                count * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(elapsed, 1)));
+        for (int grade = 0; grade < grades.length(); ++grade) {
+            if (grades.get(grade) > 0) {
+                buf.append(' ').append(gradeName(grade)).append('=').append(grades.get(grade));
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * how many puzzles (of those written) got each grade (see gradeOf)
+     */
+    public long getGradeCount(int grade) {
+        return grades.get(grade);
+    }
+
+    private String generateChunk(int puzzles, SplittableRandom random) {
+        Worker worker = workers.get();
+        StringBuilder buf = new StringBuilder(puzzles * (worker.layout.cellCount + 20));
+        for (int made = 0; made < puzzles; ) {
+            int grade = worker.generate(random);
+            if (grade < minGrade) {
+                continue;   // too easy; try another
+            }
+            grades.incrementAndGet(grade);
+            worker.appendGivens(buf);
+            buf.append(' ').append(gradeName(grade)).append('\n');
+            ++made;
+        }
+        return buf.toString();
+    }
+
+    private static String await(Future<String> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for puzzles", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("failed to generate chunk", e.getCause());
+        }
+    }
+
+    /**
+     * everything one thread needs to make puzzles, reused from one puzzle to the next
+     */
+    static class Worker {
+        private final BoardLayout layout;
+        private final FlatSudokuBoard board;    // scratch board for grading
+        private final SolutionCounter counter;
+        private final PropagationScheduler<FlatSudokuBoard> scheduler;
+        private final Grader grader = new Grader();
+        private final int[] givens;     // [cell] -> value of the last puzzle made
+        private final int[] order;
+
+        Worker(BoardLayout layout) {
+            this.layout = layout;
+            this.board = new FlatSudokuBoard(layout);
+            this.counter = new SolutionCounter(layout);
+            this.scheduler = new PropagationScheduler<>(board);
+            this.givens = new int[layout.cellCount];
+            this.order = new int[layout.cellCount];
+        }
+
+        /**
+         * make a puzzle with a unique solution (and no given that could be removed without losing that) and leave
+         * its givens in givens
+         *
+         * @return its grade
+         */
+        int generate(SplittableRandom random) {
+            // a random full grid
+            Arrays.fill(givens, 0);
+            counter.setRandom(random);
+            counter.count(givens, 1);
+            counter.setRandom(null);
+            System.arraycopy(counter.getSolution(), 0, givens, 0, givens.length);
+            // remove givens in random order (inside-out Fisher-Yates) as long as the solution stays unique
+            for (int cell = 0; cell < order.length; ++cell) {
+                int swap = random.nextInt(cell + 1);
+                order[cell] = order[swap];
+                order[swap] = cell;
+            }
+            for (int cell : order) {
+                int value = givens[cell];
+                givens[cell] = 0;
+                if (counter.countExcluding(givens, cell, value, 1) != 0) {
+                    givens[cell] = value;   // needed
+                }
+            }
+            board.reset();
+            for (int cell = 0; cell < givens.length; ++cell) {
+                if (givens[cell] != 0) {
+                    board.setValue(cell, givens[cell]);
+                }
+            }
+            scheduler.reset();
+            return grader.grade(board, scheduler);
+        }
+
+        void appendGivens(StringBuilder buf) {
+            for (int value : givens) {
+                buf.append(value == 0 ? '.' : BoardLayout.symbolOf(value));
+            }
+        }
+    }
+
+    // notes the hardest solver that helped while a scheduler runs; a worker reuses one for every puzzle
+    private static class Grader implements TriConsumer<SudokuSolver, Boolean, SudokuBoard> {
+        private int hardest;
+
+        int grade(SudokuBoard board, PropagationScheduler<?> scheduler) {
+            hardest = 0;
+            scheduler.run(this);
+            return board.isSolved() ? hardest : SudokuSolver.getSolvers().length;
+        }
+
+        @Override
+        public void accept(SudokuSolver solver, Boolean helped, SudokuBoard ignored) {
+            if (helped && solver.ordinal() > hardest) {
+                hardest = solver.ordinal();
+            }
+        }
+    }
+}
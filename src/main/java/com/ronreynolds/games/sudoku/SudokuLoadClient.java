@@ -0,0 +1,231 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.LatencyHistogram;
+import lombok.NonNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * load-tests a SudokuServer: each of a number of connections sends puzzles one after another (a closed loop, so with
+ * enough connections the server is saturated) and the time to each answer is recorded; the summary has the client's
+ * view of throughput and latency, how many answers were BUSY or TIMEOUT, how many connections the server turned away
+ * (it answers BUSY and hangs up when it has too many; the requests of that connection aren't sent), and the server's
+ * own STATS
+ */
+public class SudokuLoadClient {
+    private final String host;
+    private final int port;
+    private final int connections;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong busy = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();   // connections the server turned away (or hung up on)
+
+    public SudokuLoadClient(@NonNull String host, int port, int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("invalid connections - " + connections);
+        }
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+    }
+
+    /**
+     * usage: --load input [--host H] [--port N] [--connections N] [--requests N] (input has a compact grid per line)
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        String host = "localhost";
+        int port = SudokuServer.DEFAULT_PORT;
+        int connections = 64;
+        long requests = 100_000;
+        for (int x = 0; x < args.length; ++x) {
+            switch (args[x]) {
+                case "--load":
+                    break;
+                case "--host":
+                    host = args[++x];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++x]);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(args[++x]);
+                    break;
+                case "--requests":
+                    requests = Long.parseLong(args[++x]);
+                    break;
+                default:
+                    files.add(args[x]);
+            }
+        }
+        if (files.size() != 1) {
+            System.err.println("usage: --load <input> [--host H] [--port N] [--connections N] [--requests N]");
+            return;
+        }
+        List<String> puzzles = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(files.get(0)), StandardCharsets.US_ASCII)) {
+            if (!line.isBlank()) {
+                puzzles.add(line.trim());
+            }
+        }
+        System.out.println(new SudokuLoadClient(host, port, connections).run(puzzles, requests));
+    }
+
+    /**
+     * send requests puzzles (cycling through puzzles) spread over the connections and wait for all of the answers
+     *
+     * @return the summary (2 lines: the client's view then the server's)
+     */
+    public String run(@NonNull List<String> puzzles, long requests) throws IOException {
+        if (puzzles.isEmpty()) {
+            throw new IllegalArgumentException("no puzzles");
+        }
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "sudoku-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> senders = new ArrayList<>();
+            for (int c = 0; c < connections; ++c) {
+                int first = c;
+                long count = requests / connections + (c < requests % connections ? 1 : 0);
+                senders.add(pool.submit(() -> send(puzzles, first, count)));
+            }
+            for (Future<?> sender : senders) {
+                await(sender);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        return String.format("%d requests over %d connections in %s: %.0f requests/s; busy=%d timedOut=%d "
+                        + "rejected=%d latency %s%nserver: %s", latency.getCount(), connections,
+                LatencyHistogram.format(elapsed),
+                latency.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(elapsed, 1),
+                busy.get(), timedOut.get(), rejected.get(), latency.summary(), request(SudokuServer.STATS));
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getBusyCount() {
+        return busy.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * connections the server turned away (or hung up on before they were done)
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * send one line on a new connection
+     *
+     * @return the server's answer
+     */
+    public String request(@NonNull String line) throws IOException {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = reader(socket);
+             Writer out = writer(socket)) {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+            return in.readLine();
+        }
+    }
+
+    private void send(List<String> puzzles, int first, long count) {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = reader(socket);
+             Writer out = writer(socket)) {
+            socket.setTcpNoDelay(true);
+            // a server that already has too many connections answers BUSY before it's asked anything and hangs up
+            if (in.ready() && SudokuServer.BUSY.equals(in.readLine())) {
+                rejected.incrementAndGet();
+                return;
+            }
+            boolean firstBusy = false;  // the first answer was BUSY (which may have been the server turning us away)
+            for (long x = 0; x < count; ++x) {
+                long start = System.nanoTime();
+                String answer;
+                try {
+                    out.write(puzzles.get((int) ((first + x * connections) % puzzles.size())));
+                    out.write('\n');
+                    out.flush();
+                    answer = in.readLine();
+                } catch (IOException hungUp) {
+                    answer = null;
+                }
+                if (answer == null) {
+                    if (firstBusy && x == 1) {
+                        busy.decrementAndGet();     // that BUSY was the server turning the connection away
+                    }
+                    rejected.incrementAndGet();
+                    return;
+                }
+                latency.record(System.nanoTime() - start);
+                if (answer.equals(SudokuServer.BUSY)) {
+                    busy.incrementAndGet();
+                    firstBusy = x == 0;
+                } else if (answer.equals(SudokuServer.TIMEOUT)) {
+                    timedOut.incrementAndGet();
+                }
+            }
+            out.write(SudokuServer.QUIT);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    private static Writer writer(Socket socket) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+    }
+
+    private static void await(Future<?> sender) throws IOException {
+        try {
+            sender.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for answers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("load test failed", e.getCause());
+        }
+    }
+}
@@ -1,37 +1,56 @@
 package com.ronreynolds.games.sudoku;
 
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static com.ronreynolds.games.sudoku.Sudoku.blockSize;
-import static com.ronreynolds.games.sudoku.Sudoku.dimension;
-
 /**
- * represents the state of the board
+ * represents the state of the board as a graph of Cells and CellGroups
  */
 @Slf4j
-public class SudokuPuzzle {
+public class SudokuPuzzle implements SudokuBoard {
+    private final BoardLayout layout;
+    private final Cell[] cells;     // indexed by BoardLayout cell index
+    private final List<Cell> cellList;
+    // every value set and possible-value change of our cells (so search can back out of a failed guess)
+    private final Trail trail;
     private final List<CellGroup> rows;
     private final List<CellGroup> columns;
     private final List<CellGroup> blocks;
     private final List<CellGroup> allGroups;
 
     /**
-     * create a grid of dimension x dimension cells and an array of blocks of sqrt(dimension) x sqrt(dimension)
+     * create a grid of 9 x 9 cells and an array of blocks of 3 x 3
      */
     public SudokuPuzzle() {
+        this(BoardLayout.standard());
+    }
+
+    /**
+     * create a grid of dimension x dimension cells and an array of blocks of the layout's shape (e.g., 2 x 3 for 6 x 6)
+     */
+    public SudokuPuzzle(@NonNull BoardLayout layout) {
+        this.layout = layout;
+        int dimension = layout.dimension;
+        this.cells = new Cell[layout.cellCount];
+        this.cellList = Collections.unmodifiableList(Arrays.asList(cells));
+        this.trail = new Trail(layout.cellCount * (dimension + 1));
         // populate our lists first (these are unmodifiable because we don't add/remove Cells; we just modify the Cells)
-        rows = Stream.generate(CellGroup::new).limit(dimension).collect(Collectors.toUnmodifiableList());
-        columns = Stream.generate(CellGroup::new).limit(dimension).collect(Collectors.toUnmodifiableList());
-        blocks = Stream.generate(CellGroup::new).limit(dimension).collect(Collectors.toUnmodifiableList());
+        Supplier<CellGroup> newGroup = () -> new CellGroup(dimension);
+        rows = Stream.generate(newGroup).limit(dimension).collect(Collectors.toUnmodifiableList());
+        columns = Stream.generate(newGroup).limit(dimension).collect(Collectors.toUnmodifiableList());
+        blocks = Stream.generate(newGroup).limit(dimension).collect(Collectors.toUnmodifiableList());
 
         // populate the rows, columns, and blocks with Cells
         for (int row = 0; row < dimension; ++row) {
             for (int col = 0; col < dimension; ++col) {
-                Cell cell = new Cell(row, col);
+                Cell cell = new Cell(CellCoordinates.of(row, col), dimension);
+                cells[layout.cellIndex(row, col)] = cell;
+                cell.attachTrail(trail, layout.cellIndex(row, col));
 
                 // find the right groups for this cell
                 CellGroup rowGroup = rows.get(row);
@@ -44,7 +63,8 @@ public class SudokuPuzzle {
                 blockGroup.addCell(cell); // the cell position in the block doesn't actually matter
             }
         }
-        // used by solvers that need to iterate all the groups regardless of what kind they are
+        // used by solvers that need to iterate all the groups regardless of what kind they are;
+        // the order (rows, columns, blocks) matches the group indexes of BoardLayout
         List<CellGroup> allGroups = new ArrayList<>(3 * dimension);
         allGroups.addAll(rows);
         allGroups.addAll(columns);
@@ -53,12 +73,20 @@ public class SudokuPuzzle {
     }
 
     public static SudokuPuzzle create(char[][] knownCells) {
+        return create(knownCells, BoardLayout.standard());
+    }
+
+    /**
+     * values past 9 are letters (A = 10, B = 11, ...; see BoardLayout.symbolOf)
+     */
+    public static SudokuPuzzle create(char[][] knownCells, @NonNull BoardLayout layout) {
+        int dimension = layout.dimension;
         if (knownCells.length != dimension) {
             throw new IllegalArgumentException("knownCells has wrong number of rows - " + knownCells.length);
         }
 
         final char UNKNOWN = '.';
-        SudokuPuzzle puzzle = new SudokuPuzzle();
+        SudokuPuzzle puzzle = new SudokuPuzzle(layout);
         for (int row = 0; row < dimension; ++row) {
             char[] rowOfCells = knownCells[row];
             if (rowOfCells.length != dimension) {
@@ -68,11 +96,11 @@ public class SudokuPuzzle {
             for (int col = 0; col < dimension; ++col) {
                 char value = rowOfCells[col];
                 if (value != UNKNOWN) {
-                    if (value < '1' || value > '9') { // only (other) place where 9 is hard-coded
+                    int intValue = BoardLayout.valueOf(value);
+                    if (intValue < 1 || intValue > dimension) {
                         throw new IllegalArgumentException(
                                 String.format("invalid value (%c) at (%d, %d)", value, row, col));
                     }
-                    int intValue = value - '0'; // simple way to convert a digit char to int
                     puzzle.setCellValue(CellCoordinates.of(row, col), intValue);
                 }
             }
@@ -82,12 +110,17 @@ public class SudokuPuzzle {
 
     // before i read the assignment it made more sense (to me) to create the puzzle from ints rather than chars
     public static SudokuPuzzle create(int[][] knownCells) {
+        return create(knownCells, BoardLayout.standard());
+    }
+
+    public static SudokuPuzzle create(int[][] knownCells, @NonNull BoardLayout layout) {
+        int dimension = layout.dimension;
         if (knownCells.length != dimension) {
             throw new IllegalArgumentException("knownCells has wrong number of rows - " + knownCells.length);
         }
 
         final int UNKNOWN = 0;
-        SudokuPuzzle puzzle = new SudokuPuzzle();
+        SudokuPuzzle puzzle = new SudokuPuzzle(layout);
         for (int row = 0; row < dimension; ++row) {
             int[] rowOfCells = knownCells[row];
             if (rowOfCells.length != dimension) {
@@ -109,11 +142,22 @@ public class SudokuPuzzle {
     }
 
     /**
-     * this is actually the most useful and easiest to use grid notation; 81 chars, space = unknown
+     * this is actually the most useful and easiest to use grid notation; 81 chars, space = unknown; the size of the
+     * puzzle follows from the length (e.g., 256 chars is 16 x 16 with 4 x 4 blocks; see BoardLayout.forCellCount)
      */
     public static SudokuPuzzle create(String compactGrid) {
         // strip all CRLFs (if any)
         compactGrid = compactGrid.replace("\n", "");
+        BoardLayout layout = BoardLayout.forCellCount(compactGrid.length());
+        return create(compactGrid, layout == null ? BoardLayout.standard() : layout);
+    }
+
+    /**
+     * for the shapes forCellCount wouldn't pick (e.g., 6 x 6 with 3 x 2 blocks)
+     */
+    public static SudokuPuzzle create(String compactGrid, @NonNull BoardLayout layout) {
+        compactGrid = compactGrid.replace("\n", "");
+        int dimension = layout.dimension;
         if (compactGrid.length() != dimension * dimension) {
             throw new IllegalArgumentException(
                     String.format("incorrect size (%d) for compactGrid of %d x %d puzzle",
@@ -124,19 +168,11 @@ public class SudokuPuzzle {
         for (int row = 0; row < dimension; ++row) {
             for (int col = 0; col < dimension; ++col) {
                 int offset = row * dimension + col;
-                switch(chars[offset]) {
-                    // blank indicated by space or .
-                    case ' ':
-                    case '.':
-                        grid[row][col] = 0;
-                        break;
-                    default:
-                        grid[row][col] = chars[offset] - '0';
-                        break;
-                }
+                // blank indicated by space or . (or 0); -1 for anything that isn't a value so create(int[][]) rejects it
+                grid[row][col] = BoardLayout.valueOf(chars[offset]);
             }
         }
-        return create(grid);
+        return create(grid, layout);
     }
 
     public List<CellGroup> getRows() {
@@ -163,10 +199,90 @@ public class SudokuPuzzle {
      * row, column, and block
      */
     public void setCellValue(CellCoordinates coordinates, int value) {
-        getCell(coordinates).setValue(value);
-        getRowForCell(coordinates).removePossibleValue(value);
-        getColumnForCell(coordinates).removePossibleValue(value);
-        getBlockForCell(coordinates).removePossibleValue(value);
+        setValue(layout.cellIndex(coordinates), value);
+    }
+
+    @Override
+    public void setValue(int cell, int value) {
+        cells[cell].setValue(value);
+        allGroups.get(layout.groupOf(cell, BoardLayout.ROW)).removePossibleValue(value);
+        allGroups.get(layout.groupOf(cell, BoardLayout.COLUMN)).removePossibleValue(value);
+        allGroups.get(layout.groupOf(cell, BoardLayout.BLOCK)).removePossibleValue(value);
+    }
+
+    @Override
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public int getValue(int cell) {
+        return cells[cell].getValueOrZero();
+    }
+
+    @Override
+    public int getCandidates(int cell) {
+        return cells[cell].getPossibleValuesMask();
+    }
+
+    @Override
+    public boolean removeCandidate(int cell, int value) {
+        return cells[cell].removePossibleValue(value);
+    }
+
+    @Override
+    public int getPositions(int group, int value) {
+        return allGroups.get(group).getPositions(value);
+    }
+
+    @Override
+    public int getGroupVersion(int group) {
+        return allGroups.get(group).getVersion();
+    }
+
+    @Override
+    public long getPlacementCount() {
+        return trail.getPlacements();
+    }
+
+    @Override
+    public long getEliminationCount() {
+        return trail.getEliminations();
+    }
+
+    @Override
+    public SolveTrace getTrace() {
+        return trail.getTrace();
+    }
+
+    @Override
+    public void setTrace(SolveTrace trace) {
+        trail.setTrace(trace);
+    }
+
+    @Override
+    public int mark() {
+        return trail.size();
+    }
+
+    @Override
+    public void undoTo(int mark) {
+        for (int entry = trail.size() - 1; entry >= mark; --entry) {
+            Cell cell = cells[trail.cell(entry)];
+            if (trail.isValue(entry)) {
+                cell.restoreValue(trail.previous(entry));
+            } else {
+                cell.restorePossibleValues(trail.previous(entry));
+            }
+        }
+        trail.truncate(mark);
+    }
+
+    /**
+     * @param cell the BoardLayout index of the cell
+     */
+    public Cell getCell(int cell) {
+        return cells[cell];
     }
 
     /**
@@ -207,15 +323,9 @@ public class SudokuPuzzle {
     }
 
     /**
-     * return a list of all the cells in this puzzle
+     * return a list of all the cells in this puzzle (in row-major order; the list is read-only and never re-created)
      */
     public List<Cell> getCellList() {
-        List<Cell> cellList = new ArrayList<>(dimension * dimension);
-        for (CellGroup row : getRows()) {
-            for (Cell cell : row) {
-                cellList.add(cell);
-            }
-        }
         return cellList;
     }
 
@@ -227,11 +337,11 @@ public class SudokuPuzzle {
             for (Cell cell : row) {
                 Integer val = cell.getValue();
                 if (val == null) {
-                    // easier to read if the values are sorted
-                    possibleValuesMap.put(cell.getCoordinates(), new TreeSet<>(cell.getPossibleValues()));
+                    // the mask-backed view already iterates in sorted order
+                    possibleValuesMap.put(cell.getCoordinates(), cell.getPossibleValues());
                     buf.append('?');    // place-holder for unknown cell
                 } else {
-                    buf.append(val);
+                    buf.append(BoardLayout.symbolOf(val));
                 }
                 buf.append(' ');
             }
@@ -240,15 +350,16 @@ public class SudokuPuzzle {
         // if it's not solved we also want the possible values of the unsolved cells
         if (!possibleValuesMap.isEmpty()) {
             buf.append("\npossible values:\n");
-            int currentRow = 0;
+            int dimension = layout.dimension;
+            String blank = " ".repeat(dimension);
             for (int row = 0; row < dimension; ++row) {
                 for (int col = 0; col < dimension; ++col) {
                     Set<Integer> possibleValues = possibleValuesMap.get(CellCoordinates.of(row, col));
                     buf.append('[');
                     if (possibleValues != null) {
-                        buf.append(String.format("%9s", possibleValues.stream().map(String::valueOf).collect(Collectors.joining())));
+                        buf.append(String.format("%" + dimension + "s", Candidates.toDigits(Candidates.of(possibleValues))));
                     } else {
-                        buf.append("         ");    // so things line up
+                        buf.append(blank);  // so things line up
                     }
                     buf.append("] ");
                 }
@@ -261,12 +372,12 @@ public class SudokuPuzzle {
     /**
      * return true if all cells contain valid values (i.e., no value violates a SudokuRule)
      */
+    @Override
     public boolean isValid() {
-        for (SudokuRule rule : SudokuRule.getRules()) {
-            if (!rule.isValid(this)) {
-                log.warn("invalid puzzle according to rule {}", rule);
-                return false;
-            }
+        SudokuValidator.Conflict conflict = SudokuValidator.findConflict(this);
+        if (conflict != null) {
+            log.warn("invalid puzzle: {}", conflict);
+            return false;
         }
         return true;
     }
@@ -274,21 +385,18 @@ public class SudokuPuzzle {
     /**
      * return true only if all cells have values; false otherwise
      */
+    @Override
     public boolean isSolved() {
-        for (CellGroup row : getRows()) {
-            for (Cell cell : row) {
-                if (!cell.hasValue()) {
-                    return false;
-                }
+        for (Cell cell : cells) {
+            if (!cell.hasValue()) {
+                return false;
             }
         }
         return true;
     }
 
-    private static int toBlockIndex(int row, int col) {
-        // we actually want the truncation of integer division here (e.g., 2/3 = 0, 5/3 = 1, 6/3 = 2)
-        int blockRow = row / blockSize;
-        int blockCol = col / blockSize;
-        return blockRow * blockSize + blockCol;
+    private int toBlockIndex(int row, int col) {
+        // the same numbering as BoardLayout (so blocks.get(x) is group 2 * dimension + x)
+        return layout.groupOf(layout.cellIndex(row, col), BoardLayout.BLOCK) - 2 * layout.dimension;
     }
 }
@@ -1,65 +1,64 @@
 package com.ronreynolds.games.sudoku;
 
-import java.util.Set;
-
 public enum SudokuRule {
     ONE_VALUE_PER_ROW {
         @Override
-        public boolean isValid(SudokuPuzzle puzzle) {
-            for (CellGroup row : puzzle.getRows()) {
-                if (hasDuplicateValues(row)) {
-                    return false;
-                }
-            }
-            return true;
+        public boolean isValid(SudokuBoard board) {
+            return hasNoDuplicates(board, BoardLayout.ROW);
         }
     },
     ONE_VALUE_PER_COLUMN {
         @Override
-        public boolean isValid(SudokuPuzzle puzzle) {
-            for (CellGroup row : puzzle.getColumns()) {
-                if (hasDuplicateValues(row)) {
-                    return false;
-                }
-            }
-            return true;
+        public boolean isValid(SudokuBoard board) {
+            return hasNoDuplicates(board, BoardLayout.COLUMN);
         }
     },
     ONE_VALUE_PER_BLOCK {
         @Override
-        public boolean isValid(SudokuPuzzle puzzle) {
-            for (CellGroup block : puzzle.getBlocks()) {
-                if (hasDuplicateValues(block)) {
-                    return false;
-                }
-            }
-            return true;
+        public boolean isValid(SudokuBoard board) {
+            return hasNoDuplicates(board, BoardLayout.BLOCK);
         }
     };
 
     // values creates a new array on every call; this incurs that cost only once
     private static final SudokuRule[] daRules = values();
 
+    /**
+     * to check all of the rules at once (and find out where they're broken) see SudokuValidator
+     */
     public static SudokuRule[] getRules() {
         return daRules;
     }
 
-    public abstract boolean isValid(SudokuPuzzle sudokuPuzzle);
+    public abstract boolean isValid(SudokuBoard board);
+
+    /**
+     * common method to check every group of one kind (rows, columns, or blocks)
+     */
+    private static boolean hasNoDuplicates(SudokuBoard board, int kind) {
+        BoardLayout layout = board.getLayout();
+        for (int x = 0; x < layout.dimension; ++x) {
+            if (hasDuplicateValues(board, kind * layout.dimension + x)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
      * common method to detect if a group of cells has a single value more than once
      */
-    private static boolean hasDuplicateValues(CellGroup cells) {
-        Set<Integer> values = Sudoku.newAllValuesSet();
-        for (Cell cell : cells) {
-            if (cell.hasValue()) {
-                Integer value = cell.getValue();
-                // check that we haven't seen this value before
-                if (values.contains(value)) {
-                    values.remove(value);
-                } else {
-                    return true;   // duplicate value found in row
+    private static boolean hasDuplicateValues(SudokuBoard board, int group) {
+        BoardLayout layout = board.getLayout();
+        int seen = 0;   // mask of the values seen so far
+        for (int pos = 0; pos < layout.dimension; ++pos) {
+            int value = board.getValue(layout.groupCell(group, pos));
+            if (value != 0) {
+                int bit = Candidates.bit(value);
+                if ((seen & bit) != 0) {
+                    return true;   // duplicate value found in group
                 }
+                seen |= bit;
             }
         }
         return false;
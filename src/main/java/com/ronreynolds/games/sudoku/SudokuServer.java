@@ -0,0 +1,343 @@
+package com.ronreynolds.games.sudoku;
+
+import com.ronreynolds.games.util.LatencyHistogram;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * serves Sudoku.solve over a line-based TCP protocol on localhost: each line a client sends is a compact grid and the
+ * reply is a line in the same format as SudokuBatch's output (the solved grid, or the grid followed by its SolveStatus
+ * or INVALID); the server may also reply BUSY (the queue is full; try again later) or TIMEOUT (no answer within the
+ * timeout); the line STATS gets a one-line summary of the counters and the latency histogram and QUIT closes the
+ * connection
+ * <p>
+ * each connection has its own thread that reads a line, queues it, and waits for the answer; a fixed pool of workers
+ * takes requests off the queue in batches (whatever has arrived, up to maxBatch) and solves them on a board each
+ * worker reuses; admission control is the bounded queue (a request that doesn't fit is answered BUSY right away
+ * instead of waiting behind everyone else) plus a limit on connections, and a request still queued when its timeout
+ * has passed is dropped without being solved (and one being solved gives up at its timeout; see SolveBudget) so an
+ * overloaded server sheds work instead of falling further behind
+ * <p>
+ * nothing is logged per request and solves are quiet
+ */
+@Slf4j
+public class SudokuServer implements Closeable {
+    public static final int DEFAULT_PORT = 7357;
+    public static final String BUSY = "BUSY";
+    public static final String TIMEOUT = "TIMEOUT";
+    public static final String STATS = "STATS";
+    public static final String QUIT = "QUIT";
+
+    private final int workers;
+    private final int maxBatch;
+    private final long timeoutNanos;
+    private final BoardLayout layout;
+    private final SolveOptions options;
+    private final BlockingQueue<Request> queue;
+    private final Semaphore connections;
+    private final ServerSocket serverSocket;
+    private final ExecutorService workerPool;
+    private final ExecutorService connectionPool;
+
+    private final LatencyHistogram latency = new LatencyHistogram();    // arrival to answer of solved requests
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batched = new AtomicLong();    // requests taken off the queue in batches
+
+    /**
+     * @param port           0 for any free port (see getPort)
+     * @param maxQueued      requests waiting for a worker beyond this many are answered BUSY
+     * @param maxBatch       the most requests a worker takes off the queue at a time
+     * @param timeoutMs      requests not answered within this are answered TIMEOUT
+     * @param maxConnections connections beyond this many are answered BUSY and closed
+     */
+    public SudokuServer(int port, int workers, int maxQueued, int maxBatch, long timeoutMs, int maxConnections,
+                        @NonNull BoardLayout layout) throws IOException {
+        if (workers < 1 || maxQueued < 1 || maxBatch < 1 || timeoutMs < 1 || maxConnections < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "invalid workers (%d), maxQueued (%d), maxBatch (%d), timeoutMs (%d) or maxConnections (%d)",
+                    workers, maxQueued, maxBatch, timeoutMs, maxConnections));
+        }
+        this.workers = workers;
+        this.maxBatch = maxBatch;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.layout = layout;
+        this.options = SolveOptions.builder().search(true).quiet(true).build();
+        this.queue = new ArrayBlockingQueue<>(maxQueued);
+        this.connections = new Semaphore(maxConnections);
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.workerPool = Executors.newFixedThreadPool(workers, daemon("sudoku-server-worker"));
+        this.connectionPool = Executors.newCachedThreadPool(daemon("sudoku-server-connection"));
+    }
+
+    /**
+     * usage: --serve [--port N] [--threads N] [--queue N] [--batch N] [--timeout-ms N] [--connections N] [--block RxC]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxQueued = 1024;
+        int maxBatch = 16;
+        long timeoutMs = 1000;
+        int maxConnections = 256;
+        BoardLayout layout = BoardLayout.standard();
+        for (int x = 0; x < args.length; ++x) {
+            switch (args[x]) {
+                case "--serve":
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++x]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++x]);
+                    break;
+                case "--queue":
+                    maxQueued = Integer.parseInt(args[++x]);
+                    break;
+                case "--batch":
+                    maxBatch = Integer.parseInt(args[++x]);
+                    break;
+                case "--timeout-ms":
+                    timeoutMs = Long.parseLong(args[++x]);
+                    break;
+                case "--connections":
+                    maxConnections = Integer.parseInt(args[++x]);
+                    break;
+                case "--block":
+                    layout = BoardLayout.parse(args[++x]);
+                    break;
+                default:
+                    System.err.println("usage: --serve [--port N] [--threads N] [--queue N] [--batch N]"
+                            + " [--timeout-ms N] [--connections N] [--block RxC]");
+                    return;
+            }
+        }
+        SudokuServer server = new SudokuServer(port, threads, maxQueued, maxBatch, timeoutMs, maxConnections, layout);
+        System.out.println("serving " + layout + " puzzles on " + server.serverSocket.getLocalSocketAddress()
+                + " with " + threads + " workers");
+        server.run();
+    }
+
+    /**
+     * start the workers and accept connections (on a background thread) until closed
+     */
+    public SudokuServer start() {
+        Thread acceptor = daemon("sudoku-server-acceptor").newThread(this::run);
+        acceptor.start();
+        return this;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * e.g., "accepted=1000 rejected=0 timedOut=0 queued=0 meanBatch=1.3 latency count=1000 mean=..."
+     */
+    public String stats() {
+        long batchCount = batches.get();
+        return String.format("accepted=%d rejected=%d timedOut=%d queued=%d meanBatch=%.1f latency %s",
+                accepted.get(), rejected.get(), timedOut.get(), queue.size(),
+                batchCount == 0 ? 0 : batched.get() / (double) batchCount, latency.summary());
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        workerPool.shutdownNow();
+        connectionPool.shutdownNow();
+    }
+
+    private void run() {
+        for (int x = 0; x < workers; ++x) {
+            workerPool.execute(this::work);
+        }
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("failed to accept a connection", e);
+                }
+                continue;
+            }
+            if (!connections.tryAcquire()) {
+                rejected.incrementAndGet();
+                reject(socket);
+                continue;
+            }
+            connectionPool.execute(() -> {
+                try {
+                    serve(socket);
+                } finally {
+                    connections.release();
+                }
+            });
+        }
+    }
+
+    // one line in, one line out, until the client hangs up (or says QUIT)
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.equals(QUIT)) {
+                    break;
+                }
+                out.write(line.equals(STATS) ? stats() : answer(line));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (SocketException closed) {
+            // the client (or close) hung up on us; nothing to answer
+        } catch (IOException e) {
+            log.warn("failed to serve {}", socket.getRemoteSocketAddress(), e);
+        }
+    }
+
+    private String answer(String grid) {
+        Request request = new Request(grid, System.nanoTime() + timeoutNanos);
+        if (!queue.offer(request)) {
+            rejected.incrementAndGet();
+            return BUSY;
+        }
+        accepted.incrementAndGet();
+        try {
+            return request.answer.get(request.deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            request.answer.cancel(false);   // the worker won't bother if it hasn't started yet
+            timedOut.incrementAndGet();
+            return TIMEOUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TIMEOUT;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("failed to solve " + grid, e.getCause());
+        }
+    }
+
+    // a worker: take whatever has arrived (up to maxBatch) and answer it
+    private void work() {
+        FlatSudokuBoard board = new FlatSudokuBoard(layout);
+        List<Request> batch = new ArrayList<>(maxBatch);
+        StringBuilder buf = new StringBuilder(2 * layout.cellCount);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                batches.incrementAndGet();
+                batched.addAndGet(batch.size());
+                for (Request request : batch) {
+                    if (!request.answer.isDone() && System.nanoTime() < request.deadline) {
+                        buf.setLength(0);
+                        String answer = solve(board, request, buf);
+                        latency.record(System.nanoTime() - request.arrival);
+                        request.answer.complete(answer);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();     // closed
+        }
+    }
+
+    private String solve(FlatSudokuBoard board, Request request, StringBuilder buf) {
+        String grid = request.grid;
+        try {
+            board.load(grid);
+        } catch (IllegalArgumentException invalid) {
+            return grid + " INVALID";
+        }
+        SolveStatus status;
+        try {
+            // a pathological puzzle gives up at its deadline (nobody's waiting for it after that) instead of holding
+            // the worker; closing the server interrupts it too
+            status = Sudoku.solveWithin(board, options, SolveBudget.deadline(request.deadline));
+        } catch (RuntimeException e) {
+            log.warn("failed to solve {}", grid, e);    // a bug; don't take the worker down with it
+            return grid + " ERROR";
+        }
+        board.appendCompactGrid(buf);
+        if (status != SolveStatus.SOLVED) {
+            buf.append(' ').append(status);
+        }
+        return buf.toString();
+    }
+
+    private static void reject(Socket socket) {
+        try (socket) {
+            socket.getOutputStream().write((BUSY + "\n").getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException ignored) {
+            // they'll find out
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Request {
+        final String grid;
+        final long arrival = System.nanoTime();
+        final long deadline;
+        final CompletableFuture<String> answer = new CompletableFuture<>();
+
+        Request(String grid, long deadline) {
+            this.grid = grid;
+            this.deadline = deadline;
+        }
+    }
+}
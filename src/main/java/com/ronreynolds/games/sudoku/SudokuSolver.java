@@ -3,8 +3,10 @@ package com.ronreynolds.games.sudoku;
 import com.ronreynolds.games.util.Pair;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * rules for finding cell values in a sudoku puzzle
@@ -13,85 +15,82 @@ import java.util.stream.Collectors;
 public enum SudokuSolver {
     SIMPLE_SINGLES { // find all cells with only 1 possible value and set their value to that
         @Override
-        public boolean apply(SudokuPuzzle puzzle) {
+        public boolean apply(SudokuBoard board) {
             boolean foundValue = false;
-            // iterate all cells in puzzle
-            for (Cell cell : puzzle.getCellList()) {
-                // we only care about cells that don't yet have a value and only have 1 possible
-                if (!cell.hasValue() && cell.getPossibleCount() == 1) {
-                    Set<Integer> possibles = cell.getPossibleValues();
-                    // if there's only 1 possible value set that as the value for the cell
-                    if (possibles.size() == 1) {
-                        puzzle.setCellValue(cell.getCoordinates(), possibles.iterator().next());
-                        foundValue = true;
-                    }
-                }
+            // iterate all cells in puzzle (once each rather than once per group)
+            for (int cell = 0; cell < board.getLayout().cellCount; ++cell) {
+                foundValue |= applyToCell(board, cell);
             }
             return foundValue;
         }
+
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            BoardLayout layout = board.getLayout();
+            boolean foundValue = false;
+            for (int pos = 0; pos < layout.dimension; ++pos) {
+                foundValue |= applyToCell(board, layout.groupCell(group, pos));
+            }
+            return foundValue;
+        }
+
+        private boolean applyToCell(SudokuBoard board, int cell) {
+            // we only care about cells that don't yet have a value and only have 1 possible
+            int possibles = board.getCandidates(cell);
+            if (!board.hasValue(cell) && Candidates.isSingle(possibles)) {
+                // there's only 1 possible value so set that as the value for the cell
+                board.setValue(cell, Candidates.lowest(possibles));
+                return true;
+            }
+            return false;
+        }
     },
     HIDDEN_SINGLES {    // find all cells where only they have a certain value as possible
         @Override
-        public boolean apply(SudokuPuzzle puzzle) {
+        public boolean apply(SudokuBoard board, int group) {
+            BoardLayout layout = board.getLayout();
             boolean foundValue = false;
-            // iterate all cell groups in puzzle (rows, columns, and blocks)
-            for (CellGroup group : puzzle.getAllGroups()) {
-                // only need to check possible values in group
-                Map<Integer, List<Cell>> possiblesToCellsMap = group.getPossibleToCellMap();
-                for (var entry : possiblesToCellsMap.entrySet()) {
-                    // if there is only 1 cell with this possible value that's a hidden single
-                    if (entry.getValue().size() == 1) {
-                        puzzle.setCellValue(entry.getValue().get(0).getCoordinates(), entry.getKey());
-                        foundValue = true;
-                    }
-                }
-                if (!foundValue) {
-                    log.debug("unable to find hidden singles in puzzle:\n{} posToCellMap:\n{}", puzzle, possiblesToCellsMap);
+            // only need to check possible values in group
+            for (int value = 1; value <= layout.dimension; ++value) {
+                int positions = board.getPositions(group, value);
+                // if there is only 1 cell with this possible value that's a hidden single
+                if (Candidates.isSingle(positions)) {
+                    board.setValue(layout.groupCell(group, Integer.numberOfTrailingZeros(positions)), value);
+                    foundValue = true;
                 }
             }
-
             return foundValue;
         }
     },
     // https://hodoku.sourceforge.net/en/tech_intersections.php (type 1)
     LOCKED_LINES {  // find cells within a block that contain certain possible values that line up (same row or column)
         @Override
-        public boolean apply(SudokuPuzzle puzzle) {
-            boolean changedPuzzle = false;
+        public boolean appliesTo(BoardLayout layout, int group) {
             // this approach only deals with blocks (but cares about the row/column of the cells)
-            for (CellGroup block : puzzle.getBlocks()) {
-                Map<Integer, List<Cell>> possibleValueMap = block.getPossibleToCellMap();
-                for (var entry : possibleValueMap.entrySet()) {
-                    // for each possible value find the row/column of the cells;
-                    // if all cells are from the same row or column we can remove that value other cells' possibles in that row/column
-                    List<Cell> cellsWithSamePossible = entry.getValue();
-                    Optional<Integer> commonRow = findCommonRow(cellsWithSamePossible);
-                    if (commonRow.isPresent()) {
-                        // all cells in this block with this possible value have the same row; we can clear it from other cells in this row
-                        log.info("{} has common-row {}", entry.getKey(), commonRow.get());
-                        CellGroup row = puzzle.getRowForCell(cellsWithSamePossible.get(0));
-                        for (Cell cell : row) {
-                            // be sure to not clear the possible from this group's cells
-                            if (!cellsWithSamePossible.contains(cell)) {
-                                changedPuzzle |= cell.removePossibleValue(entry.getKey());
-                            }
-                        }
-                    } else {
-                        // possibly they have a column in common
-                        Optional<Integer> commonCol = findCommonColumn(cellsWithSamePossible);
-                        if (commonCol.isPresent()) {
-                            // all cells in this block with this possible value have the same column; we can clear it from other cells in this column
-                            log.info("{} has common-column {}", entry.getKey(), commonCol.get());
-                            CellGroup column = puzzle.getColumnForCell(cellsWithSamePossible.get(0));
-                            for (Cell cell : column) {
-                                // be sure to not clear the possible from this group's cells
-                                if (!cellsWithSamePossible.contains(cell)) {
-                                    changedPuzzle |= cell.removePossibleValue(entry.getKey());
-                                }
-                            }
-                        }
-                    }
+            return layout.kindOf(group) == BoardLayout.BLOCK;
+        }
 
+        @Override
+        public boolean apply(SudokuBoard board, int block) {
+            BoardLayout layout = board.getLayout();
+            boolean changedPuzzle = false;
+            for (int value = 1; value <= layout.dimension; ++value) {
+                // for each possible value find the row/column of the cells;
+                // if all cells are from the same row or column we can remove that value other cells' possibles in that row/column
+                int positions = board.getPositions(block, value);
+                int commonRow = findCommonGroup(layout, block, positions, BoardLayout.ROW);
+                if (commonRow >= 0) {
+                    // all cells in this block with this possible value have the same row; we can clear it from other cells in this row
+                    log.debug("{} has common-row {}", value, commonRow);
+                    changedPuzzle |= removeOutside(board, commonRow, block, value);
+                } else {
+                    // possibly they have a column in common
+                    int commonCol = findCommonGroup(layout, block, positions, BoardLayout.COLUMN);
+                    if (commonCol >= 0) {
+                        // all cells in this block with this possible value have the same column; we can clear it from other cells in this column
+                        log.debug("{} has common-column {}", value, commonCol - layout.columnGroup(0));
+                        changedPuzzle |= removeOutside(board, commonCol, block, value);
+                    }
                 }
             }
             return changedPuzzle;
@@ -100,61 +99,138 @@ public enum SudokuSolver {
     // https://hodoku.sourceforge.net/en/tech_intersections.php (type 2)
     LOCKED_BLOCKS {  // find cells within a row or column that contain certain possible values that are all in 1 block
         @Override
-        public boolean apply(SudokuPuzzle puzzle) {
-            return applyToGroup(puzzle, puzzle.getRows(), "row")
-                    || applyToGroup(puzzle, puzzle.getColumns(), "column");
+        public boolean appliesTo(BoardLayout layout, int group) {
+            // because we process rows and columns the same we can use a shared method for both
+            return layout.kindOf(group) != BoardLayout.BLOCK;
         }
 
-        // because we process rows and columns the same we can use a shared method for both
-        private boolean applyToGroup(SudokuPuzzle puzzle, List<CellGroup> groupList, String groupType) {
+        @Override
+        public boolean apply(SudokuBoard board, int line) {
+            BoardLayout layout = board.getLayout();
             boolean changedPuzzle = false;
-            for (CellGroup row : groupList) {
-                Map<Integer, List<Cell>> possibleValueMap = row.getPossibleToCellMap();
-                for (var entry : possibleValueMap.entrySet()) {
-                    // for each possible value find the blocks of the cells;
-                    Integer possibleValue = entry.getKey();
-                    List<Cell> cells = entry.getValue();
-                    // if all cells are from the same block we can remove that value from other cells' possibles in block
-                    Optional<CellGroup> commonBlock = findCommonBlock(puzzle, cells);
-                    if (commonBlock.isPresent()) {
-                        log.info("possible {} in {} of {} is common to a block",
-                                possibleValue, groupType, cells.get(0).getCoordinates());
-                        // remove this possible value from all OTHER cells in this block
-                        for (Cell cell : commonBlock.get()) {
-                            if (!cells.contains(cell)) {
-                                changedPuzzle |= cell.removePossibleValue(possibleValue);
-                            }
-                        }
+            for (int value = 1; value <= layout.dimension; ++value) {
+                // for each possible value find the blocks of the cells;
+                int positions = board.getPositions(line, value);
+                // if all cells are from the same block we can remove that value from other cells' possibles in block
+                int commonBlock = findCommonGroup(layout, line, positions, BoardLayout.BLOCK);
+                if (commonBlock >= 0) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("possible {} in {} {} is common to a block", value,
+                                layout.kindOf(line) == BoardLayout.ROW ? "row" : "column", line % layout.dimension);
                     }
+                    // remove this possible value from all OTHER cells in this block
+                    changedPuzzle |= removeOutside(board, commonBlock, line, value);
                 }
             }
             return changedPuzzle;
         }
     },
+    // https://hodoku.sourceforge.net/en/tech_naked.php
+    NAKED_PAIR {    // 2 cells of a group with only the same 2 possible values; no other cell of the group can have them
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return findSubset(board, group, 2, false);
+        }
+    },
     // https://hodoku.sourceforge.net/en/tech_hidden.php
-    HIDDEN_PAIR {
+    HIDDEN_PAIR {   // 2 values only possible in the same 2 cells of a group; those cells can't have any other values
         @Override
-        public boolean apply(SudokuPuzzle puzzle) {
-            boolean changedPuzzle = false;
-            // find 2 cells that are the ONLY cells in a group (row, column, or block) to contain possible values pair
-            // if 2 such cells exist remove all other possibles from those 2 cells
-            for (CellGroup group : puzzle.getAllGroups()) {
-                Map<Integer, List<Cell>> possibleValueMap = group.getPossibleToCellMap();
-                List<Pair<Integer>> pairList = generateCombinations(possibleValueMap.keySet());
-                for (Pair<Integer> pair : pairList) {
-                    // we use a set to remove duplicates so each cell is counted only once
-                    Set<Cell> cellsWithPossiblePair = new HashSet<>(possibleValueMap.get(pair.v1));
-                    cellsWithPossiblePair.addAll(possibleValueMap.get(pair.v2));
-                    if (cellsWithPossiblePair.size() == 2) {
-                        // we found a hidden pair! :)  remove all other possibles from these cells
-                        cellsWithPossiblePair.forEach(cell -> cell.setPossibleValues(Set.of(pair.v1, pair.v2)));
-                        log.info("hidden-pair ({}) found at {}", pair,
-                                cellsWithPossiblePair.stream().map(Cell::getCoordinates).collect(Collectors.toList()));
-                        changedPuzzle = true;
-                    }
-                }
-            }
-            return changedPuzzle;
+        public boolean apply(SudokuBoard board, int group) {
+            return findSubset(board, group, 2, true);
+        }
+    },
+    // https://hodoku.sourceforge.net/en/tech_fishb.php
+    X_WING {    // a value only possible in the same 2 columns of 2 rows (or vice versa) is in those rows in those columns
+        @Override
+        public boolean appliesTo(BoardLayout layout, int group) {
+            return layout.kindOf(group) != BoardLayout.BLOCK;
+        }
+
+        @Override
+        public boolean apply(SudokuBoard board, int line) {
+            return findFish(board, line, 2);
+        }
+    },
+    NAKED_TRIPLE {
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return findSubset(board, group, 3, false);
+        }
+    },
+    HIDDEN_TRIPLE {
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return findSubset(board, group, 3, true);
+        }
+    },
+    SWORDFISH {
+        @Override
+        public boolean appliesTo(BoardLayout layout, int group) {
+            return layout.kindOf(group) != BoardLayout.BLOCK;
+        }
+
+        @Override
+        public boolean apply(SudokuBoard board, int line) {
+            return findFish(board, line, 3);
+        }
+    },
+    NAKED_QUAD {
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return findSubset(board, group, 4, false);
+        }
+    },
+    HIDDEN_QUAD {
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return findSubset(board, group, 4, true);
+        }
+    },
+    JELLYFISH {
+        @Override
+        public boolean appliesTo(BoardLayout layout, int group) {
+            return layout.kindOf(group) != BoardLayout.BLOCK;
+        }
+
+        @Override
+        public boolean apply(SudokuBoard board, int line) {
+            return findFish(board, line, 4);
+        }
+    },
+    // the chain solvers look at the whole board (see ChainSearch)
+    // https://hodoku.sourceforge.net/en/tech_col.php
+    SIMPLE_COLORING {   // color chains of strong links alternately; a color that sees itself is wrong
+        @Override
+        public boolean isBoardWide() {
+            return true;
+        }
+
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return ChainSearch.of(board).simpleColoring(board);
+        }
+    },
+    // https://hodoku.sourceforge.net/en/tech_chains.php
+    X_CHAIN {   // alternating strong and weak links of 1 value; cells that see both ends can't have it
+        @Override
+        public boolean isBoardWide() {
+            return true;
+        }
+
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return ChainSearch.of(board).xChain(board);
+        }
+    },
+    XY_CHAIN {  // chains of 2-value cells; cells that see both ends can't have the value the ends share
+        @Override
+        public boolean isBoardWide() {
+            return true;
+        }
+
+        @Override
+        public boolean apply(SudokuBoard board, int group) {
+            return ChainSearch.of(board).xyChain(board);
         }
     }
 
@@ -164,81 +240,270 @@ public enum SudokuSolver {
     // we make a copy of Enum.values() to avoid repeat creation of new arrays on every call
     static final SudokuSolver[] solvers = values();
 
+    // a search re-runs the solvers at every node and there the board-wide ones cost more than the guesses they save
+    static final SudokuSolver[] searchSolvers = Arrays.stream(solvers).filter(solver -> !solver.isBoardWide())
+            .toArray(SudokuSolver[]::new);
+
     public static SudokuSolver[] getSolvers() {
         return solvers;
     }
 
+    /**
+     * the solvers of a solve that may search (before it and at each node): all of them but the board-wide ones (the
+     * chains), which only logical solves (no search) use
+     */
+    public static SudokuSolver[] getSearchSolvers() {
+        return searchSolvers;
+    }
+
     /**
      * given a puzzle apply the rule to it to see if it can find any new cell values
      *
-     * @param puzzle the puzzle to be checked and modified with found values
+     * @param board the puzzle to be checked and modified with found values
      * @return if any values were found (i.e., did this rule make progress to solving the puzzle?)
      */
-    public abstract boolean apply(SudokuPuzzle puzzle);
+    public boolean apply(SudokuBoard board) {
+        BoardLayout layout = board.getLayout();
+        boolean changedPuzzle = false;
+        if (isBoardWide()) {
+            changedPuzzle = apply(board, 0);    // one call looks at every group
+        } else {
+            for (int group = 0; group < layout.groupCount; ++group) {
+                if (appliesTo(layout, group)) {
+                    changedPuzzle |= apply(board, group);
+                }
+            }
+        }
+        if (!changedPuzzle) {
+            log.debug("{} found nothing in puzzle:\n{}", this, board);
+        }
+        return changedPuzzle;
+    }
+
+    /**
+     * apply the rule to a single group (row, column, or block) of the puzzle; the rule only looks at the possible values
+     * of that group's cells so it only needs to be re-applied after one of them changes (see PropagationScheduler)
+     *
+     * @param board the puzzle to be checked and modified with found values
+     * @param group the BoardLayout index of the group
+     * @return if the rule changed anything in the puzzle
+     */
+    public abstract boolean apply(SudokuBoard board, int group);
+
+    /**
+     * @return true if this rule has anything to do with this kind of group (e.g., some rules only look at blocks)
+     */
+    public boolean appliesTo(BoardLayout layout, int group) {
+        return true;
+    }
+
+    /**
+     * @return true if the rule looks at the whole board whichever group it's applied to, so applying it to one dirty
+     * group covers them all (e.g., the chain solvers)
+     */
+    public boolean isBoardWide() {
+        return false;
+    }
 
     // static util methods for solvers
     /**
-     * if this group of cells has a common row return it; otherwise empty
+     * if all the cells at these positions of the group also share a group of the given kind return that group
      *
-     * @param cells the list of cells from which to check their coordinates
-     * @return the common row value or empty if they have different row values
+     * @param layout    the layout of the board
+     * @param group     the group containing the cells
+     * @param positions the mask of positions within the group (see SudokuBoard.getPositions)
+     * @param kind      BoardLayout.ROW, COLUMN, or BLOCK
+     * @return the common group or -1 if there are no cells or they are in different groups of that kind
      */
-    private static Optional<Integer> findCommonRow(List<Cell> cells) {
-        if (cells.isEmpty()) {
-            return Optional.empty();
-        }
-        int candidateRow = cells.get(0).getCoordinates().row;
-        for (Cell cell : cells) {
-            if (cell.getCoordinates().row != candidateRow) {
-                return Optional.empty();    // a different row was found
+    private static int findCommonGroup(BoardLayout layout, int group, int positions, int kind) {
+        if (positions == 0) {
+            return -1;
+        }
+        int candidateGroup = layout.groupOf(layout.groupCell(group, Integer.numberOfTrailingZeros(positions)), kind);
+        for (int bits = positions; bits != 0; bits &= bits - 1) {
+            if (layout.groupOf(layout.groupCell(group, Integer.numberOfTrailingZeros(bits)), kind) != candidateGroup) {
+                return -1;  // a cell from a different group was found
             }
         }
-        // all cells had this row in their coordinates
-        return Optional.of(candidateRow);
+        // all cells were in this group
+        return candidateGroup;
     }
 
     /**
-     * if this group of cells has a common column return it; otherwise empty
+     * remove the value from the possibles of every cell of the target group that is NOT also in the excluded group
      *
-     * @param cells the list of cells from which to check their coordinates
-     * @return the common column value or empty if they have different column values
+     * @return true if any possible value was removed
      */
-    private static Optional<Integer> findCommonColumn(List<Cell> cells) {
-        if (cells.isEmpty()) {
-            return Optional.empty();
-        }
-        int candidateCol = cells.get(0).getCoordinates().col;
-        for (Cell cell : cells) {
-            if (cell.getCoordinates().col != candidateCol) {
-                return Optional.empty();    // a different column was found
+    private static boolean removeOutside(SudokuBoard board, int targetGroup, int excludedGroup, int value) {
+        BoardLayout layout = board.getLayout();
+        int excludedKind = layout.kindOf(excludedGroup);
+        boolean changed = false;
+        for (int pos = 0; pos < layout.dimension; ++pos) {
+            int cell = layout.groupCell(targetGroup, pos);
+            // be sure to not clear the possible from the excluded group's cells
+            if (layout.groupOf(cell, excludedKind) != excludedGroup) {
+                changed |= board.removeCandidate(cell, value);
             }
         }
-        // all cells had this column in their coordinates
-        return Optional.of(candidateCol);
+        return changed;
     }
 
     /**
-     * if this group of cells has a common block return it; otherwise empty
+     * find N cells of the group whose possible values (combined) are exactly N values (a naked subset) or N values
+     * that (combined) are only possible in exactly N cells of the group (a hidden subset); the first subset found that
+     * eliminates something is applied (the scheduler re-applies us since that changes the group)
+     * <p>
+     * the items (cells by position, or values) are bits of an int and subsets are enumerated depth-first while
+     * OR-ing their masks so nothing is allocated and any branch whose mask already has more than N bits is pruned
      *
-     * @param cells the list of cells from which to check their block
-     * @return the common block or empty if they are in different blocks
+     * @param size   N (2 = pairs, 3 = triples, 4 = quads)
+     * @param hidden true for hidden subsets (items are values and masks are positions); false for naked subsets
+     *               (items are positions and masks are possible values)
+     * @return true if anything was eliminated
      */
-    private static Optional<CellGroup> findCommonBlock(SudokuPuzzle puzzle, List<Cell> cells) {
-        if (cells.isEmpty()) {
-            return Optional.empty();
+    private static boolean findSubset(SudokuBoard board, int group, int size, boolean hidden) {
+        BoardLayout layout = board.getLayout();
+        // only items with 2..N bits in their mask can be part of a subset (1 bit is a single which other solvers find)
+        int items = 0;
+        for (int item = 0; item < layout.dimension; ++item) {
+            int count = Integer.bitCount(maskOf(board, layout, group, item, hidden));
+            if (count >= 2 && count <= size) {
+                items |= 1 << item;
+            }
+        }
+        if (Integer.bitCount(items) < size) {
+            return false;
         }
+        return findSubset(board, layout, group, size, hidden, items, 0, 0, 0);
+    }
 
-        CellGroup candidateBlock = puzzle.getBlockForCell(cells.get(0));
-        for (Cell cell : cells) {
-            if (puzzle.getBlockForCell(cell) != candidateBlock) {
-                return Optional.empty();    // this cell is from a different block
+    private static boolean findSubset(SudokuBoard board, BoardLayout layout, int group, int size, boolean hidden,
+                                      int remaining, int chosen, int union, int depth) {
+        for (int bits = remaining; Integer.bitCount(bits) >= size - depth; bits &= bits - 1) {
+            int item = Integer.numberOfTrailingZeros(bits);
+            int combined = union | maskOf(board, layout, group, item, hidden);
+            if (Integer.bitCount(combined) > size) {
+                continue;   // too many values (or cells) already; nothing with this item can work
+            }
+            int withItem = chosen | 1 << item;
+            if (depth + 1 < size) {
+                if (findSubset(board, layout, group, size, hidden, bits & (bits - 1), withItem, combined, depth + 1)) {
+                    return true;
+                }
+            } else if (Integer.bitCount(combined) == size && applySubset(board, layout, group, hidden, withItem, combined)) {
+                return true;
             }
         }
-        // all cells had this block in common
-        return Optional.of(candidateBlock);
+        return false;
+    }
+
+    // a cell's possible values (naked) or the positions of a value (hidden); value items are 0-based like mask bits
+    private static int maskOf(SudokuBoard board, BoardLayout layout, int group, int item, boolean hidden) {
+        return hidden ? board.getPositions(group, item + 1) : board.getCandidates(layout.groupCell(group, item));
+    }
+
+    /**
+     * find N lines (rows or columns; this line and N-1 others of the same kind) in which a value is only possible in
+     * (the same) N crossing lines; the value must be in those N lines where they cross the crossing lines so it can be
+     * removed from the rest of each crossing line
+     * <p>
+     * the positions index of a row holds the columns where the value is possible (and vice versa) so a line's "mask"
+     * is a single getPositions call and checking a candidate fish is an OR and a bitCount; lines are enumerated like
+     * subsets (see findSubset); since every fish containing this line is checked, re-applying to the lines that
+     * change (as the scheduler does) finds every fish
+     *
+     * @param size N (2 = X-Wing, 3 = Swordfish, 4 = Jellyfish)
+     * @return true if anything was eliminated
+     */
+    private static boolean findFish(SudokuBoard board, int line, int size) {
+        BoardLayout layout = board.getLayout();
+        boolean isRow = layout.kindOf(line) == BoardLayout.ROW;
+        int firstLine = isRow ? layout.rowGroup(0) : layout.columnGroup(0);
+        int lineIndex = line - firstLine;
+        for (int value = 1; value <= layout.dimension; ++value) {
+            int own = board.getPositions(line, value);
+            int ownCount = Integer.bitCount(own);
+            if (ownCount < 2 || ownCount > size) {
+                continue;
+            }
+            // other lines that could be part of the fish
+            int lines = 0;
+            for (int other = 0; other < layout.dimension; ++other) {
+                int count = Integer.bitCount(board.getPositions(firstLine + other, value));
+                if (other != lineIndex && count >= 2 && count <= size) {
+                    lines |= 1 << other;
+                }
+            }
+            if (Integer.bitCount(lines) >= size - 1
+                    && findFish(board, layout, isRow, value, size, lines, 1 << lineIndex, own, 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean findFish(SudokuBoard board, BoardLayout layout, boolean isRow, int value, int size,
+                                    int remaining, int chosen, int union, int depth) {
+        int firstLine = isRow ? layout.rowGroup(0) : layout.columnGroup(0);
+        for (int bits = remaining; Integer.bitCount(bits) >= size - depth; bits &= bits - 1) {
+            int other = Integer.numberOfTrailingZeros(bits);
+            int combined = union | board.getPositions(firstLine + other, value);
+            if (Integer.bitCount(combined) > size) {
+                continue;
+            }
+            int withLine = chosen | 1 << other;
+            if (depth + 1 < size) {
+                if (findFish(board, layout, isRow, value, size, bits & (bits - 1), withLine, combined, depth + 1)) {
+                    return true;
+                }
+            } else if (Integer.bitCount(combined) == size && applyFish(board, layout, isRow, value, withLine, combined)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // remove the value from the crossing lines except where they cross the fish's lines
+    private static boolean applyFish(SudokuBoard board, BoardLayout layout, boolean isRow, int value, int lines, int crossings) {
+        int firstCrossing = isRow ? layout.columnGroup(0) : layout.rowGroup(0);
+        boolean changed = false;
+        for (int bits = crossings; bits != 0; bits &= bits - 1) {
+            int crossing = firstCrossing + Integer.numberOfTrailingZeros(bits);
+            // a crossing line's positions are the indexes of the lines it crosses
+            for (int others = board.getPositions(crossing, value) & ~lines; others != 0; others &= others - 1) {
+                changed |= board.removeCandidate(layout.groupCell(crossing, Integer.numberOfTrailingZeros(others)), value);
+            }
+        }
+        if (changed && log.isDebugEnabled()) {
+            log.debug("{}-fish of {} in {} {} and {} {}", Integer.bitCount(lines), value, isRow ? "rows" : "columns",
+                    Integer.toBinaryString(lines), isRow ? "columns" : "rows", Integer.toBinaryString(crossings));
+        }
+        return changed;
+    }
+
+    private static boolean applySubset(SudokuBoard board, BoardLayout layout, int group, boolean hidden, int items, int mask) {
+        boolean changed = false;
+        if (hidden) {
+            // items are values (a Candidates mask) and mask is the cells that are the only ones that can have them
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                changed |= board.retainCandidates(layout.groupCell(group, Integer.numberOfTrailingZeros(bits)), items);
+            }
+        } else {
+            // items are cells and mask is the values they have between them; no other cell of the group can have those
+            for (int pos = 0; pos < layout.dimension; ++pos) {
+                if ((items & 1 << pos) == 0) {
+                    changed |= board.retainCandidates(layout.groupCell(group, pos), ~mask);
+                }
+            }
+        }
+        if (changed && log.isDebugEnabled()) {
+            log.debug("{} subset {} at positions {} of group {}", hidden ? "hidden" : "naked",
+                    Candidates.toString(hidden ? items : mask), Integer.toBinaryString(hidden ? mask : items), group);
+        }
+        return changed;
     }
 
-    // visible for testing
+    // visible for testing (the subset solvers now enumerate combinations as bits instead)
     static <T> List<Pair<T>> generateCombinations(Collection<T> collection) {
         if (collection.isEmpty()) {
             return List.of();
@@ -0,0 +1,221 @@
+package com.ronreynolds.games.sudoku;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * checks every SudokuRule in a single sweep of the cells: each group keeps a mask of the values seen in it so a cell
+ * costs 3 table lookups and an OR, and the first value already seen in one of its groups is the first conflict
+ * (details of which are only worked out once there is one)
+ * <p>
+ * a validator can be kept and reused (by one thread) to check many grids of the same layout without allocating; the
+ * static methods make one per call
+ */
+public final class SudokuValidator {
+    private final BoardLayout layout;
+    private final int[] used;       // [group] -> mask of the values seen in the group
+    private final int[] scratch;    // the values of boards that aren't FlatSudokuBoards
+
+    public SudokuValidator(@NonNull BoardLayout layout) {
+        this.layout = layout;
+        this.used = new int[layout.groupCount];
+        this.scratch = new int[layout.cellCount];
+    }
+
+    /**
+     * @return the first (in cell order) value that breaks a rule or null if there's none
+     */
+    public static Conflict findConflict(@NonNull SudokuBoard board) {
+        return new SudokuValidator(board.getLayout()).check(board);
+    }
+
+    public static boolean isValid(@NonNull SudokuBoard board) {
+        return new SudokuValidator(board.getLayout()).firstConflict(board, false) < 0;
+    }
+
+    /**
+     * check many boards with one validator per layout
+     *
+     * @param complete if true every cell must have a value (i.e., the boards are solutions)
+     * @return the indexes of the boards that break a rule (or have empty cells if complete)
+     */
+    public static BitSet checkAll(@NonNull Iterable<? extends SudokuBoard> boards, boolean complete) {
+        BitSet invalid = new BitSet();
+        SudokuValidator validator = null;
+        int index = 0;
+        for (SudokuBoard board : boards) {
+            if (validator == null || validator.layout != board.getLayout()) {
+                validator = new SudokuValidator(board.getLayout());
+            }
+            if (validator.firstConflict(board, complete) >= 0) {
+                invalid.set(index);
+            }
+            ++index;
+        }
+        return invalid;
+    }
+
+    /**
+     * check many grids stored back to back
+     *
+     * @param grids    [grid * cellCount + cell] -> value (0 = empty)
+     * @param complete if true every cell must have a value (i.e., the grids are solutions)
+     * @return the indexes of the grids that break a rule (or have empty cells if complete)
+     */
+    public static BitSet checkAll(@NonNull BoardLayout layout, @NonNull int[] grids, boolean complete) {
+        if (grids.length % layout.cellCount != 0) {
+            throw new IllegalArgumentException("grids length " + grids.length + " isn't a multiple of " + layout.cellCount);
+        }
+        SudokuValidator validator = new SudokuValidator(layout);
+        BitSet invalid = new BitSet();
+        for (int grid = 0; grid < grids.length / layout.cellCount; ++grid) {
+            if (validator.firstConflict(grids, grid * layout.cellCount, complete) >= 0) {
+                invalid.set(grid);
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * @return the first value that breaks a rule or null if there's none
+     */
+    public Conflict check(@NonNull SudokuBoard board) {
+        return check(board, false);
+    }
+
+    /**
+     * @param complete if true an empty cell is a conflict too
+     */
+    public Conflict check(@NonNull SudokuBoard board, boolean complete) {
+        int[] values = valuesOf(board);
+        int cell = firstConflict(values, 0, complete);
+        return cell < 0 ? null : conflictOf(values, 0, cell);
+    }
+
+    /**
+     * @return the first cell whose value breaks a rule (or that's empty if complete) or -1 if there's none
+     */
+    public int firstConflict(@NonNull SudokuBoard board, boolean complete) {
+        return firstConflict(valuesOf(board), 0, complete);
+    }
+
+    /**
+     * @param values [offset + cell] -> value (0 = empty)
+     */
+    public int firstConflict(@NonNull int[] values, int offset, boolean complete) {
+        Arrays.fill(used, 0);
+        int dimension = layout.dimension;
+        for (int cell = 0; cell < layout.cellCount; ++cell) {
+            int value = values[offset + cell];
+            if (value == 0) {
+                if (complete) {
+                    return cell;
+                }
+                continue;
+            }
+            if (value < 0 || value > dimension) {
+                return cell;
+            }
+            int bit = Candidates.bit(value);
+            int row = layout.groupOf(cell, BoardLayout.ROW);
+            int col = layout.groupOf(cell, BoardLayout.COLUMN);
+            int block = layout.groupOf(cell, BoardLayout.BLOCK);
+            if (((used[row] | used[col] | used[block]) & bit) != 0) {
+                return cell;
+            }
+            used[row] |= bit;
+            used[col] |= bit;
+            used[block] |= bit;
+        }
+        return -1;
+    }
+
+    private int[] valuesOf(SudokuBoard board) {
+        if (board.getLayout() != layout) {
+            throw new IllegalArgumentException("expected a " + layout + " board, not " + board.getLayout());
+        }
+        if (board instanceof FlatSudokuBoard) {
+            return ((FlatSudokuBoard) board).getValues();
+        }
+        for (int cell = 0; cell < scratch.length; ++cell) {
+            scratch[cell] = board.getValue(cell);
+        }
+        return scratch;
+    }
+
+    // what's wrong with cell (which firstConflict returned)
+    private Conflict conflictOf(int[] values, int offset, int cell) {
+        int value = values[offset + cell];
+        if (value < 1 || value > layout.dimension) {
+            return new Conflict(layout, cell, -1, value, -1);
+        }
+        for (int kind = BoardLayout.ROW; kind <= BoardLayout.BLOCK; ++kind) {
+            int group = layout.groupOf(cell, kind);
+            for (int pos = 0; pos < layout.dimension; ++pos) {
+                int other = layout.groupCell(group, pos);
+                if (other < cell && values[offset + other] == value) {
+                    return new Conflict(layout, cell, other, value, group);
+                }
+            }
+        }
+        throw new IllegalStateException("no conflict at cell " + cell);
+    }
+
+    /**
+     * a value that breaks a rule: it's also in an earlier cell of one of its groups, or it's out of range, or (for
+     * solutions) the cell is empty
+     */
+    public static final class Conflict {
+        private final BoardLayout layout;
+        private final int cell;
+        private final int otherCell;    // -1 if the value is bad on its own
+        private final int value;
+        private final int group;        // -1 if the value is bad on its own
+
+        Conflict(BoardLayout layout, int cell, int otherCell, int value, int group) {
+            this.layout = layout;
+            this.cell = cell;
+            this.otherCell = otherCell;
+            this.value = value;
+            this.group = group;
+        }
+
+        public int getCell() {
+            return cell;
+        }
+
+        public int getOtherCell() {
+            return otherCell;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public int getGroup() {
+            return group;
+        }
+
+        /**
+         * @return the rule that's broken or null if the value is empty or out of range
+         */
+        public SudokuRule getRule() {
+            return group < 0 ? null : SudokuRule.getRules()[layout.kindOf(group)];
+        }
+
+        @Override
+        public String toString() {
+            String where = "(" + layout.rowOf(cell) + "," + layout.columnOf(cell) + ")";
+            if (value == 0) {
+                return where + " is empty";
+            }
+            if (group < 0) {
+                return where + " has invalid value " + value;
+            }
+            return where + " and (" + layout.rowOf(otherCell) + "," + layout.columnOf(otherCell) + ") are both "
+                    + BoardLayout.symbolOf(value) + " (" + getRule() + ")";
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.ronreynolds.games.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * an undo log of board changes; each entry is the cell that changed plus what it held before (its value or its
+ * possible-values mask) so a board can roll back in place to an earlier mark instead of being deep-copied
+ */
+final class Trail {
+    private int[] entries;  // pairs of ints: [cell (or ~cell for a value entry), previous value or mask]
+    private int size;       // number of entries (not ints)
+    // running totals of work done (see SudokuBoard.getPlacementCount); these are NOT rolled back by truncate
+    private long placements;
+    private long eliminations;
+    private SolveTrace trace;   // null unless someone wants a record of the changes
+
+    Trail(int capacity) {
+        entries = new int[2 * Math.max(capacity, 16)];
+    }
+
+    void recordPossibles(int cell, int previousMask, int newMask) {
+        int removed = previousMask & ~newMask;
+        eliminations += Integer.bitCount(removed);
+        if (trace != null && removed != 0) {
+            trace.eliminated(cell, removed);
+        }
+        push(cell, previousMask);
+    }
+
+    void recordValue(int cell, int previousValue, int value) {
+        ++placements;
+        if (trace != null) {
+            trace.valueSet(cell, value);
+        }
+        push(~cell, previousValue);
+    }
+
+    SolveTrace getTrace() {
+        return trace;
+    }
+
+    void setTrace(SolveTrace trace) {
+        this.trace = trace;
+    }
+
+    long getPlacements() {
+        return placements;
+    }
+
+    long getEliminations() {
+        return eliminations;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isValue(int entry) {
+        return entries[2 * entry] < 0;
+    }
+
+    int cell(int entry) {
+        int cell = entries[2 * entry];
+        return cell < 0 ? ~cell : cell;
+    }
+
+    int previous(int entry) {
+        return entries[2 * entry + 1];
+    }
+
+    /**
+     * forget every entry from size on (the caller has already undone them)
+     */
+    void truncate(int size) {
+        if (size < 0 || size > this.size) {
+            throw new IllegalArgumentException("invalid trail mark " + size + " (size " + this.size + ")");
+        }
+        if (trace != null && size < this.size) {
+            trace.undone(this.size - size);
+        }
+        this.size = size;
+    }
+
+    private void push(int cell, int previous) {
+        if (2 * size == entries.length) {
+            entries = Arrays.copyOf(entries, 2 * entries.length);
+        }
+        entries[2 * size] = cell;
+        entries[2 * size + 1] = previous;
+        ++size;
+    }
+}
@@ -0,0 +1,106 @@
+package com.ronreynolds.games.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a bounded thread-safe cache that evicts the least recently used entries; the keys are spread over a power-of-2
+ * number of stripes, each an access-ordered LinkedHashMap with its own lock, so threads only contend when their keys
+ * land on the same stripe (and the LRU order is per stripe, which is close enough)
+ */
+public class StripedLruCache<K, V> {
+    private final Stripe<K, V>[] stripes;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the most entries kept (rounded up to a multiple of the number of stripes)
+     * @param stripes  rounded up to a power of 2
+     */
+    @SuppressWarnings("unchecked")  // no generic array creation; the array never leaves this class
+    public StripedLruCache(int capacity, int stripes) {
+        if (capacity < 1 || stripes < 1) {
+            throw new IllegalArgumentException(String.format("invalid capacity (%d) or stripes (%d)", capacity, stripes));
+        }
+        int count = Integer.highestOneBit((stripes - 1) << 1 | 1);
+        this.stripes = (Stripe<K, V>[]) new Stripe<?, ?>[count];
+        this.mask = count - 1;
+        int perStripe = (capacity + count - 1) / count;
+        for (int x = 0; x < count; ++x) {
+            this.stripes[x] = new Stripe<>(perStripe);
+        }
+    }
+
+    /**
+     * @return the value cached for key (which is now the most recently used of its stripe) or null
+     */
+    public V get(K key) {
+        Stripe<K, V> stripe = stripeOf(key);
+        V value;
+        synchronized (stripe) {
+            value = stripe.get(key);
+        }
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    public void put(K key, V value) {
+        Stripe<K, V> stripe = stripeOf(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public int getCapacity() {
+        return stripes.length * stripes[0].capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return String.format("%d/%d entries, %d of %d lookups hit (%.1f%%)", size(), getCapacity(), hits, lookups,
+                lookups == 0 ? 0 : 100.0 * hits / lookups);
+    }
+
+    private Stripe<K, V> stripeOf(K key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ hash >>> 16) & mask];
+    }
+
+    private static final class Stripe<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * fails if the solve path allocates more than the budgets in allocation-budgets.properties; allocation is measured
+ * with the per-thread counter of com.sun.management.ThreadMXBean over the puzzles of allocation-corpus.txt
+ * <p>
+ * the JIT gets rid of some allocations (e.g., varargs arrays for disabled logging) only once it has compiled the code
+ * so everything is run a few times first, and each puzzle's figure is its lowest over a few more runs so a one-off
+ * (a class being loaded, a method being recompiled) isn't blamed on the solver
+ */
+class AllocationBudgetTest {
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 3;
+    private static final SolveOptions options = SolveOptions.builder().search(true).quiet(true).build();
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static List<String> corpus;
+    private static Properties budgets;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "no per-thread allocation counter in this JVM");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "no per-thread allocation counter in this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        corpus = new ArrayList<>();
+        for (String line : new String(resource("allocation-corpus.txt").readAllBytes(), StandardCharsets.US_ASCII)
+                .split("\n")) {
+            if (!line.isBlank()) {
+                corpus.add(line.trim());
+            }
+        }
+        budgets = new Properties();
+        try (InputStream in = resource("allocation-budgets.properties")) {
+            budgets.load(in);
+        }
+    }
+
+    @Test
+    void solveStaysWithinBudget() {
+        long budget = budget("solve.bytesPerPuzzle");
+        FlatSudokuBoard reused = new FlatSudokuBoard();
+        checkSolves("FlatSudokuBoard", budget, grid -> {
+            reused.load(grid);
+            return reused;
+        });
+        checkSolves("SudokuPuzzle", budget, SudokuPuzzle::create);
+    }
+
+    @Test
+    void solverApplicationsStayWithinBudget() {
+        long budget = budget("apply.bytesPerCall");
+        SudokuSolver[] solvers = SudokuSolver.getSolvers();
+        FlatSudokuBoard board = new FlatSudokuBoard();
+        BoardLayout layout = board.getLayout();
+        long[] lowest = new long[solvers.length];   // [solver] -> lowest (over the runs) of the most any call allocated
+        Arrays.fill(lowest, Long.MAX_VALUE);
+        long[] most = new long[solvers.length];
+        for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; ++run) {
+            Arrays.fill(most, 0);
+            for (String grid : corpus) {
+                board.load(grid);
+                for (int s = 0; s < solvers.length; ++s) {
+                    for (int group = 0; group < layout.groupCount; ++group) {
+                        if (!solvers[s].appliesTo(layout, group)) {
+                            continue;
+                        }
+                        int mark = board.mark();
+                        long before = allocated();
+                        solvers[s].apply(board, group);
+                        most[s] = Math.max(most[s], allocated() - before);
+                        board.undoTo(mark);
+                    }
+                }
+            }
+            if (run >= WARMUP_RUNS) {
+                for (int s = 0; s < solvers.length; ++s) {
+                    lowest[s] = Math.min(lowest[s], most[s]);
+                }
+            }
+        }
+        List<String> over = new ArrayList<>();
+        for (int s = 0; s < solvers.length; ++s) {
+            if (lowest[s] > budget) {
+                over.add(solvers[s] + " allocated " + lowest[s] + " bytes in one call");
+            }
+        }
+        assertThat(over).as("solvers over the budget of %d bytes per call", budget).isEmpty();
+    }
+
+    private void checkSolves(String kind, long budget, Function<String, SudokuBoard> loader) {
+        long[] lowest = new long[corpus.size()];
+        Arrays.fill(lowest, Long.MAX_VALUE);
+        for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; ++run) {
+            for (int x = 0; x < corpus.size(); ++x) {
+                SudokuBoard board = loader.apply(corpus.get(x));
+                long before = allocated();
+                SolveStatus status = Sudoku.solve(board, options);
+                long bytes = allocated() - before;
+                assertThat(status).as(corpus.get(x)).isEqualTo(SolveStatus.SOLVED);
+                if (run >= WARMUP_RUNS) {
+                    lowest[x] = Math.min(lowest[x], bytes);
+                }
+            }
+        }
+        List<String> over = new ArrayList<>();
+        for (int x = 0; x < corpus.size(); ++x) {
+            if (lowest[x] > budget) {
+                over.add(corpus.get(x) + " allocated " + lowest[x] + " bytes");
+            }
+        }
+        assertThat(over).as("%s solves over the budget of %d bytes per puzzle", kind, budget).isEmpty();
+    }
+
+    private static long allocated() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long budget(String name) {
+        String value = budgets.getProperty(name);
+        assertThat(value).as("budget %s", name).isNotNull();
+        return Long.parseLong(value.trim());
+    }
+
+    private static InputStream resource(String name) {
+        InputStream in = AllocationBudgetTest.class.getResourceAsStream("/sudoku/" + name);
+        assertThat(in).as("resource %s", name).isNotNull();
+        return in;
+    }
+}
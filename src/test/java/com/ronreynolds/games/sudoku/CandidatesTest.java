@@ -0,0 +1,38 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CandidatesTest {
+
+    @Test
+    void maskHelpers() {
+        assertThat(Candidates.all(9)).isEqualTo(0b1_1111_1111);
+        assertThat(Candidates.all(32)).isEqualTo(-1);
+        assertThat(Candidates.of(1, 3, 9)).isEqualTo(0b1_0000_0101);
+        assertThat(Candidates.count(Candidates.of(1, 3, 9))).isEqualTo(3);
+        assertThat(Candidates.lowest(Candidates.of(3, 9))).isEqualTo(3);
+        assertThat(Candidates.lowest(Candidates.NONE)).isZero();
+        assertThat(Candidates.next(Candidates.of(3, 5, 9), 3)).isEqualTo(5);
+        assertThat(Candidates.next(Candidates.of(3, 5, 9), 9)).isZero();
+        assertThat(Candidates.isSingle(Candidates.of(4))).isTrue();
+        assertThat(Candidates.isSingle(Candidates.of(4, 5))).isFalse();
+        assertThat(Candidates.toDigits(Candidates.of(9, 1, 6))).isEqualTo("169");
+    }
+
+    @Test
+    void setViewFollowsCell() {
+        Cell cell = new Cell(0, 0);
+        Set<Integer> view = cell.getPossibleValues();
+        assertThat(view).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(cell.removePossibleValue(5)).isTrue();
+        assertThat(cell.removePossibleValue(5)).isFalse();
+        assertThat(view).hasSize(8).doesNotContain(5).isEqualTo(Set.of(1, 2, 3, 4, 6, 7, 8, 9));
+        cell.setValue(7);
+        assertThat(view).isEmpty();
+        assertThat(cell.getValue()).isEqualTo(7);
+    }
+}
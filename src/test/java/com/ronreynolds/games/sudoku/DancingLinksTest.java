@@ -0,0 +1,64 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DancingLinksTest {
+    private static final String hardest = "" +
+            "8        " +
+            "  36     " +
+            " 7  9 2  " +
+            " 5   7   " +
+            "    457  " +
+            "   1   3 " +
+            "  1    68" +
+            "  85   1 " +
+            " 9    4  ";
+
+    @Test
+    void solvesWhatTheStrategiesCant() {
+        SudokuPuzzle puzzle = SudokuPuzzle.create(hardest);
+        SolveOptions options = SolveOptions.builder().engine(SolveEngine.DANCING_LINKS).build();
+        assertThat(Sudoku.solve(puzzle, options)).isEqualTo(SolveStatus.SOLVED);
+        assertThat(puzzle.isSolved()).isTrue();
+        assertThat(puzzle.isValid()).isTrue();
+
+        // and agrees with the search of the strategy engine
+        FlatSudokuBoard board = FlatSudokuBoard.create(hardest);
+        Sudoku.solve(board, SolveOptions.builder().search(true).build(), (solver, helped, b) -> { });
+        for (int cell = 0; cell < 81; ++cell) {
+            assertThat(puzzle.getValue(cell)).isEqualTo(board.getValue(cell));
+        }
+    }
+
+    @Test
+    void stopsAfterMaxSolutions() {
+        // a unique puzzle has exactly 1 solution no matter how many we ask for
+        assertThat(new DancingLinks(FlatSudokuBoard.create(hardest)).solve(10)).isEqualTo(1);
+
+        // remove clues until there are lots of solutions
+        DancingLinks many = new DancingLinks(FlatSudokuBoard.create("8" + " ".repeat(80)));
+        assertThat(many.solve(1)).isEqualTo(1);
+        assertThat(many.solve(25)).isEqualTo(25);
+        assertThat(many.getSolutionValue(0)).isEqualTo(8);
+
+        // a 2 at (0,1) isn't in the unique solution
+        assertThat(new DancingLinks(FlatSudokuBoard.create("82" + hardest.substring(2))).solve(1)).isZero();
+    }
+
+    @Test
+    void worksForOtherBlockShapes() {
+        // 4x4 with 2x2 blocks (and 6x6 with 2x3 blocks) from an empty board
+        for (BoardLayout layout : new BoardLayout[]{BoardLayout.of(2, 2), BoardLayout.of(2, 3)}) {
+            FlatSudokuBoard board = new FlatSudokuBoard(layout);
+            DancingLinks dancingLinks = new DancingLinks(board);
+            assertThat(dancingLinks.solve(1)).isEqualTo(1);
+            dancingLinks.copySolutionTo(board);
+            assertThat(board.isSolved()).as("%s", layout).isTrue();
+            assertThat(board.isValid()).as("%s", layout).isTrue();
+        }
+        // every 4x4 grid: there are 288 of them
+        assertThat(new DancingLinks(new FlatSudokuBoard(BoardLayout.of(2, 2))).solve(1000)).isEqualTo(288);
+    }
+}
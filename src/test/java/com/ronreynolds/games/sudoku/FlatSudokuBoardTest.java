@@ -0,0 +1,174 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FlatSudokuBoardTest {
+    private static final String medium = "" +
+            "  345    " +
+            " 2   6  3" +
+            "  1   7 2" +
+            "      8 1" +
+            " 8  2  9 " +
+            "9 7      " +
+            "1 6   9  " +
+            "2  5   1 " +
+            "    432  ";
+    private static final String sixteen = "" +
+            "......3.25D....." +
+            "1..AC......7DF8." +
+            "....9G1F.....6.." +
+            ".GB...7.4F...E.." +
+            "....D2..A.....B4" +
+            "E8....9C....5..." +
+            "DC...A...7.B..6." +
+            "4.G.E.....5..3.D" +
+            ".7..41E6........" +
+            ".....8B...3....A" +
+            ".E51.9..G4B8..3F" +
+            "..2...F.E6A.8..C" +
+            "..9....5.E.A...G" +
+            "A3.8...9B...2..6" +
+            ".5...BA19....C.." +
+            "B1.E.3..FG....4.";
+
+    @Test
+    void layoutTables() {
+        BoardLayout layout = BoardLayout.standard();
+        assertThat(layout.cellCount).isEqualTo(81);
+        assertThat(layout.groupCount).isEqualTo(27);
+        assertThat(layout.peerCount).isEqualTo(20);
+        // cell (4,5) is in row 4, column 5, block 4
+        int cell = layout.cellIndex(4, 5);
+        assertThat(layout.groupOf(cell, BoardLayout.ROW)).isEqualTo(layout.rowGroup(4));
+        assertThat(layout.groupOf(cell, BoardLayout.COLUMN)).isEqualTo(layout.columnGroup(5));
+        assertThat(layout.groupOf(cell, BoardLayout.BLOCK)).isEqualTo(layout.blockGroup(4));
+        for (int kind = BoardLayout.ROW; kind <= BoardLayout.BLOCK; ++kind) {
+            int group = layout.groupOf(cell, kind);
+            assertThat(layout.groupCell(group, layout.positionOf(cell, kind))).isEqualTo(cell);
+        }
+        for (int n = 0; n < layout.peerCount; ++n) {
+            int peer = layout.peer(cell, n);
+            assertThat(peer).isNotEqualTo(cell);
+            assertThat(layout.rowOf(peer) == 4
+                    || layout.columnOf(peer) == 5
+                    || layout.groupOf(peer, BoardLayout.BLOCK) == layout.blockGroup(4)).isTrue();
+        }
+    }
+
+    @Test
+    void matchesSudokuPuzzle() {
+        SudokuPuzzle puzzle = SudokuPuzzle.create(medium);
+        FlatSudokuBoard board = FlatSudokuBoard.create(medium);
+        assertSameState(puzzle, board);
+        assertThat(FlatSudokuBoard.copyOf(puzzle).toString()).isEqualTo(board.toString());
+
+        // a partial solve leaves plenty of possibles to compare
+        SudokuSolver.LOCKED_LINES.apply(puzzle);
+        SudokuSolver.LOCKED_LINES.apply(board);
+        assertSameState(puzzle, board);
+        assertThat(puzzle.getRows().get(0).getPossibleToCellMap().keySet())
+                .isEqualTo(Candidates.asSet(puzzle.getRows().get(0).getPossibleValuesMask()));
+
+        Sudoku.solve(puzzle, (solver, helped, p) -> { });
+        Sudoku.solve(board, (solver, helped, b) -> { });
+        assertThat(board.isSolved()).isTrue();
+        assertThat(board.isValid()).isTrue();
+        assertSameState(puzzle, board);
+    }
+
+    @Test
+    void otherSizes() {
+        assertThat(BoardLayout.forDimension(6)).isSameAs(BoardLayout.of(2, 3));
+        assertThat(BoardLayout.forDimension(12).toString()).isEqualTo("12x12 (blocks 3x4)");
+        assertThat(BoardLayout.forCellCount(256)).isSameAs(BoardLayout.parse("4x4"));
+        assertThat(BoardLayout.forCellCount(81)).isSameAs(BoardLayout.standard());
+        assertThat(BoardLayout.forCellCount(625).peerCount).isEqualTo(3 * 24 - 8);
+        assertThat(BoardLayout.forCellCount(49)).isNull();  // 7 is prime so there are no blocks
+        assertThrows(IllegalArgumentException.class, () -> BoardLayout.parse("4by4"));
+
+        // boards of different sizes side by side; both implementations agree on every step
+        String[] grids = {medium, "..3.4.25.....6..3....4....21........", sixteen};
+        for (String grid : grids) {
+            SudokuPuzzle puzzle = SudokuPuzzle.create(grid);
+            FlatSudokuBoard board = FlatSudokuBoard.create(grid);
+            assertThat(board.getLayout()).isSameAs(puzzle.getLayout());
+            assertThat(board.toCompactGrid()).isEqualTo(grid.replace(' ', '.'));
+            assertSameState(puzzle, board);
+            SolveOptions options = SolveOptions.builder().search(true).quiet(true).build();
+            assertThat(Sudoku.solve(puzzle, options)).isEqualTo(SolveStatus.SOLVED);
+            assertThat(Sudoku.solve(board, options)).isEqualTo(SolveStatus.SOLVED);
+            assertThat(board.isValid()).isTrue();
+            assertSameState(puzzle, board);
+        }
+
+        // letters for the values past 9 in every format
+        BoardLayout layout = BoardLayout.forDimension(16);
+        char[][] chars = new char[16][];
+        for (int row = 0; row < 16; ++row) {
+            chars[row] = sixteen.substring(16 * row, 16 * row + 16).toLowerCase().toCharArray();
+        }
+        assertSameState(FlatSudokuBoard.create(sixteen), SudokuPuzzle.create(chars, layout));
+        assertThat(SudokuPuzzle.create(sixteen).toString()).contains("? ? ? ? ? ? 3 ? 2 5 D ?");
+        // 2 G's in the first row
+        assertThat(SudokuPuzzle.create("G" + sixteen.substring(1).replaceFirst("\\.", "G")).isValid()).isFalse();
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> FlatSudokuBoard.create("H" + sixteen.substring(1)));
+        assertThat(ex).hasMessage("invalid value (H) at cell 0");
+    }
+
+    @Test
+    void undoRestoresState() {
+        SudokuPuzzle puzzle = SudokuPuzzle.create(medium);
+        FlatSudokuBoard board = FlatSudokuBoard.create(medium);
+        FlatSudokuBoard original = FlatSudokuBoard.copyOf(board);
+        int puzzleMark = puzzle.mark();
+        int boardMark = board.mark();
+
+        for (SudokuBoard b : new SudokuBoard[]{puzzle, board}) {
+            b.setValue(0, 6);
+            b.removeCandidate(1, 7);
+            b.retainCandidates(5, Candidates.of(1, 2));
+            SudokuSolver.LOCKED_LINES.apply(b);
+        }
+        assertSameState(puzzle, board);
+        assertThat(board.getValue(0)).isEqualTo(6);
+
+        puzzle.undoTo(puzzleMark);
+        board.undoTo(boardMark);
+        assertSameState(original, board);
+        assertSameState(original, puzzle);
+        assertThat(board.isConsistent()).isTrue();
+    }
+
+    @Test
+    void enforcesValidInputs() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> FlatSudokuBoard.create("123"));
+        assertThat(ex).hasMessageStartingWith("incorrect size (3)");
+        ex = assertThrows(IllegalArgumentException.class, () -> FlatSudokuBoard.create("X" + medium.substring(1)));
+        assertThat(ex).hasMessage("invalid value (X) at cell 0");
+    }
+
+    private static void assertSameState(SudokuBoard expected, SudokuBoard actual) {
+        for (int cell = 0; cell < expected.getLayout().cellCount; ++cell) {
+            assertThat(actual.getValue(cell)).as("value of cell %d", cell).isEqualTo(expected.getValue(cell));
+            assertThat(actual.getCandidates(cell)).as("possibles of cell %d", cell).isEqualTo(expected.getCandidates(cell));
+        }
+        BoardLayout layout = expected.getLayout();
+        for (int group = 0; group < layout.groupCount; ++group) {
+            for (int value = 1; value <= layout.dimension; ++value) {
+                // the maintained index must match a scan of the cells (which is what the interface default does)
+                int scanned = 0;
+                for (int pos = 0; pos < layout.dimension; ++pos) {
+                    if (Candidates.contains(expected.getCandidates(layout.groupCell(group, pos)), value)) {
+                        scanned |= 1 << pos;
+                    }
+                }
+                assertThat(expected.getPositions(group, value)).as("group %d value %d", group, value).isEqualTo(scanned);
+                assertThat(actual.getPositions(group, value)).as("group %d value %d", group, value).isEqualTo(scanned);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HintFinderTest {
+    private static final String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+    // the solvers need an X-Wing for this one (so some hints only eliminate possible values)
+    private static final String xWing = "....3....18.....23..74.....32..1....9..52.6..4.1..9......1......5.....8.6.92..7.4";
+
+    @Test
+    void hintLeavesTheBoardAlone() {
+        FlatSudokuBoard board = FlatSudokuBoard.create(medium);
+        String grid = board.toCompactGrid();
+        int[] candidates = new int[81];
+        for (int cell = 0; cell < 81; ++cell) {
+            candidates[cell] = board.getCandidates(cell);
+        }
+        Hint hint = Sudoku.nextHint(board);
+        assertThat(hint.getSolver()).isEqualTo(SudokuSolver.HIDDEN_SINGLES);
+        assertThat(hint.isPlacing()).isTrue();
+        assertThat(hint).hasToString("HIDDEN_SINGLES in row 0: (0,5) = 2");
+        assertThat(board.toCompactGrid()).isEqualTo(grid);
+        for (int cell = 0; cell < 81; ++cell) {
+            assertThat(board.getCandidates(cell)).isEqualTo(candidates[cell]);
+        }
+    }
+
+    @Test
+    void hintIsOneDeductionEvenWhenTheSolverCascades() {
+        // in row 0 only (0,0) can be 1 and only (0,0) and (0,1) can be 2 so placing the 1 makes (0,1) a hidden 2 too
+        FlatSudokuBoard board = FlatSudokuBoard.create(".".repeat(81));
+        for (int cell = 1; cell < 9; ++cell) {
+            board.removeCandidate(cell, 1);
+            if (cell > 1) {
+                board.removeCandidate(cell, 2);
+            }
+        }
+        Hint hint = Sudoku.nextHint(board);
+        assertThat(hint).hasToString("HIDDEN_SINGLES in row 0: (0,0) = 1");
+        assertThat(hint.size()).isOne();
+    }
+
+    @Test
+    void followingTheHintsSolvesThePuzzle() {
+        for (String puzzle : new String[]{medium, xWing}) {
+            FlatSudokuBoard board = FlatSudokuBoard.create(puzzle);
+            int[] solution = SolutionCounter.findUniqueSolution(board);
+            HintFinder hints = new HintFinder(board);
+            Set<SudokuSolver> used = EnumSet.noneOf(SudokuSolver.class);
+            for (Hint hint = hints.next(); hint != null; hint = hints.next()) {
+                used.add(hint.getSolver());
+                assertThat(hint.size()).isPositive();
+                for (int x = 0; x < hint.size(); ++x) {
+                    int cell = hint.getCell(x);
+                    if (hint.isPlacing()) {
+                        assertThat(hint.getValue(x)).as("%s", hint).isEqualTo(solution[cell]);
+                        board.setValue(cell, hint.getValue(x));
+                    } else {
+                        assertThat(hint.getEliminated(x) & Candidates.bit(solution[cell])).as("%s", hint).isZero();
+                        for (int bits = hint.getEliminated(x); bits != 0; bits &= bits - 1) {
+                            board.removeCandidate(cell, Candidates.lowest(bits));
+                        }
+                    }
+                }
+            }
+            assertThat(board.isSolved()).as(puzzle).isTrue();
+            if (puzzle.equals(xWing)) {
+                assertThat(used).contains(SudokuSolver.X_WING);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PackedGridCodecTest {
+    private static final String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+    @Test
+    void recordsRoundTrip() {
+        assertThat(PackedGridCodec.recordBytes(BoardLayout.standard())).isEqualTo(41);
+        FlatSudokuBoard board = FlatSudokuBoard.create(medium);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        PackedGridCodec.encode(board, buffer);
+        assertThat(buffer.position()).isEqualTo(41);
+        buffer.flip();
+        FlatSudokuBoard decoded = new FlatSudokuBoard();
+        PackedGridCodec.decode(buffer, decoded);
+        assertThat(decoded.toCompactGrid()).isEqualTo(board.toCompactGrid());
+        assertThat(buffer.hasRemaining()).isFalse();
+
+        // every size (so every number of bits per cell) in bulk
+        Random random = new Random(42);
+        for (String shape : new String[]{"2x2", "2x3", "3x3", "3x4", "4x4", "5x5"}) {
+            BoardLayout layout = BoardLayout.parse(shape);
+            int[] grids = new int[10 * layout.cellCount];
+            for (int x = 0; x < grids.length; ++x) {
+                grids[x] = random.nextInt(layout.dimension + 1);
+            }
+            buffer = ByteBuffer.allocate(10 * PackedGridCodec.recordBytes(layout));
+            PackedGridCodec.encodeAll(layout, grids, buffer);
+            assertThat(buffer.hasRemaining()).as(shape).isFalse();
+            buffer.flip();
+            int[] decodedGrids = new int[grids.length];
+            assertThat(PackedGridCodec.decodeAll(buffer, layout, decodedGrids)).as(shape).isEqualTo(10);
+            assertThat(decodedGrids).as(shape).isEqualTo(grids);
+        }
+    }
+
+    @Test
+    void rejectsValuesOutOfRange() {
+        ByteBuffer buffer = ByteBuffer.allocate(82);
+        buffer.put(0, (byte) 0x1F).put(41, (byte) 0x12);
+        FlatSudokuBoard board = new FlatSudokuBoard();
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> PackedGridCodec.decode(buffer, board));
+        assertThat(ex).hasMessage("invalid value (15) at cell 1");
+        // the next record is still readable
+        assertThat(buffer.position()).isEqualTo(41);
+        PackedGridCodec.decode(buffer, board);
+        assertThat(board.getValue(0)).isEqualTo(1);
+        assertThat(board.getValue(1)).isEqualTo(2);
+    }
+
+    @Test
+    void packedCorpusReadsLikeText(@TempDir Path dir) throws Exception {
+        List<String> lines = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int x = 0; x < 100; ++x) {
+            String grid = x % 3 == 0 ? hardest : medium;
+            lines.add(grid);
+            expected.add(FlatSudokuBoard.create(grid).toCompactGrid());
+        }
+        lines.add(50, "123");   // skipped
+        Path text = Files.write(dir.resolve("corpus.txt"), lines, StandardCharsets.US_ASCII);
+        Path packed = dir.resolve("corpus.bin");
+
+        assertThat(PackedPuzzleWriter.pack(text, packed, BoardLayout.standard(), 0)).containsExactly(100, 1);
+        assertThat(Files.size(packed)).isEqualTo(PackedGridCodec.HEADER_BYTES + 100 * 41);
+
+        for (int chunkBytes : new int[]{1, 100, PuzzleCorpus.DEFAULT_CHUNK_BYTES}) {
+            List<String> decoded = new ArrayList<>();
+            FlatSudokuBoard board = new FlatSudokuBoard();
+            try (PuzzleCorpus corpus = new PuzzleCorpus(packed, chunkBytes)) {
+                assertThat(corpus.getLayout()).isSameAs(BoardLayout.standard());
+                PuzzleCorpus.Chunk chunk;
+                while ((chunk = corpus.nextChunk()) != null) {
+                    while (chunk.next(board)) {
+                        decoded.add(board.toCompactGrid());
+                    }
+                }
+            }
+            assertThat(decoded).as("chunks of %d bytes", chunkBytes).isEqualTo(expected);
+        }
+
+        Path unpacked = dir.resolve("unpacked.txt");
+        assertThat(PackedPuzzleWriter.unpack(packed, unpacked)).containsExactly(100, 0);
+        assertThat(Files.readAllLines(unpacked)).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,50 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelSearchTest {
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void agreesWithTheSequentialSearch() {
+        FlatSudokuBoard parallel = FlatSudokuBoard.create(hardest);
+        SolveOptions options = SolveOptions.builder().search(true).quiet(true).searchPool(pool).build();
+        assertThat(Sudoku.solve(parallel, options)).isEqualTo(SolveStatus.SOLVED);
+        assertThat(parallel.isSolved()).isTrue();
+        assertThat(parallel.isValid()).isTrue();
+
+        FlatSudokuBoard sequential = FlatSudokuBoard.create(hardest);
+        Sudoku.solve(sequential, SolveOptions.builder().search(true).quiet(true).build());
+        assertThat(parallel.toCompactGrid()).isEqualTo(sequential.toCompactGrid());
+
+        // a 2 at (0,1) isn't in the unique solution
+        FlatSudokuBoard broken = FlatSudokuBoard.create("82" + hardest.substring(2));
+        assertThat(Sudoku.solve(broken, options)).isEqualTo(SolveStatus.NO_SOLUTION);
+        assertThat(broken.isSolved()).isFalse();
+    }
+
+    @Test
+    void countsUpToTheLimitAndStops() {
+        // every 4x4 grid: the whole tree has to be searched to find all 288 of them
+        ParallelSearch every = new ParallelSearch(new FlatSudokuBoard(BoardLayout.of(2, 2)), pool);
+        assertThat(every.count(1000)).isEqualTo(288);
+        assertThat(every.getForks()).isPositive();
+
+        // a blank 9x9 has billions; asking for 10 has to stop early
+        ParallelSearch many = new ParallelSearch(new FlatSudokuBoard(), pool);
+        assertThat(many.count(10)).isEqualTo(10);
+        assertThat(many.getSolution()).doesNotContain(0);
+        assertThat(new ParallelSearch(FlatSudokuBoard.create(hardest), pool).count(2)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+class PuzzleCanonicalizerTest {
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+    private static final String easy = "..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..";
+
+    @Test
+    void equivalentPuzzlesHaveTheSameKey() {
+        Random random = new Random(17);
+        for (String puzzle : new String[]{hardest, easy}) {
+            PuzzleCanonicalizer canonicalizer = new PuzzleCanonicalizer(BoardLayout.standard());
+            String key = canonicalizer.canonicalize(FlatSudokuBoard.create(puzzle)).getKey();
+            for (int x = 0; x < 50; ++x) {
+                String transformed = transform(puzzle, BoardLayout.standard(), random);
+                assertThat(canonicalizer.canonicalize(FlatSudokuBoard.create(transformed)).getKey()).isEqualTo(key);
+            }
+        }
+        PuzzleCanonicalizer canonicalizer = new PuzzleCanonicalizer(BoardLayout.standard());
+        assertThat(canonicalizer.canonicalize(FlatSudokuBoard.create(hardest)).getKey())
+                .isNotEqualTo(canonicalizer.canonicalize(FlatSudokuBoard.create(easy)).getKey());
+
+        // blocks that aren't square can't be transposed but the rows and columns can still be reordered
+        BoardLayout sixBySix = BoardLayout.of(2, 3);
+        String six = "1.....4..2....3..1..6..5...4..5..6.2";
+        PuzzleCanonicalizer small = new PuzzleCanonicalizer(sixBySix);
+        String key = small.canonicalize(FlatSudokuBoard.create(six, sixBySix)).getKey();
+        for (int x = 0; x < 20; ++x) {
+            String transformed = transform(six, sixBySix, random);
+            assertThat(small.canonicalize(FlatSudokuBoard.create(transformed, sixBySix)).getKey()).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void symmetricGridsAreGivenUpOnQuickly() {
+        PuzzleCanonicalizer canonicalizer = new PuzzleCanonicalizer(BoardLayout.standard());
+        FlatSudokuBoard solved = FlatSudokuBoard.create(hardest);
+        Sudoku.solve(solved, SolveOptions.builder().search(true).quiet(true).build());
+        String[] grids = {".".repeat(81), solved.toCompactGrid(), "1" + ".".repeat(80),
+                solved.toCompactGrid().substring(0, 80) + "."};
+        assertTimeout(Duration.ofMillis(500), () -> {
+            assertThat(canonicalizer.canonicalize(FlatSudokuBoard.create(grids[0]))).isNull();
+            assertThat(canonicalizer.canonicalize(FlatSudokuBoard.create(grids[1]))).isNull();
+            for (String grid : grids) {
+                canonicalizer.canonicalize(FlatSudokuBoard.create(grid));
+            }
+        });
+        // a real puzzle still works afterwards
+        assertThat(canonicalizer.canonicalize(FlatSudokuBoard.create(hardest))).isNotNull();
+
+        // and the cache just solves them
+        SolveCache cache = new SolveCache(100);
+        SolveOptions options = SolveOptions.builder().search(true).quiet(true).cache(cache).build();
+        FlatSudokuBoard empty = FlatSudokuBoard.create(grids[0]);
+        assertTimeout(Duration.ofMillis(500), () -> assertThat(Sudoku.solve(empty, options)).isEqualTo(SolveStatus.SOLVED));
+        assertThat(empty.isValid()).isTrue();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void cachedSolutionsMapBackToTheOriginal() {
+        SolveCache cache = new SolveCache(100);
+        SolveOptions options = SolveOptions.builder().search(true).quiet(true).cache(cache).build();
+        FlatSudokuBoard first = FlatSudokuBoard.create(hardest);
+        assertThat(Sudoku.solve(first, options)).isEqualTo(SolveStatus.SOLVED);
+        assertThat(cache.getMisses()).isEqualTo(1);
+
+        Random random = new Random(42);
+        for (int x = 0; x < 10; ++x) {
+            String transformed = transform(hardest, BoardLayout.standard(), random);
+            FlatSudokuBoard board = FlatSudokuBoard.create(transformed);
+            assertThat(Sudoku.solve(board, options)).isEqualTo(SolveStatus.SOLVED);
+            assertThat(board.isSolved()).isTrue();
+            assertThat(board.isValid()).isTrue();
+            for (int cell = 0; cell < 81; ++cell) {
+                if (transformed.charAt(cell) != '.') {
+                    assertThat(board.getValue(cell)).isEqualTo(transformed.charAt(cell) - '0');
+                }
+            }
+        }
+        assertThat(cache.getHits()).isEqualTo(10);
+        assertThat(cache.size()).isEqualTo(1);
+
+        // no solution is remembered too
+        String broken = "82" + hardest.substring(2);
+        assertThat(Sudoku.solve(FlatSudokuBoard.create(broken), options)).isEqualTo(SolveStatus.NO_SOLUTION);
+        assertThat(Sudoku.solve(FlatSudokuBoard.create(transform(broken, BoardLayout.standard(), random)), options))
+                .isEqualTo(SolveStatus.NO_SOLUTION);
+        assertThat(cache.getHits()).isEqualTo(11);
+    }
+
+    @Test
+    void cacheIsBounded() {
+        SolveCache cache = new SolveCache(4);
+        SolveOptions options = SolveOptions.builder().search(true).quiet(true).cache(cache).build();
+        // blank out a different cell of the same grid: all different puzzles
+        FlatSudokuBoard solved = FlatSudokuBoard.create(hardest);
+        Sudoku.solve(solved, SolveOptions.builder().search(true).quiet(true).build());
+        String grid = solved.toCompactGrid();
+        for (int cell = 0; cell < 20; ++cell) {
+            String puzzle = grid.substring(0, cell) + '.' + grid.substring(cell + 1);
+            Sudoku.solve(FlatSudokuBoard.create(puzzle), options);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(4);
+    }
+
+    // a random relabeling, reordering of bands / rows / stacks / columns, and (if the blocks are square) transposition
+    private static String transform(String puzzle, BoardLayout layout, Random random) {
+        int dimension = layout.dimension;
+        int[] rows = groupedOrder(dimension, layout.blockRows, random);
+        int[] cols = groupedOrder(dimension, layout.blockCols, random);
+        int[] labels = shuffled(dimension + 1, 1, random);
+        boolean transpose = layout.blockRows == layout.blockCols && random.nextBoolean();
+        char[] out = new char[layout.cellCount];
+        for (int row = 0; row < dimension; ++row) {
+            for (int col = 0; col < dimension; ++col) {
+                int from = transpose ? cols[col] * dimension + rows[row] : rows[row] * dimension + cols[col];
+                char symbol = puzzle.charAt(from);
+                out[row * dimension + col] = symbol == '.' ? '.' : BoardLayout.symbolOf(labels[BoardLayout.valueOf(symbol)]);
+            }
+        }
+        return new String(out);
+    }
+
+    // a random order of 0..n-1 that keeps each run of groupSize together
+    private static int[] groupedOrder(int n, int groupSize, Random random) {
+        int[] groups = shuffled(n / groupSize, 0, random);
+        int[] order = new int[n];
+        for (int g = 0; g < groups.length; ++g) {
+            int[] within = shuffled(groupSize, 0, random);
+            for (int x = 0; x < groupSize; ++x) {
+                order[g * groupSize + x] = groups[g] * groupSize + within[x];
+            }
+        }
+        return order;
+    }
+
+    // [x] -> a random permutation of from..n-1 (x < from are left as is)
+    private static int[] shuffled(int n, int from, Random random) {
+        int[] items = new int[n];
+        for (int x = 0; x < n; ++x) {
+            items[x] = x;
+        }
+        for (int x = n - 1; x > from; --x) {
+            int swap = from + random.nextInt(x - from + 1);
+            int tmp = items[x];
+            items[x] = items[swap];
+            items[swap] = tmp;
+        }
+        return items;
+    }
+}
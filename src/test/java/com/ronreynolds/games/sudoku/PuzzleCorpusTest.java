@@ -0,0 +1,72 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PuzzleCorpusTest {
+    private static final String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+    @Test
+    void chunksSplitAtLineBoundaries(@TempDir Path dir) throws Exception {
+        StringBuilder text = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int x = 0; x < 100; ++x) {
+            String grid = x % 3 == 0 ? hardest : medium;
+            expected.add(FlatSudokuBoard.create(grid).toCompactGrid());
+            // mixed line endings, blank lines, and no newline at the very end
+            text.append(grid).append(x % 2 == 0 ? "\n" : "\r\n").append(x % 10 == 0 ? "\n" : "");
+        }
+        Path file = Files.write(dir.resolve("corpus.txt"), text.toString().trim().getBytes(StandardCharsets.US_ASCII));
+
+        for (int chunkBytes : new int[]{1, 100, 1000, PuzzleCorpus.DEFAULT_CHUNK_BYTES}) {
+            List<String> decoded = new ArrayList<>();
+            FlatSudokuBoard board = new FlatSudokuBoard();
+            int chunks = 0;
+            try (PuzzleCorpus corpus = new PuzzleCorpus(file, chunkBytes)) {
+                PuzzleCorpus.Chunk chunk;
+                while ((chunk = corpus.nextChunk()) != null) {
+                    assertThat(chunk.getIndex()).isEqualTo(chunks++);
+                    while (chunk.next(board)) {
+                        decoded.add(board.toCompactGrid());
+                    }
+                }
+            }
+            assertThat(decoded).as("chunks of %d bytes", chunkBytes).isEqualTo(expected);
+            assertThat(chunks).as("chunks of %d bytes", chunkBytes).isGreaterThanOrEqualTo(chunkBytes == 1 ? 100 : 1);
+        }
+    }
+
+    @Test
+    void skipsPastBadRecords(@TempDir Path dir) throws Exception {
+        String bad = "X" + medium.substring(1);
+        Path file = Files.write(dir.resolve("corpus.txt"), List.of(medium, "123", bad, hardest));
+        FlatSudokuBoard board = new FlatSudokuBoard();
+        try (PuzzleCorpus corpus = new PuzzleCorpus(file)) {
+            PuzzleCorpus.Chunk chunk = corpus.nextChunk();
+            assertThat(chunk.next(board)).isTrue();
+            assertThat(board.toCompactGrid()).isEqualTo(FlatSudokuBoard.create(medium).toCompactGrid());
+
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> chunk.next(board));
+            assertThat(ex).hasMessageStartingWith("incorrect size (3) for record at offset 82");
+            assertThat(chunk.lastRecord()).isEqualTo("123");
+            ex = assertThrows(IllegalArgumentException.class, () -> chunk.next(board));
+            assertThat(ex).hasMessage("invalid value (X) at cell 0 of record at offset 86");
+            assertThat(chunk.lastRecord()).isEqualTo(bad);
+
+            assertThat(chunk.next(board)).isTrue();
+            assertThat(board.toCompactGrid()).isEqualTo(hardest);
+            assertThat(chunk.next(board)).isFalse();
+            assertThat(corpus.nextChunk()).isNull();
+        }
+    }
+}
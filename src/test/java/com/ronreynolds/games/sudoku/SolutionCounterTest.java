@@ -0,0 +1,55 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SolutionCounterTest {
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+    @Test
+    void countsUpToTheLimit() {
+        FlatSudokuBoard board = FlatSudokuBoard.create(hardest);
+        assertThat(Sudoku.countSolutions(board, 1)).isEqualTo(1);
+        assertThat(Sudoku.countSolutions(board, 2)).isEqualTo(1);
+        assertThat(Sudoku.hasUniqueSolution(board)).isTrue();
+        int[] solution = SolutionCounter.findUniqueSolution(board);
+        FlatSudokuBoard solved = FlatSudokuBoard.create(hardest);
+        assertThat(Sudoku.solve(solved, SolveOptions.builder().search(true).quiet(true).build()))
+                .isEqualTo(SolveStatus.SOLVED);
+        for (int cell = 0; cell < 81; ++cell) {
+            assertThat(solution[cell]).isEqualTo(solved.getValue(cell));
+        }
+        assertThat(board.isSolved()).isFalse();     // the board itself is left alone
+
+        // a value that follows the rules but isn't in the solution
+        assertThat(Sudoku.countSolutions(FlatSudokuBoard.create("82" + hardest.substring(2)), 2)).isZero();
+        // the same value twice in a row
+        assertThat(Sudoku.countSolutions(FlatSudokuBoard.create("88" + hardest.substring(2)), 2)).isZero();
+        // remove a clue and there are more solutions
+        FlatSudokuBoard fewerClues = FlatSudokuBoard.create("." + hardest.substring(1));
+        assertThat(Sudoku.countSolutions(fewerClues, 2)).isEqualTo(2);
+        assertThat(Sudoku.hasUniqueSolution(fewerClues)).isFalse();
+        assertThat(SolutionCounter.findUniqueSolution(fewerClues)).isNull();
+
+        // every 4x4 grid: there are 288 of them
+        assertThat(Sudoku.countSolutions(new FlatSudokuBoard(BoardLayout.of(2, 2)), 1000)).isEqualTo(288);
+        assertThat(Sudoku.countSolutions(new FlatSudokuBoard(BoardLayout.of(2, 2)), 10)).isEqualTo(10);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> Sudoku.countSolutions(board, 0));
+        assertThat(ex).hasMessage("limit must be at least 1 - 0");
+    }
+
+    @Test
+    void safeToCallConcurrently() {
+        SudokuPuzzle shared = SudokuPuzzle.create(hardest);
+        SudokuPuzzle ambiguous = SudokuPuzzle.create("." + hardest.substring(1));
+        assertThat(IntStream.range(0, 200).parallel()
+                .map(x -> x % 2 == 0 ? Sudoku.countSolutions(shared, 2) : Sudoku.countSolutions(ambiguous, 2) - 1)
+                .distinct()
+                .toArray()).containsExactly(1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SolveBudgetTest {
+    private static final String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+    // the solvers can't finish this one so it needs a search
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+    private static final SolveOptions search = SolveOptions.builder().search(true).quiet(true).build();
+
+    @Test
+    void stepBudgetStopsEveryEngine() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (SolveOptions options : new SolveOptions[]{search,
+                    search.toBuilder().engine(SolveEngine.DANCING_LINKS).build(),
+                    search.toBuilder().searchPool(pool).build()}) {
+                FlatSudokuBoard board = FlatSudokuBoard.create(hardest);
+                SolveBudget budget = SolveBudget.steps(100);
+                assertThat(Sudoku.solveWithin(board, options, budget)).isEqualTo(SolveStatus.TIMED_OUT);
+                assertThat(budget.getSteps()).isEqualTo(100);
+                // what was found before then is still there (and right)
+                assertThat(board.isSolved()).isFalse();
+                assertThat(board.isConsistent()).isTrue();
+
+                board = FlatSudokuBoard.create(hardest);
+                assertThat(Sudoku.solveWithin(board, options, SolveBudget.steps(10_000_000)))
+                        .isEqualTo(SolveStatus.SOLVED);
+                assertThat(board.isSolved()).isTrue();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void stepBudgetStopsAtTheSamePlaceEveryTime() {
+        FlatSudokuBoard first = FlatSudokuBoard.create(medium);
+        FlatSudokuBoard second = FlatSudokuBoard.create(medium);
+        assertThat(Sudoku.solveWithin(first, search, SolveBudget.steps(30))).isEqualTo(SolveStatus.TIMED_OUT);
+        assertThat(Sudoku.solveWithin(second, search, SolveBudget.steps(30))).isEqualTo(SolveStatus.TIMED_OUT);
+        assertThat(first.toCompactGrid()).isEqualTo(second.toCompactGrid());
+        assertThat(first.toCompactGrid()).isNotEqualTo(FlatSudokuBoard.create(medium).toCompactGrid());
+    }
+
+    @Test
+    void deadlineAndInterruptStopTheSolve() {
+        FlatSudokuBoard board = FlatSudokuBoard.create(hardest);
+        SolveBudget budget = SolveBudget.timeout(0, TimeUnit.NANOSECONDS);
+        assertThat(Sudoku.solveWithin(board, search, budget)).isEqualTo(SolveStatus.TIMED_OUT);
+        assertThat(budget.getSteps()).isZero();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThat(Sudoku.solveWithin(board, search, SolveBudget.unlimited())).isEqualTo(SolveStatus.INTERRUPTED);
+        } finally {
+            assertThat(Thread.interrupted()).as("the interrupt is left set").isTrue();
+        }
+        assertThat(Sudoku.solveWithin(board, search, SolveBudget.unlimited())).isEqualTo(SolveStatus.SOLVED);
+    }
+
+    @Test
+    void interruptingTheSolvingThreadStopsTheSolve() throws Exception {
+        // the budget is made here but the solve runs (and is interrupted) on another thread
+        SolveBudget budget = SolveBudget.unlimited();
+        FlatSudokuBoard board = FlatSudokuBoard.create(hardest);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SolveStatus status = executor.submit(() -> {
+                Thread.currentThread().interrupt();
+                return Sudoku.solveWithin(board, search, budget);
+            }).get();
+            assertThat(status).isEqualTo(SolveStatus.INTERRUPTED);
+            assertThat(board.isSolved()).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void interruptingTheThreadWaitingForAParallelSearchStopsIt() throws Exception {
+        // the solving thread is interrupted as it hands the search to the pool (when the pool starts its worker) so
+        // from then on it's only waiting while the worker (which isn't interrupted) searches
+        Thread[] solving = new Thread[1];
+        ForkJoinPool pool = new ForkJoinPool(1, forkJoinPool -> {
+            solving[0].interrupt();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+        }, null, false);
+        SolveBudget budget = SolveBudget.unlimited();
+        FlatSudokuBoard board = FlatSudokuBoard.create(hardest);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SolveStatus status = executor.submit(() -> {
+                solving[0] = Thread.currentThread();
+                return Sudoku.solveWithin(board, search.toBuilder().searchPool(pool).build(), budget);
+            }).get();
+            assertThat(status).isEqualTo(SolveStatus.INTERRUPTED);
+            assertThat(board.isSolved()).isFalse();
+        } finally {
+            executor.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+}
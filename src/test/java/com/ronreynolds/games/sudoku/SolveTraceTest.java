@@ -0,0 +1,105 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SolveTraceTest {
+    private static final String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+    @Test
+    void replayingTheTraceSolvesThePuzzle() throws Exception {
+        FlatSudokuBoard board = FlatSudokuBoard.create(medium);
+        SolveTrace trace = new SolveTrace(board.getLayout());
+        long placements = board.getPlacementCount();
+        Sudoku.solve(board, SolveOptions.builder().trace(trace).quiet(true).build());
+        assertThat(board.isSolved()).isTrue();
+        assertThat(board.getTrace()).isNull();  // only attached for the solve
+
+        // every value placed is in the trace (and only inside solver passes since there was no search)
+        FlatSudokuBoard replay = FlatSudokuBoard.create(medium);
+        int valuesSet = 0;
+        boolean inPass = false;
+        for (int event = 0; event < trace.size(); ++event) {
+            switch (trace.getType(event)) {
+                case SolveTrace.SOLVER_START:
+                    inPass = true;
+                    break;
+                case SolveTrace.SOLVER_END:
+                    inPass = false;
+                    break;
+                case SolveTrace.VALUE_SET:
+                    assertThat(inPass).isTrue();
+                    replay.setValue(trace.getCell(event), trace.getPayload(event));
+                    ++valuesSet;
+                    break;
+                default:
+                    break;
+            }
+        }
+        assertThat(valuesSet).isEqualTo(board.getPlacementCount() - placements);
+        assertThat(replay.toCompactGrid()).isEqualTo(board.toCompactGrid());
+
+        String text = SolveTraceRenderer.render(trace);
+        assertThat(text).startsWith("SIMPLE_SINGLES\n").contains(" looked at ", "helped");
+
+        // the binary form renders the same
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        new SolveTrace(board.getLayout()).write(header);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        trace.write(bytes);
+        assertThat(bytes.size()).isEqualTo(header.size() + 8 * trace.size());
+        SolveTrace copy = SolveTrace.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(SolveTraceRenderer.render(copy)).isEqualTo(text);
+
+        trace.clear();
+        assertThat(trace.size()).isZero();
+    }
+
+    @Test
+    void searchGuessesAndUndosAreTraced() {
+        SudokuPuzzle puzzle = SudokuPuzzle.create(hardest);
+        SolveTrace trace = new SolveTrace(puzzle.getLayout());
+        SolveOptions options = SolveOptions.builder().search(true).trace(trace).quiet(true).build();
+        assertThat(Sudoku.solve(puzzle, options)).isEqualTo(SolveStatus.SOLVED);
+        assertThat(SolveTraceRenderer.render(trace)).contains("undid ");
+    }
+
+    @Test
+    void readTracesNameSolversTheWayTheirBuildDid() throws Exception {
+        // a trace from a build where HIDDEN_SINGLES came first: one pass of it setting (0,0) to 5
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0x53545232);
+        data.writeByte(3);
+        data.writeByte(3);
+        data.writeShort(2);
+        data.writeUTF("HIDDEN_SINGLES");
+        data.writeUTF("SIMPLE_SINGLES");
+        data.writeInt(3);
+        data.writeLong((long) SolveTrace.SOLVER_START << 60);
+        data.writeLong((long) SolveTrace.VALUE_SET << 60 | 5);
+        data.writeLong((long) SolveTrace.SOLVER_END << 60 | 27L << 40 | 1L << 32);
+        SolveTrace trace = SolveTrace.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(SolveTraceRenderer.render(trace))
+                .isEqualTo("HIDDEN_SINGLES\n  (0,0) = 5\nHIDDEN_SINGLES looked at 27 groups and helped\n");
+
+        // written again it keeps its names
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        trace.write(again);
+        assertThat(again.toByteArray()).isEqualTo(bytes.toByteArray());
+
+        // the first format had no names so what its ordinals meant is unknown
+        bytes.reset();
+        data.writeInt(0x53545243);
+        assertThatThrownBy(() -> SolveTrace.read(new ByteArrayInputStream(bytes.toByteArray())))
+                .isInstanceOf(IOException.class).hasMessageContaining("older version");
+    }
+}
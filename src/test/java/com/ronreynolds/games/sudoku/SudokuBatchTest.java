@@ -0,0 +1,47 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SudokuBatchTest {
+    private static final String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+    // a 2 at (0,1) that follows the rules but isn't in the (unique) solution
+    private static final String noSolution = "82" + hardest.substring(2);
+
+    @Test
+    void solvesInInputOrder(@TempDir Path dir) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int x = 0; x < 50; ++x) {
+            lines.add(x % 2 == 0 ? medium : hardest);
+        }
+        lines.add(noSolution);
+        lines.add("123");
+        Path input = Files.write(dir.resolve("in.txt"), lines);
+        Path output = dir.resolve("out.txt");
+
+        // small chunks (~4 lines) and few threads so several chunks are in flight and the ordering is actually tested
+        SudokuBatch batch = new SudokuBatch(3, 300, SolveOptions.DEFAULT.toBuilder().search(true).build());
+        String summary = batch.run(input, output);
+        assertThat(summary).startsWith("52 puzzles (50 solved, 1 invalid)");
+        assertThat(batch.getLatency().getCount()).isEqualTo(52);
+        assertThat(batch.getSolverStats().getCalls(SudokuSolver.SIMPLE_SINGLES)).isPositive();
+
+        List<String> results = Files.readAllLines(output);
+        assertThat(results).hasSize(52);
+        for (int x = 0; x < 50; ++x) {
+            FlatSudokuBoard expected = FlatSudokuBoard.create(lines.get(x));
+            Sudoku.solve(expected, SolveOptions.builder().engine(SolveEngine.DANCING_LINKS).quiet(true).build());
+            assertThat(results.get(x)).as("line %d", x).isEqualTo(expected.toCompactGrid());
+        }
+        assertThat(results.get(50)).endsWith(" NO_SOLUTION");
+        assertThat(results.get(51)).isEqualTo("123 INVALID");
+    }
+}
@@ -0,0 +1,60 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SudokuGeneratorTest {
+    @Test
+    void makesMinimalUniquePuzzles(@TempDir Path dir) throws Exception {
+        SudokuGenerator generator = new SudokuGenerator(3, 0);
+        String summary = generator.run(150, dir.resolve("a.txt"), 42);
+        assertThat(summary).startsWith("150 puzzles in");
+        List<String> lines = Files.readAllLines(dir.resolve("a.txt"));
+        assertThat(lines).hasSize(150);
+
+        int[] grades = new int[SudokuSolver.values().length + 1];
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            String givens = fields[0];
+            int grade = SudokuGenerator.gradeOf(givens);
+            assertThat(fields[1]).isEqualTo(SudokuGenerator.gradeName(grade));
+            ++grades[grade];
+            assertThat(Sudoku.hasUniqueSolution(FlatSudokuBoard.create(givens))).as(line).isTrue();
+            // every given is needed
+            for (int cell = 0; cell < givens.length(); ++cell) {
+                if (givens.charAt(cell) != '.') {
+                    String fewer = givens.substring(0, cell) + '.' + givens.substring(cell + 1);
+                    assertThat(Sudoku.countSolutions(FlatSudokuBoard.create(fewer), 2)).as(fewer).isEqualTo(2);
+                }
+            }
+        }
+        for (int grade = 0; grade < grades.length; ++grade) {
+            assertThat(generator.getGradeCount(grade)).isEqualTo(grades[grade]);
+        }
+
+        // the same seed makes the same puzzles no matter how many threads make them
+        new SudokuGenerator(1, 0).run(150, dir.resolve("b.txt"), 42);
+        assertThat(Files.readAllLines(dir.resolve("b.txt"))).isEqualTo(lines);
+        new SudokuGenerator(1, 0).run(150, dir.resolve("c.txt"), 43);
+        assertThat(Files.readAllLines(dir.resolve("c.txt"))).isNotEqualTo(lines);
+    }
+
+    @Test
+    void keepsOnlyHardEnoughPuzzles(@TempDir Path dir) throws Exception {
+        int minGrade = SudokuSolver.LOCKED_LINES.ordinal();
+        new SudokuGenerator(2, minGrade).run(20, dir.resolve("hard.txt"), 7);
+        List<String> lines = Files.readAllLines(dir.resolve("hard.txt"));
+        assertThat(lines).hasSize(20);
+        for (String line : lines) {
+            assertThat(SudokuGenerator.gradeOf(line.substring(0, 81))).isGreaterThanOrEqualTo(minGrade);
+        }
+        assertThat(SudokuGenerator.gradeOf("8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4.."))
+                .isEqualTo(SudokuSolver.values().length);
+    }
+}
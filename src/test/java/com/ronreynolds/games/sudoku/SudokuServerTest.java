@@ -0,0 +1,60 @@
+package com.ronreynolds.games.sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SudokuServerTest {
+    private static final String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+    private static final String hardest = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+    @Test
+    void answersOneLinePerRequest() throws Exception {
+        try (SudokuServer server = new SudokuServer(0, 2, 16, 4, 10_000, 8, BoardLayout.standard()).start()) {
+            SudokuLoadClient client = new SudokuLoadClient("localhost", server.getPort(), 1);
+            FlatSudokuBoard expected = FlatSudokuBoard.create(hardest);
+            Sudoku.solve(expected, SolveOptions.builder().engine(SolveEngine.DANCING_LINKS).quiet(true).build());
+            assertThat(client.request(hardest)).isEqualTo(expected.toCompactGrid());
+            assertThat(client.request("82" + hardest.substring(2))).endsWith(" NO_SOLUTION");
+            assertThat(client.request("123")).isEqualTo("123 INVALID");
+            assertThat(client.request(SudokuServer.STATS)).startsWith("accepted=3 rejected=0 timedOut=0 queued=0");
+        }
+    }
+
+    @Test
+    void loadClientGetsEveryAnswer() throws Exception {
+        try (SudokuServer server = new SudokuServer(0, 2, 64, 8, 10_000, 16, BoardLayout.standard()).start()) {
+            SudokuLoadClient client = new SudokuLoadClient("localhost", server.getPort(), 8);
+            String summary = client.run(List.of(medium, hardest), 200);
+            assertThat(summary).startsWith("200 requests over 8 connections");
+            assertThat(summary).contains("busy=0 timedOut=0").contains("server: accepted=200 ");
+            assertThat(server.getLatency().getCount()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void shedsLoadBeyondTheQueue() throws Exception {
+        // 1 worker, room for 1 waiting request, and 16 connections hammering it: some have to be turned away
+        try (SudokuServer server = new SudokuServer(0, 1, 1, 1, 10_000, 16, BoardLayout.standard()).start()) {
+            SudokuLoadClient client = new SudokuLoadClient("localhost", server.getPort(), 16);
+            client.run(List.of(hardest), 400);
+            assertThat(client.getLatency().getCount()).isEqualTo(400);
+            assertThat(client.getBusyCount()).isPositive().isEqualTo(server.getRejectedCount());
+        }
+    }
+
+    @Test
+    void turnsAwayConnectionsBeyondTheLimit() throws Exception {
+        // room for 2 connections but 8 of them at once: the rest are answered BUSY and hung up on
+        try (SudokuServer server = new SudokuServer(0, 2, 64, 8, 10_000, 2, BoardLayout.standard()).start()) {
+            SudokuLoadClient client = new SudokuLoadClient("localhost", server.getPort(), 8);
+            String summary = client.run(List.of(hardest), 400);
+            assertThat(summary).contains("server: ");
+            assertThat(client.getRejectedCount()).isPositive().isEqualTo(server.getRejectedCount());
+            assertThat(client.getBusyCount()).isZero();
+            assertThat(client.getLatency().getCount()).isLessThan(400);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.ronreynolds.games.sudoku;
 import com.ronreynolds.games.util.Pair;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,4 +24,221 @@ class SudokuSolverTest {
                         Pair.of(3, 4), Pair.of(3, 5),
                         Pair.of(4, 5));
     }
-}
\ No newline at end of file
+
+    @Test
+    void schedulerOnlyRevisitsChangedGroups() {
+        FlatSudokuBoard board = FlatSudokuBoard.create("" +
+                "  345    " +
+                " 2   6  3" +
+                "  1   7 2" +
+                "      8 1" +
+                " 8  2  9 " +
+                "9 7      " +
+                "1 6   9  " +
+                "2  5   1 " +
+                "    432  ");
+        PropagationScheduler<FlatSudokuBoard> scheduler = new PropagationScheduler<>(board);
+        List<SudokuSolver> ran = new ArrayList<>();
+        assertThat(scheduler.run((solver, helped, b) -> ran.add(solver))).isTrue();
+        assertThat(board.isSolved()).isTrue();
+        assertThat(ran).startsWith(SudokuSolver.SIMPLE_SINGLES);
+
+        // a puzzle the solvers can't crack; after one run nothing changed so nothing is queued
+        FlatSudokuBoard stalled = FlatSudokuBoard.create("12" + " ".repeat(79));
+        scheduler = new PropagationScheduler<>(stalled);
+        ran.clear();
+        assertThat(scheduler.run((solver, helped, b) -> ran.add(solver))).isFalse();
+        assertThat(ran).containsExactly(SudokuSolver.getSolvers());
+        ran.clear();
+        assertThat(scheduler.run((solver, helped, b) -> ran.add(solver))).isFalse();
+        assertThat(ran).isEmpty();
+    }
+
+    @Test
+    void statsCountWhatEachSolverFound() {
+        String medium = "..345....02...6..3..1...7.2......8.1.8..2..9.9.7......1.6...9..2..5...1.....432..";
+        FlatSudokuBoard board = FlatSudokuBoard.create(medium);
+        long givenPlacements = board.getPlacementCount();
+        SolverStats stats = new SolverStats();
+        SolveOptions options = SolveOptions.builder().stats(stats).quiet(true).build();
+        assertThat(Sudoku.solve(board, options)).isEqualTo(SolveStatus.SOLVED);
+
+        long placements = 0;
+        for (SudokuSolver solver : SudokuSolver.getSolvers()) {
+            placements += stats.getPlacements(solver);
+        }
+        // every value not given was placed by some solver
+        assertThat(placements).isEqualTo(board.getPlacementCount() - givenPlacements);
+        assertThat(stats.getCalls(SudokuSolver.SIMPLE_SINGLES)).isPositive();
+        assertThat(stats.getEliminations(SudokuSolver.SIMPLE_SINGLES)).isPositive();
+        assertThat(stats.report()).startsWith("solver").contains("SIMPLE_SINGLES");
+
+        // a solver with plenty of history and no results goes last; one without enough history goes first
+        SolverStats history = new SolverStats();
+        history.record(SudokuSolver.SIMPLE_SINGLES, SolverStats.MIN_CALLS, 1_000_000, 0, 0);
+        history.record(SudokuSolver.HIDDEN_SINGLES, SolverStats.MIN_CALLS, 1_000, 10, 10);
+        history.record(SudokuSolver.LOCKED_LINES, SolverStats.MIN_CALLS, 1_000, 1, 0);
+        history.record(SudokuSolver.LOCKED_BLOCKS, SolverStats.MIN_CALLS, 100, 1, 0);
+        List<SudokuSolver> expected = new ArrayList<>(List.of(SudokuSolver.getSolvers()));
+        List<SudokuSolver> measured = List.of(SudokuSolver.HIDDEN_SINGLES, SudokuSolver.LOCKED_BLOCKS,
+                SudokuSolver.LOCKED_LINES, SudokuSolver.SIMPLE_SINGLES);
+        expected.removeAll(measured);
+        expected.addAll(measured);
+        assertThat(history.adaptiveOrder(SudokuSolver.getSolvers())).containsExactlyElementsOf(expected);
+
+        // the adaptive order finds the same solution
+        FlatSudokuBoard adaptive = FlatSudokuBoard.create(medium);
+        Sudoku.solve(adaptive, options.toBuilder().stats(history).adaptive(true).build());
+        assertThat(adaptive.toCompactGrid()).isEqualTo(board.toCompactGrid());
+    }
+
+    @Test
+    void subsetsEliminateCandidates() {
+        // row 0 has 3 unsolved cells left: (0,0)=[1, 2], (0,1)=[1, 2], (0,2)=[1, 2, 3]
+        FlatSudokuBoard board = FlatSudokuBoard.create("...456789" + ".".repeat(72));
+        board.retainCandidates(0, Candidates.of(1, 2));
+        board.retainCandidates(1, Candidates.of(1, 2));
+        assertThat(SudokuSolver.NAKED_PAIR.apply(board, board.getLayout().rowGroup(0))).isTrue();
+        assertThat(board.getCandidates(2)).isEqualTo(Candidates.of(3));
+        assertThat(SudokuSolver.NAKED_PAIR.apply(board, board.getLayout().rowGroup(0))).isFalse();
+
+        // column 0: 7, 8, and 9 are only possible in rows 6-8 so those cells can't have anything else
+        board = FlatSudokuBoard.create(".".repeat(81));
+        BoardLayout layout = board.getLayout();
+        for (int row = 0; row < 6; ++row) {
+            for (int value = 7; value <= 9; ++value) {
+                board.removeCandidate(layout.cellIndex(row, 0), value);
+            }
+        }
+        assertThat(SudokuSolver.HIDDEN_PAIR.apply(board, layout.columnGroup(0))).isFalse();
+        assertThat(SudokuSolver.HIDDEN_TRIPLE.apply(board, layout.columnGroup(0))).isTrue();
+        for (int row = 6; row < 9; ++row) {
+            assertThat(board.getCandidates(layout.cellIndex(row, 0))).isEqualTo(Candidates.of(7, 8, 9));
+        }
+        // which is also a naked triple in the block (and column) so nobody else in the block can have 7, 8, or 9
+        assertThat(SudokuSolver.NAKED_TRIPLE.apply(board, layout.blockGroup(6))).isTrue();
+        assertThat(board.getPositions(layout.blockGroup(6), 7)).isEqualTo(0b001001001);
+        assertThat(SudokuSolver.NAKED_QUAD.apply(board, layout.blockGroup(6))).isFalse();
+    }
+
+    @Test
+    void fishEliminateCandidates() {
+        FlatSudokuBoard board = FlatSudokuBoard.create(".".repeat(81));
+        BoardLayout layout = board.getLayout();
+        // 5 is only possible in columns 2 and 6 of rows 1 and 4: an X-Wing
+        restrict(board, 5, new int[]{1, 4}, Candidates.of(2 + 1, 6 + 1));
+        assertThat(SudokuSolver.X_WING.apply(board, layout.rowGroup(0))).isFalse();    // not part of the fish
+        assertThat(SudokuSolver.X_WING.apply(board, layout.rowGroup(4))).isTrue();
+        assertThat(board.getPositions(layout.columnGroup(2), 5)).isEqualTo(1 << 1 | 1 << 4);
+        assertThat(board.getPositions(layout.columnGroup(6), 5)).isEqualTo(1 << 1 | 1 << 4);
+        assertThat(board.getPositions(layout.columnGroup(3), 5)).isEqualTo(0b111101101);
+        assertThat(SudokuSolver.X_WING.apply(board, layout.rowGroup(1))).isFalse();
+
+        // 7 is only possible in rows 0 and 3 (column 0), 3 and 8 (column 4), and 0 and 8 (column 7): a Swordfish
+        board = FlatSudokuBoard.create(".".repeat(81));
+        restrict(board, 7, new int[]{0}, Candidates.of(0 + 1, 7 + 1));
+        restrict(board, 7, new int[]{3}, Candidates.of(0 + 1, 4 + 1));
+        restrict(board, 7, new int[]{8}, Candidates.of(4 + 1, 7 + 1));
+        assertThat(SudokuSolver.X_WING.apply(board, layout.rowGroup(3))).isFalse();
+        assertThat(SudokuSolver.SWORDFISH.apply(board, layout.rowGroup(3))).isTrue();
+        for (int col : new int[]{0, 4, 7}) {
+            assertThat(Integer.bitCount(board.getPositions(layout.columnGroup(col), 7))).isEqualTo(2);
+        }
+        // columns 0, 4, and 7 are now a Swordfish too but there's nothing left for it to eliminate
+        assertThat(SudokuSolver.SWORDFISH.apply(board, layout.columnGroup(4))).isFalse();
+
+        // 3 is only possible in columns 1, 2, 5, and 8 of rows 2, 4, 6, and 7: a Jellyfish
+        board = FlatSudokuBoard.create(".".repeat(81));
+        restrict(board, 3, new int[]{2, 4}, Candidates.of(1 + 1, 2 + 1, 5 + 1));
+        restrict(board, 3, new int[]{6, 7}, Candidates.of(2 + 1, 5 + 1, 8 + 1));
+        assertThat(SudokuSolver.SWORDFISH.apply(board, layout.rowGroup(2))).isFalse();
+        assertThat(SudokuSolver.JELLYFISH.apply(board, layout.rowGroup(2))).isTrue();
+        assertThat(board.getPositions(layout.columnGroup(8), 3)).isEqualTo(1 << 6 | 1 << 7);
+    }
+
+    @Test
+    void chainsEliminateCandidates() {
+        FlatSudokuBoard board = FlatSudokuBoard.create(".".repeat(81));
+        BoardLayout layout = board.getLayout();
+        // strong links of 5: (0,0)-(6,0) in column 0, (6,0)-(6,7) in row 6, (6,7)-(2,7) in column 7
+        keepOnly(board, 5, layout.columnGroup(0), 1 << 0 | 1 << 6);
+        keepOnly(board, 5, layout.rowGroup(6), 1 << 0 | 1 << 7);
+        keepOnly(board, 5, layout.columnGroup(7), 1 << 2 | 1 << 6);
+        StrongLinkGraph graph = new StrongLinkGraph(layout);
+        graph.refresh(board);
+        assertThat(graph.partner(5, layout.cellIndex(6, 0), BoardLayout.ROW)).isEqualTo(layout.cellIndex(6, 7));
+        assertThat(graph.partner(5, layout.cellIndex(6, 0), BoardLayout.BLOCK)).isEqualTo(StrongLinkGraph.NONE);
+        // (0,0) and (6,7) are one color and (6,0) and (2,7) the other; these cells see both
+        int version = graph.getValueVersion(5);
+        assertThat(SudokuSolver.SIMPLE_COLORING.apply(board, layout.rowGroup(0))).isTrue();
+        assertThat(board.getPositions(layout.rowGroup(0), 5)).isEqualTo(0b000111111);
+        assertThat(board.getPositions(layout.rowGroup(2), 5)).isEqualTo(0b111111000);
+        assertThat(SudokuSolver.SIMPLE_COLORING.apply(board, layout.rowGroup(0))).isFalse();
+        // only what changed is re-read
+        graph.refresh(board);
+        assertThat(graph.getValueVersion(5)).isNotEqualTo(version);
+        version = graph.getVersion();
+        graph.refresh(board);
+        assertThat(graph.getVersion()).isEqualTo(version);
+
+        // (0,0)-(6,0) in column 0, (6,0) sees (6,5), (6,5)-(1,5) in column 5; two chains of strong links so coloring
+        // can't connect them but an X-chain can: (0,0) or (1,5) is 5
+        board = FlatSudokuBoard.create(".".repeat(81));
+        keepOnly(board, 5, layout.columnGroup(0), 1 << 0 | 1 << 6);
+        keepOnly(board, 5, layout.columnGroup(5), 1 << 1 | 1 << 6);
+        assertThat(SudokuSolver.SIMPLE_COLORING.apply(board, layout.rowGroup(0))).isFalse();
+        assertThat(SudokuSolver.X_CHAIN.apply(board, layout.rowGroup(0))).isTrue();
+        assertThat(board.getPositions(layout.rowGroup(0), 5)).isEqualTo(0b111000111);
+        assertThat(board.getPositions(layout.rowGroup(1), 5)).isEqualTo(0b111111000);
+        assertThat(SudokuSolver.X_CHAIN.apply(board, layout.rowGroup(0))).isFalse();
+
+        // (0,0)=12 (0,4)=23 (4,4)=34 (4,8)=41: if (0,0) isn't 1 then (4,8) is
+        board = FlatSudokuBoard.create(".".repeat(81));
+        board.retainCandidates(layout.cellIndex(0, 0), Candidates.of(1, 2));
+        board.retainCandidates(layout.cellIndex(0, 4), Candidates.of(2, 3));
+        board.retainCandidates(layout.cellIndex(4, 4), Candidates.of(3, 4));
+        board.retainCandidates(layout.cellIndex(4, 8), Candidates.of(4, 1));
+        assertThat(SudokuSolver.XY_CHAIN.apply(board, layout.rowGroup(0))).isTrue();
+        assertThat(board.getCandidates(layout.cellIndex(0, 8))).isEqualTo(Candidates.all(9) & ~Candidates.of(1));
+        assertThat(board.getCandidates(layout.cellIndex(4, 0))).isEqualTo(Candidates.all(9) & ~Candidates.of(1));
+        assertThat(board.getPositions(layout.rowGroup(0), 1)).isEqualTo(0b011101111);
+        assertThat(SudokuSolver.XY_CHAIN.apply(board, layout.rowGroup(0))).isFalse();
+    }
+
+    // make value only possible at the positions of the mask in the group
+    @Test
+    void boardWideSolversAreAppliedOnceToTheBoard() {
+        // stalled for the other solvers and coloring finds more after its own eliminations (if it's run again)
+        String puzzle = "...8....54.1.......9..3.7........94...9..3..2..3.62....8....5..5..39...6...28...9";
+        FlatSudokuBoard swept = FlatSudokuBoard.create(puzzle);
+        FlatSudokuBoard once = FlatSudokuBoard.create(puzzle);
+        new PropagationScheduler<>(swept, SudokuSolver.getSearchSolvers()).run(Sudoku.NO_LOGGING);
+        new PropagationScheduler<>(once, SudokuSolver.getSearchSolvers()).run(Sudoku.NO_LOGGING);
+        assertThat(SudokuSolver.SIMPLE_COLORING.apply(swept)).isTrue();
+        assertThat(SudokuSolver.SIMPLE_COLORING.apply(once, 0)).isTrue();
+        for (int cell = 0; cell < swept.getLayout().cellCount; ++cell) {
+            assertThat(swept.getCandidates(cell)).as("cell %d", cell).isEqualTo(once.getCandidates(cell));
+        }
+    }
+
+    private static void keepOnly(SudokuBoard board, int value, int group, int positions) {
+        BoardLayout layout = board.getLayout();
+        for (int pos = 0; pos < layout.dimension; ++pos) {
+            if ((positions & 1 << pos) == 0) {
+                board.removeCandidate(layout.groupCell(group, pos), value);
+            }
+        }
+    }
+
+    // make value only possible in the columns of the mask (a Candidates mask, so column c is bit c) of the rows
+    private static void restrict(SudokuBoard board, int value, int[] rows, int columns) {
+        BoardLayout layout = board.getLayout();
+        for (int row : rows) {
+            for (int col = 0; col < layout.dimension; ++col) {
+                if (!Candidates.contains(columns, col + 1)) {
+                    board.removeCandidate(layout.cellIndex(row, col), value);
+                }
+            }
+        }
+    }
+}
@@ -51,6 +51,37 @@ class SudokuTest {
         System.out.println("can detect an empty puzzle is valid and unsolved");
     }
 
+    @Test
+    void validatorFindsFirstConflict() {
+        FlatSudokuBoard board = FlatSudokuBoard.copyOf(SudokuPuzzle.create(solvedGrid));
+        assertThat(SudokuValidator.findConflict(board)).isNull();
+        assertThat(new SudokuValidator(board.getLayout()).firstConflict(board, true)).isEqualTo(-1);
+
+        // (4,4) = 8 is also in row 4 and column 4; the row is checked first
+        int[] grid = Arrays.stream(solvedGrid).flatMapToInt(Arrays::stream).toArray();
+        grid[4 * 9 + 4] = 8;
+        FlatSudokuBoard broken = FlatSudokuBoard.create(Arrays.stream(grid).mapToObj(Integer::toString)
+                .reduce("", String::concat));
+        SudokuValidator.Conflict conflict = SudokuValidator.findConflict(broken);
+        assertThat(conflict.getCell()).isEqualTo(4 * 9 + 4);
+        assertThat(conflict.getOtherCell()).isEqualTo(4 * 9 + 3);
+        assertThat(conflict.getRule()).isEqualTo(SudokuRule.ONE_VALUE_PER_ROW);
+        assertThat(conflict).hasToString("(4,4) and (4,3) are both 8 (ONE_VALUE_PER_ROW)");
+        assertThat(SudokuPuzzle.create(broken.toCompactGrid()).isValid()).isFalse();
+
+        // a puzzle with empty cells is valid but it isn't a solution
+        FlatSudokuBoard blank = new FlatSudokuBoard();
+        assertThat(blank.isValid()).isTrue();
+        assertThat(new SudokuValidator(blank.getLayout()).check(blank, true)).hasToString("(0,0) is empty");
+
+        int[] grids = new int[3 * 81];
+        System.arraycopy(Arrays.stream(solvedGrid).flatMapToInt(Arrays::stream).toArray(), 0, grids, 0, 81);
+        System.arraycopy(grid, 0, grids, 81, 81);
+        assertThat(SudokuValidator.checkAll(BoardLayout.standard(), grids, true)).hasToString("{1, 2}");
+        assertThat(SudokuValidator.checkAll(BoardLayout.standard(), grids, false)).hasToString("{1}");
+        assertThat(SudokuValidator.checkAll(Arrays.asList(board, broken, blank), false)).hasToString("{1}");
+    }
+
     @Test
     void enforcesValidInputs_char() {
         char[][] grid = blankCharGrid(8, 9);    // grid's too small
@@ -254,6 +285,41 @@ class SudokuTest {
         }
     }
 
+    @Test
+    void canSolve_withSearch() {
+        // "world's hardest sudoku" (Arto Inkala, 2012); the solvers alone stall on it
+        String grid = "" +
+                "8        " +
+                "  36     " +
+                " 7  9 2  " +
+                " 5   7   " +
+                "    457  " +
+                "   1   3 " +
+                "  1    68" +
+                "  85   1 " +
+                " 9    4  ";
+        for (SudokuBoard board : new SudokuBoard[]{SudokuPuzzle.create(grid), FlatSudokuBoard.create(grid)}) {
+            assertThat(Sudoku.solve(board, SolveOptions.DEFAULT, (solver, helped, b) -> { }))
+                    .isEqualTo(SolveStatus.STALLED);
+            SolveOptions search = SolveOptions.builder().search(true).build();
+            assertThat(Sudoku.solve(board, search, (solver, helped, b) -> { })).isEqualTo(SolveStatus.SOLVED);
+            assertThat(board.isSolved()).as("puzzle was not solved").isTrue();
+            assertThat(board.isValid()).as("solved puzzle is not valid").isTrue();
+            assertThat(board.getValue(0)).isEqualTo(8);
+            assertThat(board.getValue(80)).isEqualTo(2);    // the known solution ends in 2
+        }
+
+        // same clues plus a 2 at (0,1) which follows the rules but isn't in the (unique) solution
+        String noSolution = "82       " + grid.substring(9);
+        SudokuPuzzle propagated = SudokuPuzzle.create(noSolution);
+        Sudoku.solve(propagated, (solver, helped, b) -> { });
+        SudokuPuzzle puzzle = SudokuPuzzle.create(noSolution);
+        assertThat(Sudoku.solve(puzzle, SolveOptions.builder().search(true).build(), (solver, helped, b) -> { }))
+                .isEqualTo(SolveStatus.NO_SOLUTION);
+        // the failed search rolled back every guess
+        assertThat(puzzle.toString()).isEqualTo(propagated.toString());
+    }
+
     private static char[][] blankCharGrid(int row, int col) {
         char[][] array = new char[row][col];
         for (int x = 0; x < row; ++x) {